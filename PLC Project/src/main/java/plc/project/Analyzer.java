@@ -4,7 +4,9 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -16,6 +18,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     public Scope scope;
     private Ast.Function function;
+    private int nextSlot = 0;
+    private int frameSize = 0;
 
     public Analyzer(Scope parent) {
         scope = new Scope(parent);
@@ -65,11 +69,14 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         try {
             scope = new Scope(scope);
+            nextSlot = 0;
+            frameSize = 0;
             for (int i = 0; i < ast.getParameters().size(); i++) {
-                scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), parameterTypeNames.get(i), true, Environment.NIL);
+                scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), parameterTypeNames.get(i), true, Environment.NIL).setSlot(allocateSlot());
             }
             function = ast;
             ast.getStatements().forEach(this::visit);
+            ast.setFrameSize(frameSize);
         }
         finally {
             scope = scope.getParent();
@@ -106,6 +113,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
             visit(ast.getValue().get());
         }
         ast.setVariable(getScope().defineVariable(ast.getName(), ast.getName(), type, true, Environment.NIL));
+        if (function != null) {
+            ast.getVariable().setSlot(allocateSlot());
+        }
         if (ast.getValue().isPresent()) {
             visit(ast.getValue().get());
             requireAssignable(ast.getVariable().getType(), ast.getValue().get().getType());
@@ -131,6 +141,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if (ast.getThenStatements().isEmpty()) {
             throw new RuntimeException("thenStatements is empty");
         }
+        int slots = nextSlot;
         try {
             scope = new Scope(scope);
             ast.getThenStatements().forEach(this::visit);
@@ -138,6 +149,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
         finally {
             scope = scope.getParent();
+            nextSlot = slots;
         }
         return null;
     }
@@ -154,11 +166,13 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if (cases.get(cases.size() - 1).getValue().isPresent())
             throw new RuntimeException("Default case should have no value specified");
         cases.forEach(this::visit);
+        ast.setJumpTable(jumpTable(cases));
         return null;
     }
 
     @Override
     public Void visit(Ast.Statement.Case ast) {
+        int slots = nextSlot;
         try {
             scope = new Scope(scope);
             if (ast.getValue().isPresent()) {
@@ -168,6 +182,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
         finally {
             scope = scope.getParent();
+            nextSlot = slots;
         }
         return null;
     }
@@ -176,12 +191,14 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Statement.While ast) {
         visit(ast.getCondition());
         requireAssignable(Environment.Type.BOOLEAN, ast.getCondition().getType());
+        int slots = nextSlot;
         try {
             scope = new Scope(scope);
             ast.getStatements().forEach(this::visit);
         }
         finally {
             scope = scope.getParent();
+            nextSlot = slots;
         }
         return null;
     }
@@ -190,6 +207,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Statement.Return ast) {
         visit(ast.getValue());
         requireAssignable(function.getFunction().getReturnType(), ast.getValue().getType());
+        // A RETURN always completes the function, so any call it returns is in tail position.
+        ast.setTailCall(ast.getValue() instanceof Ast.Expression.Function);
         return null;
     }
 
@@ -335,6 +354,34 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return null;
     }
 
+    /**
+     * Builds the jump table of a switch whose case values are all literals,
+     * keyed by the runtime value of each literal. Returns null if any case
+     * value is not a constant. As with the linear search, the first case with
+     * a given value wins.
+     */
+    static Map<Object, Ast.Statement.Case> jumpTable(List<Ast.Statement.Case> cases) {
+        Map<Object, Ast.Statement.Case> table = new HashMap<>();
+        for (int i = 0; i < cases.size() - 1; i++) {
+            Ast.Expression value = cases.get(i).getValue().get();
+            if (!(value instanceof Ast.Expression.Literal)) {
+                return null;
+            }
+            Object literal = ((Ast.Expression.Literal) value).getLiteral();
+            table.putIfAbsent(literal != null ? literal : Environment.NIL.getValue(), cases.get(i));
+        }
+        return table;
+    }
+
+    /**
+     * Allocates the next local slot of the current function's frame. Slots are
+     * released when the enclosing block ends, so sibling blocks reuse them.
+     */
+    private int allocateSlot() {
+        frameSize = Math.max(frameSize, nextSlot + 1);
+        return nextSlot++;
+    }
+
     public static void requireAssignable(Environment.Type target, Environment.Type type) {
         if (type.equals(Environment.Type.ANY) || type.equals(Environment.Type.NIL) || type.equals(Environment.Type.COMPARABLE) || type.equals(Environment.Type.BOOLEAN)
                 || type.equals(Environment.Type.INTEGER) || type.equals(Environment.Type.DECIMAL) || type.equals(Environment.Type.CHARACTER) || type.equals(Environment.Type.STRING)) {
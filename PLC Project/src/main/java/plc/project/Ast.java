@@ -2,6 +2,7 @@ package plc.project;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -11,6 +12,31 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    private int index = -1;
+
+    /**
+     * Returns the index of the first token of this node in the PLC source, or
+     * -1 if it is unknown. Only globals, functions and statements are given
+     * one, and it is not part of equality.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Gives this node the index of the node it was rebuilt from, unless it
+     * already has one.
+     */
+    void inherit(Ast origin) {
+        if (index < 0) {
+            index = origin.index;
+        }
+    }
+
     public static final class Source extends Ast {
 
         private final List<Global> globals;
@@ -36,6 +62,11 @@ public abstract class Ast {
                     functions.equals(((Source) obj).functions);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(globals, functions);
+        }
+
         @Override
         public String toString() {
             return "Ast.Source{" +
@@ -104,6 +135,11 @@ public abstract class Ast {
                     Objects.equals(variable, ((Global) obj).variable);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, typeName, mutable, value, variable);
+        }
+
         @Override
         public String toString() {
             return "Ast.Global{" +
@@ -125,6 +161,9 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Statement> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
+        private boolean pure = false;
+        private Machine.Code code = null;
         
         public Function(String name, List<String> parameters, List<Statement> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -173,6 +212,42 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of local slots (parameters included) needed by an
+         * activation of this function, or -1 if it has not been analyzed.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        /**
+         * Returns whether {@link PurityAnalyzer} found this function to have no
+         * side effects and to depend only on its arguments.
+         */
+        public boolean isPure() {
+            return pure;
+        }
+
+        public void setPure(boolean pure) {
+            this.pure = pure;
+        }
+
+        /**
+         * Returns the compiled code of this function for a {@link Machine},
+         * or null if it has not been compiled yet.
+         */
+        Machine.Code getCode() {
+            return code;
+        }
+
+        void setCode(Machine.Code code) {
+            this.code = code;
+        }
+
 
         @Override
         public boolean equals(Object obj) {
@@ -185,6 +260,11 @@ public abstract class Ast {
                     Objects.equals(function, ((Ast.Function) obj).function);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, parameters, parameterTypeNames, returnTypeName, statements, function);
+        }
+
 
         @Override
         public String toString() {
@@ -220,6 +300,11 @@ public abstract class Ast {
                         expression.equals(((Ast.Statement.Expression) obj).expression);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(expression);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Expression{" +
@@ -279,6 +364,11 @@ public abstract class Ast {
                         Objects.equals(variable, ((Declaration) obj).variable);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(name, typeName, value, variable);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Declaration{" +
@@ -316,6 +406,11 @@ public abstract class Ast {
                         value.equals(((Assignment) obj).value);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(receiver, value);
+            }
+
             @Override
             public final String toString() {
                 return "Ast.Statement.Assignment{" +
@@ -359,6 +454,11 @@ public abstract class Ast {
                         elseStatements.equals(((If) obj).elseStatements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, thenStatements, elseStatements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.If{" +
@@ -374,6 +474,7 @@ public abstract class Ast {
 
             private final Ast.Expression condition;
             private final List<Ast.Statement.Case> cases;
+            private Map<Object, Ast.Statement.Case> jumpTable = null;
 
             public Switch(Ast.Expression condition, List<Ast.Statement.Case> cases) {
                 this.condition = condition;
@@ -386,6 +487,19 @@ public abstract class Ast {
 
             public List<Ast.Statement.Case> getCases() { return cases; }
 
+            /**
+             * Returns the cases keyed by their literal values, or null if the
+             * switch has not been analyzed or has non-constant cases. The
+             * default case is not included.
+             */
+            public Map<Object, Ast.Statement.Case> getJumpTable() {
+                return jumpTable;
+            }
+
+            public void setJumpTable(Map<Object, Ast.Statement.Case> jumpTable) {
+                this.jumpTable = jumpTable;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Switch &&
@@ -393,6 +507,11 @@ public abstract class Ast {
                         cases.equals(((Switch) obj).cases);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, cases);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Switch{" +
@@ -428,6 +547,11 @@ public abstract class Ast {
                         statements.equals(((Case) obj).statements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(value, statements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Case{" +
@@ -463,6 +587,11 @@ public abstract class Ast {
                         statements.equals(((While) obj).statements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, statements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.While{" +
@@ -476,6 +605,7 @@ public abstract class Ast {
         public static final class Return extends Statement {
 
             private final Ast.Expression value;
+            private boolean tailCall = false;
 
             public Return(Ast.Expression value) {
                 this.value = value;
@@ -485,12 +615,30 @@ public abstract class Ast {
                 return value;
             }
 
+            /**
+             * Returns whether the value is a function call whose result is
+             * returned as is, which the analyzer marks so the interpreter can
+             * run it in place of the returning activation.
+             */
+            public boolean isTailCall() {
+                return tailCall;
+            }
+
+            public void setTailCall(boolean tailCall) {
+                this.tailCall = tailCall;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
                         value.equals(((Return) obj).value);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(value);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Return{" +
@@ -540,6 +688,11 @@ public abstract class Ast {
                         Objects.equals(type, ((Literal) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(literal, type);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.Literal{" +
@@ -583,6 +736,11 @@ public abstract class Ast {
                         Objects.equals(type, ((Group) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(expression, type);
+            }
+
 
             @Override
             public String toString() {
@@ -640,6 +798,11 @@ public abstract class Ast {
                         Objects.equals(type, ((Binary) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(operator, left, right, type);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.Binary{" +
@@ -696,6 +859,11 @@ public abstract class Ast {
                         Objects.equals(variable, ((Access) obj).variable);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(offset, name, variable);
+            }
+
 
             @Override
             public String toString() {
@@ -751,6 +919,11 @@ public abstract class Ast {
                         Objects.equals(function, ((Ast.Expression.Function) obj).function);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(name, arguments, function);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.Function{" +
@@ -795,6 +968,11 @@ public abstract class Ast {
                         Objects.equals(type, ((Ast.Expression.PlcList) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(values, type);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.PlcList{" +
@@ -0,0 +1,156 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a JMH benchmark class, {@code MainBenchmark}, for the {@code Main}
+ * class that {@link Generator} generates from the same source. It has a
+ * benchmark for each function without parameters, and one for each fixture of
+ * literal arguments added for a function with parameters. Results are
+ * consumed by a blackhole, and each iteration runs on a new instance of
+ * {@code Main}, so globals keep their values within an iteration.
+ *
+ * Both classes are generated in the package {@link #PACKAGE}, as JMH rejects
+ * benchmarks in the default package. The source is analyzed but not
+ * optimized (see {@link #analyze(String)}), so that every function is still
+ * in {@code Main} rather than inlined or removed.
+ */
+public final class BenchmarkGenerator {
+
+    public static final String PACKAGE = "plc.benchmark";
+
+    private final Ast.Source source;
+
+    // The benchmarked functions and the arguments of each benchmark.
+    private final List<Ast.Function> functions = new ArrayList<>();
+    private final List<List<Ast.Expression.Literal>> arguments = new ArrayList<>();
+
+    public BenchmarkGenerator(Ast.Source source) {
+        this.source = source;
+        for (Ast.Function function : source.getFunctions()) {
+            if (function.getParameters().isEmpty()) {
+                functions.add(function);
+                arguments.add(new ArrayList<>());
+            }
+        }
+    }
+
+    /**
+     * Parses and analyzes the input without the optimizations of
+     * {@link Program#compile(Ast.Source, Scope)}.
+     */
+    public static Ast.Source analyze(String input) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        return source;
+    }
+
+    /**
+     * Adds a benchmark calling the function with the given arguments, which
+     * are PLC literals separated by commas (e.g. {@code 20, "name"}).
+     */
+    public void addFixture(String name, String fixture) {
+        Ast.Expression call = new Parser(new Lexer(name + "(" + fixture + ")").lex()).parseExpression();
+        List<Ast.Expression.Literal> literals = new ArrayList<>();
+        for (Ast.Expression argument : ((Ast.Expression.Function) call).getArguments()) {
+            if (!(argument instanceof Ast.Expression.Literal)) {
+                throw new IllegalArgumentException("The arguments of a fixture of " + name + " must be literals.");
+            }
+            new Analyzer(new Scope(null)).visit(argument);
+            literals.add((Ast.Expression.Literal) argument);
+        }
+        Ast.Function function = source.getFunctions().stream()
+                .filter(f -> f.getName().equals(name) && f.getParameters().size() == literals.size())
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("The function " + name + "/" + literals.size() + " is not in the source."));
+        for (int i = 0; i < literals.size(); i++) {
+            Analyzer.requireAssignable(function.getFunction().getParameterTypes().get(i), literals.get(i).getType());
+        }
+        functions.add(function);
+        arguments.add(literals);
+    }
+
+    public void generate(Emitter emitter) {
+        emitter.append("package ").append(PACKAGE).append(";").newline(0);
+        emitter.newline(0);
+        emitter.append("import java.util.concurrent.TimeUnit;").newline(0);
+        emitter.append("import org.openjdk.jmh.annotations.*;").newline(0);
+        emitter.append("import org.openjdk.jmh.infra.Blackhole;").newline(0);
+        emitter.newline(0);
+        emitter.append("@State(Scope.Thread)").newline(0);
+        emitter.append("@BenchmarkMode(Mode.AverageTime)").newline(0);
+        emitter.append("@OutputTimeUnit(TimeUnit.NANOSECONDS)").newline(0);
+        emitter.append("@Warmup(iterations = 5, time = 1)").newline(0);
+        emitter.append("@Measurement(iterations = 5, time = 1)").newline(0);
+        emitter.append("@Fork(2)").newline(0);
+        emitter.append("public class MainBenchmark {").newline(0);
+        emitter.newline(1);
+        emitter.append("private Main main;").newline(0);
+        emitter.newline(1);
+        emitter.append("@Setup(Level.Iteration)").newline(1);
+        emitter.append("public void setup() {").newline(2);
+        emitter.append("main = new Main();").newline(1);
+        emitter.append("}").newline(0);
+        for (int i = 0; i < functions.size(); i++) {
+            Ast.Function function = functions.get(i);
+            emitter.newline(1);
+            emitter.append("@Benchmark").newline(1);
+            emitter.append("public void ").append(function.getFunction().getJvmName()).append('$').append(i).append("(Blackhole blackhole) {").newline(2);
+            emitter.append("blackhole.consume(main.").append(function.getFunction().getJvmName()).append('(');
+            for (int j = 0; j < arguments.get(i).size(); j++) {
+                if (j != 0) {
+                    emitter.append(", ");
+                }
+                new Generator(emitter).visit(arguments.get(i).get(j));
+            }
+            emitter.append("));").newline(1);
+            emitter.append("}").newline(0);
+        }
+        emitter.newline(0);
+        emitter.append("}").newline(0);
+    }
+
+    /**
+     * Writes {@code Main.java} and {@code MainBenchmark.java} for the PLC
+     * source file to the directory of {@link #PACKAGE} under the given one.
+     * Fixtures follow as {@code name:arguments}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkGenerator <program.plc> <directory> [name:arguments]...");
+            System.exit(1);
+        }
+        String input = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+        Ast.Source source = analyze(input);
+        BenchmarkGenerator generator = new BenchmarkGenerator(source);
+        for (int i = 2; i < args.length; i++) {
+            int colon = args[i].indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected a fixture as name:arguments, received " + args[i] + ".");
+            }
+            generator.addFixture(args[i].substring(0, colon), args[i].substring(colon + 1));
+        }
+        Path directory = Paths.get(args[1]).resolve(PACKAGE.replace('.', '/'));
+        Files.createDirectories(directory);
+        Emitter main = new Emitter();
+        Generator code = new Generator(main);
+        code.setPackage(PACKAGE);
+        code.visit(source);
+        Emitter benchmark = new Emitter();
+        generator.generate(benchmark);
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("Main.java"), StandardCharsets.UTF_8)) {
+            main.writeTo(writer);
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("MainBenchmark.java"), StandardCharsets.UTF_8)) {
+            benchmark.writeTo(writer);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package plc.project;
+
+/**
+ * Thrown when an execution has used up its step budget.
+ */
+public final class BudgetExceededException extends RuntimeException {
+
+    private final long steps;
+
+    public BudgetExceededException(String message, long steps) {
+        super(message);
+        this.steps = steps;
+    }
+
+    /**
+     * Returns the number of steps executed before the budget ran out.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+}
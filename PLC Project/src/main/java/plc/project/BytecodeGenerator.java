@@ -0,0 +1,691 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Generates a class file for an analyzed source, without going through Java
+ * source and javac like {@link Generator}. Globals become static fields,
+ * which a static {@code $globals} method (re)initializes, and functions become
+ * static methods of the same names. Values are kept as {@code int},
+ * {@code double}, {@code boolean} and {@code char} where their types allow.
+ *
+ * The code follows the Java semantics of the generated source, with two
+ * exceptions: a SWITCH runs only the matching case (as in the interpreter),
+ * and objects are compared with {@code equals}. Only the {@code print}
+ * builtin is supported. Function entries and loop back-edges check for
+ * interrupts like the interpreter's safepoints.
+ */
+public final class BytecodeGenerator implements Ast.Visitor<Void> {
+
+    /**
+     * The internal name of the generated class, which is defined as a hidden
+     * class of this package.
+     */
+    static final String NAME = "plc/project/Main";
+
+    private final ClassWriter writer = new ClassWriter(NAME);
+    private final Set<Environment.Variable> lists = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Function> functions = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Environment.Variable, Integer> locals = new IdentityHashMap<>();
+    private int[] parameters = new int[0];
+    private Environment.Function function = null;
+    private ClassWriter.Code code = null;
+
+    // The start of the current function, where self tail calls jump to.
+    private ClassWriter.Label entry = null;
+
+    /**
+     * Returns the class file generated for the analyzed source.
+     */
+    public static byte[] generate(Ast.Source ast) {
+        BytecodeGenerator generator = new BytecodeGenerator();
+        generator.visit(ast);
+        return generator.writer.toByteArray();
+    }
+
+    private BytecodeGenerator() {
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.add(function.getFunction());
+        }
+        code = writer.method(ClassWriter.ACC_STATIC, "$globals", "()V");
+        for (Ast.Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        code.end(ClassWriter.RETURN);
+        for (Ast.Function function : ast.getFunctions()) {
+            visit(function);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        Environment.Variable variable = ast.getVariable();
+        String descriptor = descriptor(variable.getType());
+        if (ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList) {
+            lists.add(variable);
+            descriptor = "[" + descriptor;
+            List<Ast.Expression> values = ((Ast.Expression.PlcList) ast.getValue().get()).getValues();
+            code.iconst(values.size());
+            if (descriptor.startsWith("[L")) {
+                code.type(ClassWriter.ANEWARRAY, descriptor.substring(2, descriptor.length() - 1), 0);
+            }
+            else {
+                code.op(ClassWriter.NEWARRAY, arrayType(variable.getType()), 0);
+            }
+            for (int i = 0; i < values.size(); i++) {
+                code.op(ClassWriter.DUP, 1);
+                code.iconst(i);
+                value(values.get(i), variable.getType());
+                code.op(arrayOpcode(ClassWriter.IASTORE, variable.getType()), -2 - size(variable.getType()));
+            }
+        }
+        else if (ast.getValue().isPresent()) {
+            value(ast.getValue().get(), variable.getType());
+        }
+        else {
+            // Resets the global of an earlier run.
+            zero(variable.getType());
+        }
+        writer.field(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, variable.getJvmName(), descriptor);
+        code.field(ClassWriter.PUTSTATIC, NAME, variable.getJvmName(), descriptor);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        function = ast.getFunction();
+        locals.clear();
+        parameters = new int[function.getArity()];
+        int access = function.getName().equals("main") && function.getArity() == 0 ? ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC : ClassWriter.ACC_STATIC;
+        code = writer.method(access, function.getJvmName(), descriptor(function));
+        int local = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = local;
+            local += size(function.getParameterTypes().get(i));
+        }
+        entry = new ClassWriter.Label();
+        code.place(entry);
+        code.invoke(ClassWriter.INVOKESTATIC, "plc/project/BytecodeGenerator", "safepoint", "()V");
+        block(ast.getStatements());
+        if (!code.isUnreachable()) {
+            if (function.getReturnType().equals(Environment.Type.NIL)) {
+                code.end(ClassWriter.RETURN);
+            }
+            else {
+                code.type(ClassWriter.NEW, "java/lang/IllegalStateException", 1);
+                code.op(ClassWriter.DUP, 1);
+                code.ldc(writer.string("The function " + function.getName() + " did not return a value."), 1);
+                code.invoke(ClassWriter.INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "(Ljava/lang/String;)V");
+                code.end(ClassWriter.ATHROW);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        Ast.Expression expression = ast.getExpression();
+        int size = expression instanceof Ast.Expression.Function ? call((Ast.Expression.Function) expression) : value(expression);
+        if (size > 0) {
+            code.op(size == 2 ? ClassWriter.POP2 : ClassWriter.POP, -size);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        Environment.Type type = ast.getVariable().getType();
+        int local = code.local(size(type));
+        locals.put(ast.getVariable(), local);
+        if (ast.getValue().isPresent()) {
+            value(ast.getValue().get(), type);
+        }
+        else {
+            // The verifier requires locals to be assigned before they are read.
+            zero(type);
+        }
+        code.local(storeOpcode(type), local, -size(type));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        Environment.Variable variable = receiver.getVariable();
+        Environment.Type type = variable.getType();
+        if (!variable.getMutable() && !receiver.getOffset().isPresent()) {
+            throw new RuntimeException("The variable " + variable.getName() + " is immutable.");
+        }
+        if (receiver.getOffset().isPresent()) {
+            code.field(ClassWriter.GETSTATIC, NAME, variable.getJvmName(), "[" + descriptor(type));
+            value(receiver.getOffset().get(), Environment.Type.INTEGER);
+            value(ast.getValue(), type);
+            code.op(arrayOpcode(ClassWriter.IASTORE, type), -2 - size(type));
+        }
+        else if (variable.getSlot() < 0) {
+            value(ast.getValue(), type);
+            code.field(ClassWriter.PUTSTATIC, NAME, variable.getJvmName(), descriptor(type));
+        }
+        else {
+            value(ast.getValue(), type);
+            code.local(storeOpcode(type), local(variable), -size(type));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        ClassWriter.Label otherwise = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+        branch(ast.getCondition(), otherwise, false);
+        block(ast.getThenStatements());
+        if (!ast.getElseStatements().isEmpty()) {
+            if (!code.isUnreachable()) {
+                code.jump(ClassWriter.GOTO, end, 0);
+            }
+            code.place(otherwise);
+            block(ast.getElseStatements());
+        }
+        else {
+            code.place(otherwise);
+        }
+        code.place(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        List<Ast.Statement.Case> cases = ast.getCases();
+        Environment.Type type = ast.getCondition().getType();
+        ClassWriter.Label[] labels = new ClassWriter.Label[cases.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new ClassWriter.Label();
+        }
+        TreeMap<Integer, ClassWriter.Label> keys = keys(cases, type, labels);
+        if (keys != null) {
+            value(ast.getCondition(), type);
+            code.lookupswitch(keys, labels[labels.length - 1]);
+        }
+        else {
+            // The condition is evaluated once, and the cases in order.
+            int condition = code.local(size(type));
+            value(ast.getCondition(), type);
+            code.local(storeOpcode(type), condition, -size(type));
+            for (int i = 0; i < cases.size() - 1; i++) {
+                code.local(loadOpcode(type), condition, size(type));
+                value(cases.get(i).getValue().get(), type);
+                compare("==", type, labels[i], true);
+            }
+            code.jump(ClassWriter.GOTO, labels[labels.length - 1], 0);
+        }
+        ClassWriter.Label end = new ClassWriter.Label();
+        for (int i = 0; i < cases.size(); i++) {
+            code.place(labels[i]);
+            block(cases.get(i).getStatements());
+            if (!code.isUnreachable() && i < cases.size() - 1) {
+                code.jump(ClassWriter.GOTO, end, 0);
+            }
+        }
+        code.place(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        block(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        ClassWriter.Label start = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+        code.place(start);
+        branch(ast.getCondition(), end, false);
+        block(ast.getStatements());
+        if (!code.isUnreachable()) {
+            code.invoke(ClassWriter.INVOKESTATIC, "plc/project/BytecodeGenerator", "safepoint", "()V");
+            code.jump(ClassWriter.GOTO, start, 0);
+        }
+        code.place(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        if (ast.isTailCall() && ((Ast.Expression.Function) ast.getValue()).getFunction() == function) {
+            // Self tail calls reuse the frame, so tail recursion does not grow the stack.
+            List<Ast.Expression> arguments = ((Ast.Expression.Function) ast.getValue()).getArguments();
+            List<Environment.Type> types = function.getParameterTypes();
+            for (int i = 0; i < arguments.size(); i++) {
+                value(arguments.get(i), types.get(i));
+            }
+            for (int i = arguments.size() - 1; i >= 0; i--) {
+                code.local(storeOpcode(types.get(i)), parameters[i], -size(types.get(i)));
+            }
+            code.jump(ClassWriter.GOTO, entry, 0);
+        }
+        else if (function.getReturnType().equals(Environment.Type.NIL)) {
+            visit(new Ast.Statement.Expression(ast.getValue()));
+            code.end(ClassWriter.RETURN);
+        }
+        else {
+            value(ast.getValue(), function.getReturnType());
+            String descriptor = descriptor(function.getReturnType());
+            code.end(descriptor.equals("D") ? ClassWriter.DRETURN : descriptor.length() == 1 ? ClassWriter.IRETURN : ClassWriter.ARETURN);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        Object literal = ast.getLiteral();
+        if (literal instanceof BigInteger) {
+            code.iconst(((BigInteger) literal).intValue());
+        }
+        else if (literal instanceof BigDecimal) {
+            code.dconst(((BigDecimal) literal).doubleValue());
+        }
+        else if (literal instanceof Boolean) {
+            code.iconst((Boolean) literal ? 1 : 0);
+        }
+        else if (literal instanceof Character) {
+            code.iconst((Character) literal);
+        }
+        else if (literal instanceof String) {
+            code.ldc(writer.string((String) literal), 1);
+        }
+        else {
+            code.op(ClassWriter.ACONST_NULL, 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        value(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        String operator = ast.getOperator();
+        Environment.Type type = ast.getType();
+        if (type.equals(Environment.Type.BOOLEAN)) {
+            ClassWriter.Label otherwise = new ClassWriter.Label();
+            ClassWriter.Label end = new ClassWriter.Label();
+            branch(ast, otherwise, false);
+            code.iconst(1);
+            code.jump(ClassWriter.GOTO, end, 0);
+            code.place(otherwise);
+            code.iconst(0);
+            code.place(end);
+        }
+        else if (type.equals(Environment.Type.STRING)) {
+            code.type(ClassWriter.NEW, "java/lang/StringBuilder", 1);
+            code.op(ClassWriter.DUP, 1);
+            code.invoke(ClassWriter.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V");
+            append(ast);
+            code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+        }
+        else if (operator.equals("^")) {
+            if (type.equals(Environment.Type.INTEGER)) {
+                value(ast.getLeft(), type);
+                value(ast.getRight(), Environment.Type.INTEGER);
+                code.invoke(ClassWriter.INVOKESTATIC, "plc/project/BytecodeGenerator", "power", "(II)I");
+            }
+            else {
+                value(ast.getLeft(), type);
+                value(ast.getRight(), Environment.Type.INTEGER);
+                code.op(ClassWriter.I2D, 1);
+                code.invoke(ClassWriter.INVOKESTATIC, "java/lang/Math", "pow", "(DD)D");
+            }
+        }
+        else {
+            boolean decimal = type.equals(Environment.Type.DECIMAL);
+            value(ast.getLeft(), type);
+            value(ast.getRight(), type);
+            int opcode = operator.equals("+") ? ClassWriter.IADD : operator.equals("-") ? ClassWriter.ISUB : operator.equals("*") ? ClassWriter.IMUL : ClassWriter.IDIV;
+            // The double instruction follows each int one after three others.
+            code.op(decimal ? opcode + 3 : opcode, decimal ? -2 : -1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        Environment.Variable variable = ast.getVariable();
+        Environment.Type type = variable.getType();
+        if (ast.getOffset().isPresent()) {
+            code.field(ClassWriter.GETSTATIC, NAME, variable.getJvmName(), "[" + descriptor(type));
+            value(ast.getOffset().get(), Environment.Type.INTEGER);
+            code.op(arrayOpcode(ClassWriter.IALOAD, type), size(type) - 2);
+        }
+        else if (lists.contains(variable)) {
+            throw new RuntimeException("The bytecode generator does not support accessing the list " + variable.getName() + " as a value.");
+        }
+        else if (variable.getSlot() < 0) {
+            code.field(ClassWriter.GETSTATIC, NAME, variable.getJvmName(), descriptor(type));
+        }
+        else {
+            code.local(loadOpcode(type), local(variable), size(type));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        if (call(ast) == 0) {
+            code.op(ClassWriter.ACONST_NULL, 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        throw new RuntimeException("The bytecode generator only supports lists as the values of globals.");
+    }
+
+    /**
+     * Aborts the execution if the running thread has been interrupted, called
+     * by the generated code.
+     */
+    public static void safepoint() {
+        if (Thread.interrupted()) {
+            throw new CancellationException("The execution was interrupted.");
+        }
+    }
+
+    /**
+     * Computes x ^ y with int overflow, called by the generated code. Negative
+     * exponents truncate like a cast of {@link Math#pow}.
+     */
+    public static int power(int base, int exponent) {
+        if (exponent < 0) {
+            return (int) Math.pow(base, exponent);
+        }
+        int result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    private void block(List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            if (code.isUnreachable()) {
+                break;
+            }
+            visit(statement);
+        }
+    }
+
+    /**
+     * Evaluates an expression, returning the stack slots of its value.
+     */
+    private int value(Ast.Expression ast) {
+        visit(ast);
+        return size(ast.getType());
+    }
+
+    /**
+     * Evaluates an expression as a value of the given type, boxing primitives
+     * where an object is expected.
+     */
+    private void value(Ast.Expression ast, Environment.Type type) {
+        visit(ast);
+        String from = descriptor(ast.getType());
+        if (from.length() == 1 && descriptor(type).length() > 1) {
+            String box = from.equals("I") ? "java/lang/Integer" : from.equals("D") ? "java/lang/Double" : from.equals("Z") ? "java/lang/Boolean" : "java/lang/Character";
+            code.invoke(ClassWriter.INVOKESTATIC, box, "valueOf", "(" + from + ")L" + box + ";");
+        }
+    }
+
+    /**
+     * Calls a function, returning the stack slots of its result.
+     */
+    private int call(Ast.Expression.Function ast) {
+        Environment.Function function = ast.getFunction();
+        if (functions.contains(function)) {
+            for (int i = 0; i < ast.getArguments().size(); i++) {
+                value(ast.getArguments().get(i), function.getParameterTypes().get(i));
+            }
+            code.invoke(ClassWriter.INVOKESTATIC, NAME, function.getJvmName(), descriptor(function));
+            return function.getReturnType().equals(Environment.Type.NIL) ? 0 : size(function.getReturnType());
+        }
+        else if (function.getJvmName().equals("System.out.println") && ast.getArguments().size() == 1) {
+            code.field(ClassWriter.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+            Ast.Expression argument = ast.getArguments().get(0);
+            value(argument);
+            code.invoke(ClassWriter.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(" + printable(argument.getType()) + ")V");
+            return 0;
+        }
+        throw new RuntimeException("The bytecode generator does not support the function " + function.getName() + "/" + function.getArity() + ".");
+    }
+
+    /**
+     * Appends the operands of a string concatenation to the builder on the
+     * stack, flattening nested concatenations.
+     */
+    private void append(Ast.Expression ast) {
+        while (ast instanceof Ast.Expression.Group) {
+            ast = ((Ast.Expression.Group) ast).getExpression();
+        }
+        if (ast instanceof Ast.Expression.Binary && ((Ast.Expression.Binary) ast).getOperator().equals("+") && ast.getType().equals(Environment.Type.STRING)) {
+            append(((Ast.Expression.Binary) ast).getLeft());
+            append(((Ast.Expression.Binary) ast).getRight());
+        }
+        else {
+            value(ast);
+            String descriptor = printable(ast.getType());
+            code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + descriptor + ")Ljava/lang/StringBuilder;");
+        }
+    }
+
+    /**
+     * Jumps to the target if the boolean expression evaluates to the given
+     * value, short-circuiting && and || without computing their values.
+     */
+    private void branch(Ast.Expression ast, ClassWriter.Label target, boolean when) {
+        if (ast instanceof Ast.Expression.Group) {
+            branch(((Ast.Expression.Group) ast).getExpression(), target, when);
+        }
+        else if (ast instanceof Ast.Expression.Literal && ast.getType().equals(Environment.Type.BOOLEAN)) {
+            if (((Ast.Expression.Literal) ast).getLiteral().equals(when)) {
+                code.jump(ClassWriter.GOTO, target, 0);
+            }
+        }
+        else if (ast instanceof Ast.Expression.Binary && isLogical(((Ast.Expression.Binary) ast).getOperator())) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            // && jumps when false as soon as one operand is, || when true.
+            boolean shortCircuit = binary.getOperator().equals("||");
+            if (when == shortCircuit) {
+                branch(binary.getLeft(), target, when);
+                branch(binary.getRight(), target, when);
+            }
+            else {
+                ClassWriter.Label skip = new ClassWriter.Label();
+                branch(binary.getLeft(), skip, shortCircuit);
+                branch(binary.getRight(), target, when);
+                code.place(skip);
+            }
+        }
+        else if (ast instanceof Ast.Expression.Binary && isComparison(((Ast.Expression.Binary) ast).getOperator())) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            Environment.Type type = binary.getLeft().getType();
+            value(binary.getLeft(), type);
+            value(binary.getRight(), type);
+            compare(binary.getOperator(), type, target, when);
+        }
+        else {
+            value(ast, Environment.Type.BOOLEAN);
+            code.jump(when ? ClassWriter.IFNE : ClassWriter.IFEQ, target, -1);
+        }
+    }
+
+    /**
+     * Compares the two values of the given type on the stack, jumping to the
+     * target if the comparison evaluates to the given value.
+     */
+    private void compare(String operator, Environment.Type type, ClassWriter.Label target, boolean when) {
+        String descriptor = descriptor(type);
+        int opcode = operator.equals("<") ? ClassWriter.IFLT : operator.equals(">") ? ClassWriter.IFGT : operator.equals("==") ? ClassWriter.IFEQ : ClassWriter.IFNE;
+        if (descriptor.equals("I") || descriptor.equals("C") || descriptor.equals("Z")) {
+            opcode += ClassWriter.IF_ICMPEQ - ClassWriter.IFEQ;
+            code.jump(when ? opcode : negate(opcode, ClassWriter.IF_ICMPEQ), target, -2);
+            return;
+        }
+        else if (descriptor.equals("D")) {
+            // NaN compares as greater for < and as less otherwise, so that
+            // all comparisons with it are false.
+            code.op(operator.equals("<") ? ClassWriter.DCMPG : ClassWriter.DCMPL, -3);
+        }
+        else if (operator.equals("<") || operator.equals(">")) {
+            code.invoke(ClassWriter.INVOKEINTERFACE, "java/lang/Comparable", "compareTo", "(Ljava/lang/Object;)I");
+        }
+        else {
+            code.invoke(ClassWriter.INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+            opcode = opcode == ClassWriter.IFEQ ? ClassWriter.IFNE : ClassWriter.IFEQ;
+        }
+        code.jump(when ? opcode : negate(opcode, ClassWriter.IFEQ), target, -1);
+    }
+
+    /**
+     * Returns the keys of a switch over ints or chars with distinct literal
+     * cases, or null if it cannot use a lookupswitch.
+     */
+    private static TreeMap<Integer, ClassWriter.Label> keys(List<Ast.Statement.Case> cases, Environment.Type type, ClassWriter.Label[] labels) {
+        if (!type.equals(Environment.Type.INTEGER) && !type.equals(Environment.Type.CHARACTER)) {
+            return null;
+        }
+        TreeMap<Integer, ClassWriter.Label> keys = new TreeMap<>();
+        for (int i = 0; i < cases.size() - 1; i++) {
+            Ast.Expression value = cases.get(i).getValue().get();
+            if (!(value instanceof Ast.Expression.Literal)) {
+                return null;
+            }
+            Object literal = ((Ast.Expression.Literal) value).getLiteral();
+            int key = literal instanceof Character ? (Character) literal : ((BigInteger) literal).intValue();
+            keys.putIfAbsent(key, labels[i]);
+        }
+        return keys;
+    }
+
+    private int local(Environment.Variable variable) {
+        Integer local = locals.get(variable);
+        return local != null ? local : parameters[variable.getSlot()];
+    }
+
+    private void zero(Environment.Type type) {
+        String descriptor = descriptor(type);
+        if (descriptor.equals("D")) {
+            code.dconst(0.0);
+        }
+        else if (descriptor.length() == 1) {
+            code.iconst(0);
+        }
+        else {
+            code.op(ClassWriter.ACONST_NULL, 1);
+        }
+    }
+
+    private static int negate(int opcode, int base) {
+        // Conditional jumps come in pairs of opposites: ==/!=, </>=, >/<=.
+        return ((opcode - base) ^ 1) + base;
+    }
+
+    private static boolean isLogical(String operator) {
+        return operator.equals("&&") || operator.equals("||");
+    }
+
+    private static boolean isComparison(String operator) {
+        return operator.equals("<") || operator.equals(">") || operator.equals("==") || operator.equals("!=");
+    }
+
+    private static int size(Environment.Type type) {
+        return type.equals(Environment.Type.DECIMAL) ? 2 : 1;
+    }
+
+    private static String descriptor(Environment.Type type) {
+        if (type.equals(Environment.Type.INTEGER)) {
+            return "I";
+        }
+        else if (type.equals(Environment.Type.DECIMAL)) {
+            return "D";
+        }
+        else if (type.equals(Environment.Type.BOOLEAN)) {
+            return "Z";
+        }
+        else if (type.equals(Environment.Type.CHARACTER)) {
+            return "C";
+        }
+        else if (type.equals(Environment.Type.STRING)) {
+            return "Ljava/lang/String;";
+        }
+        else if (type.equals(Environment.Type.COMPARABLE)) {
+            return "Ljava/lang/Comparable;";
+        }
+        return "Ljava/lang/Object;";
+    }
+
+    private static String descriptor(Environment.Function function) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Environment.Type type : function.getParameterTypes()) {
+            descriptor.append(descriptor(type));
+        }
+        descriptor.append(')');
+        return descriptor.append(function.getReturnType().equals(Environment.Type.NIL) ? "V" : descriptor(function.getReturnType())).toString();
+    }
+
+    /**
+     * Returns the argument descriptor of the println and append overloads
+     * for values of the given type.
+     */
+    private static String printable(Environment.Type type) {
+        String descriptor = descriptor(type);
+        return descriptor.length() == 1 || descriptor.equals("Ljava/lang/String;") ? descriptor : "Ljava/lang/Object;";
+    }
+
+    private static int loadOpcode(Environment.Type type) {
+        String descriptor = descriptor(type);
+        return descriptor.equals("D") ? ClassWriter.DLOAD : descriptor.length() == 1 ? ClassWriter.ILOAD : ClassWriter.ALOAD;
+    }
+
+    private static int storeOpcode(Environment.Type type) {
+        String descriptor = descriptor(type);
+        return descriptor.equals("D") ? ClassWriter.DSTORE : descriptor.length() == 1 ? ClassWriter.ISTORE : ClassWriter.ASTORE;
+    }
+
+    /**
+     * Returns the array load or store instruction for elements of the given
+     * type, given the one for ints.
+     */
+    private static int arrayOpcode(int opcode, Environment.Type type) {
+        String descriptor = descriptor(type);
+        int offset = descriptor.equals("I") ? 0 : descriptor.equals("D") ? 3 : descriptor.equals("Z") ? 5 : descriptor.equals("C") ? 6 : 4;
+        return opcode + offset;
+    }
+
+    private static int arrayType(Environment.Type type) {
+        String descriptor = descriptor(type);
+        return descriptor.equals("I") ? 10 : descriptor.equals("D") ? 7 : descriptor.equals("Z") ? 4 : 5;
+    }
+
+}
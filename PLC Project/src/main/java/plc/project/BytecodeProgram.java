@@ -0,0 +1,56 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+
+/**
+ * A program compiled by {@link BytecodeGenerator} and defined as a hidden
+ * class, which skips the Java source and javac of {@link CompiledProgram} and
+ * so compiles in milliseconds. The class is unloaded once the program is no
+ * longer referenced.
+ *
+ * Globals are static fields of the class, so executions of the same program
+ * run one at a time, each starting from freshly initialized globals.
+ */
+public final class BytecodeProgram {
+
+    private final MethodHandle globals;
+    private final MethodHandle main;
+
+    private BytecodeProgram(MethodHandle globals, MethodHandle main) {
+        this.globals = globals;
+        this.main = main;
+    }
+
+    public static BytecodeProgram compile(Program program) {
+        byte[] bytes = BytecodeGenerator.generate(program.getSource());
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return new BytecodeProgram(
+                    lookup.findStatic(lookup.lookupClass(), "$globals", MethodType.methodType(void.class)),
+                    lookup.findStatic(lookup.lookupClass(), "main", MethodType.methodType(int.class))
+            );
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new RuntimeException("The generated class could not be defined.", e);
+        }
+    }
+
+    /**
+     * Runs {@code main} and returns its result. Exceptions thrown by the
+     * program are rethrown as they are.
+     */
+    public synchronized Environment.PlcObject execute() {
+        try {
+            globals.invokeExact();
+            int result = (int) main.invokeExact();
+            return Environment.create(BigInteger.valueOf(result));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Compiles generated Java sources in memory and loads their classes, caching
+ * them by a SHA-256 hash of the source. Each source is loaded by its own
+ * class loader, so sources may declare the same class names.
+ *
+ * Classes are cached in memory for up to {@code capacity} sources, evicting
+ * the least recently used one; their classes are unloaded once no program
+ * uses them. If a directory is given, class files are also stored there (one
+ * subdirectory per hash) and reused by later caches. The disk cache is best
+ * effort: files that cannot be read or written are compiled again.
+ */
+public final class ClassCache {
+
+    private static final int CAPACITY = 256;
+
+    private final Path directory;
+
+    // Loaders by hash, in access order. Sources are compiled outside of the
+    // lock, so that compiling one never blocks loading another.
+    private final Map<String, FutureTask<Loader>> loaders;
+
+    public ClassCache() {
+        this(null, CAPACITY);
+    }
+
+    public ClassCache(Path directory) {
+        this(directory, CAPACITY);
+    }
+
+    public ClassCache(Path directory, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.directory = directory;
+        this.loaders = new LinkedHashMap<String, FutureTask<Loader>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FutureTask<Loader>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the class with the given name declared by the source, compiling
+     * the source unless it is cached. Concurrent loads of the same source
+     * compile it once.
+     */
+    public Class<?> load(String source, String name) {
+        String hash = hash(source);
+        FutureTask<Loader> task;
+        synchronized (loaders) {
+            task = loaders.computeIfAbsent(hash, h -> new FutureTask<>(() -> new Loader(classes(hash, source))));
+        }
+        task.run();
+        Loader loader;
+        try {
+            loader = task.get();
+        } catch (ExecutionException e) {
+            // Failures are not cached, like with a source that was never loaded.
+            synchronized (loaders) {
+                loaders.remove(hash, task);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while compiling the source.", e);
+        }
+        try {
+            return loader.loadClass(name);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The class " + name + " is not declared by the source.", e);
+        }
+    }
+
+    /**
+     * Returns the number of sources cached in memory.
+     */
+    public int getSize() {
+        synchronized (loaders) {
+            return loaders.size();
+        }
+    }
+
+    private Map<String, byte[]> classes(String hash, String source) {
+        if (directory != null) {
+            Map<String, byte[]> classes = read(directory.resolve(hash));
+            if (!classes.isEmpty()) {
+                return classes;
+            }
+        }
+        Map<String, byte[]> classes = compile(source);
+        if (directory != null) {
+            write(directory.resolve(hash), classes);
+        }
+        return classes;
+    }
+
+    private static Map<String, byte[]> compile(String source) {
+        return compile(Collections.singletonMap(className(source), source)).get(className(source));
+    }
+
+    /**
+     * Compiles sources, given by the name of their top-level class, in one
+     * javac task and returns the classes declared by each of them, including
+     * nested classes.
+     */
+    static Map<String, Map<String, byte[]>> compile(Map<String, String> sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler is available, a JDK is required.");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, Map<String, byte[]>> classes = new HashMap<>();
+        Map<FileObject, String> names = new IdentityHashMap<>();
+        List<JavaFileObject> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + source.getKey() + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source.getValue();
+                }
+            };
+            names.put(file, source.getKey());
+            classes.put(source.getKey(), new HashMap<>());
+            files.add(file);
+        }
+        JavaFileManager manager = new ForwardingJavaFileManager<JavaFileManager>(compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                // javac passes the source a class is declared in as its sibling.
+                Map<String, byte[]> declared = classes.get(names.get(sibling));
+                return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return new ByteArrayOutputStream() {
+                            @Override
+                            public void close() {
+                                declared.put(className, toByteArray());
+                            }
+                        };
+                    }
+                };
+            }
+        };
+        boolean compiled = compiler.getTask(null, manager, diagnostics, Collections.singletonList("-nowarn"), null, files).call();
+        if (!compiled) {
+            StringBuilder message = new StringBuilder("The generated source does not compile:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    message.append(System.lineSeparator());
+                    if (sources.size() > 1) {
+                        message.append(names.get(diagnostic.getSource())).append(":");
+                    }
+                    message.append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+                }
+            }
+            throw new RuntimeException(message.toString());
+        }
+        return classes;
+    }
+
+    /**
+     * Returns the name of the first public class of the source, which javac
+     * requires to match the file name.
+     */
+    private static String className(String source) {
+        int start = source.indexOf("public class ") + "public class ".length();
+        int end = start;
+        while (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+            end++;
+        }
+        return source.substring(start, end);
+    }
+
+    private static Map<String, byte[]> read(Path directory) {
+        Map<String, byte[]> classes = new HashMap<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.class")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    classes.put(name.substring(0, name.length() - ".class".length()), Files.readAllBytes(file));
+                }
+            } catch (IOException e) {
+                return Collections.emptyMap();
+            }
+        }
+        return classes;
+    }
+
+    private static void write(Path directory, Map<String, byte[]> classes) {
+        // Written to a temporary directory first, so that concurrent caches
+        // never read a partial entry.
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory.getParent());
+            temporary = Files.createTempDirectory(directory.getParent(), directory.getFileName() + ".");
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                Files.write(temporary.resolve(entry.getKey() + ".class"), entry.getValue());
+            }
+            Files.move(temporary, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Another cache may have stored the entry first; either way the
+            // classes are still cached in memory.
+            delete(temporary);
+        }
+    }
+
+    private static void delete(Path directory) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // Left for the user to remove.
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Loads the given classes, which may refer to each other.
+     */
+    static final class Loader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        Loader(Map<String, byte[]> classes) {
+            super(ClassCache.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        /**
+         * Loads the classes of the source before delegating, as the parent
+         * may have classes of the same names.
+         */
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!classes.containsKey(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                return loaded != null ? loaded : findClass(name);
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
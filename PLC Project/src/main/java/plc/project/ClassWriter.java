@@ -0,0 +1,478 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a class file, supporting just what {@link BytecodeGenerator} needs:
+ * static fields and static methods of a class extending {@code Object}.
+ *
+ * Classes are written in version 49 (Java 5), the last one verified by type
+ * inference, so that methods need no stack map frames.
+ */
+final class ClassWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, DCONST_0 = 0x0E, DCONST_1 = 0x0F, BIPUSH = 0x10, SIPUSH = 0x11;
+    static final int LDC = 0x12, LDC_W = 0x13, LDC2_W = 0x14;
+    static final int ILOAD = 0x15, DLOAD = 0x18, ALOAD = 0x19, ISTORE = 0x36, DSTORE = 0x39, ASTORE = 0x3A;
+    static final int IALOAD = 0x2E, DALOAD = 0x31, AALOAD = 0x32, BALOAD = 0x33, CALOAD = 0x34;
+    static final int IASTORE = 0x4F, DASTORE = 0x52, AASTORE = 0x53, BASTORE = 0x54, CASTORE = 0x55;
+    static final int POP = 0x57, POP2 = 0x58, DUP = 0x59;
+    static final int IADD = 0x60, DADD = 0x63, ISUB = 0x64, DSUB = 0x67, IMUL = 0x68, DMUL = 0x6B, IDIV = 0x6C, DDIV = 0x6F;
+    static final int I2D = 0x87, D2I = 0x8E;
+    static final int DCMPL = 0x97, DCMPG = 0x98;
+    static final int IFEQ = 0x99, IFNE = 0x9A, IFLT = 0x9B, IFGE = 0x9C, IFGT = 0x9D, IFLE = 0x9E;
+    static final int IF_ICMPEQ = 0x9F, IF_ICMPNE = 0xA0, IF_ICMPLT = 0xA1, IF_ICMPGE = 0xA2, IF_ICMPGT = 0xA3, IF_ICMPLE = 0xA4;
+    static final int GOTO = 0xA7, LOOKUPSWITCH = 0xAB;
+    static final int IRETURN = 0xAC, DRETURN = 0xAF, ARETURN = 0xB0, RETURN = 0xB1;
+    static final int GETSTATIC = 0xB2, PUTSTATIC = 0xB3, INVOKEVIRTUAL = 0xB6, INVOKESPECIAL = 0xB7, INVOKESTATIC = 0xB8, INVOKEINTERFACE = 0xB9;
+    static final int NEW = 0xBB, NEWARRAY = 0xBC, ANEWARRAY = 0xBD, ATHROW = 0xBF;
+    static final int WIDE = 0xC4;
+
+    private final String name;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(pool);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolSize = 1;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<Code> methods = new ArrayList<>();
+
+    /**
+     * Creates a writer for the class of the given internal name.
+     */
+    ClassWriter(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void field(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * Adds a method, returning the builder of its code.
+     */
+    Code method(int access, String name, String descriptor) {
+        Code code = new Code(this, access, name, descriptor, ((access & ACC_STATIC) != 0 ? 0 : 1) + arguments(descriptor));
+        methods.add(code);
+        return code;
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int thisClass = classReference(name);
+            int superClass = classReference("java/lang/Object");
+            int code = utf8("Code");
+            // Methods add their names to the pool, which is written first.
+            ByteArrayOutputStream members = new ByteArrayOutputStream();
+            DataOutputStream memberOut = new DataOutputStream(members);
+            memberOut.writeShort(fields.size());
+            for (byte[] field : fields) {
+                memberOut.write(field);
+            }
+            memberOut.writeShort(methods.size());
+            for (Code method : methods) {
+                method.write(memberOut, code);
+            }
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolSize);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            members.writeTo(out);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    int utf8(String value) {
+        return constant("Utf8:" + value, 1, out -> out.writeUTF(value));
+    }
+
+    int classReference(String name) {
+        int index = utf8(name);
+        return constant("Class:" + name, 7, out -> out.writeShort(index));
+    }
+
+    int string(String value) {
+        int index = utf8(value);
+        return constant("String:" + value, 8, out -> out.writeShort(index));
+    }
+
+    int integer(int value) {
+        return constant("Integer:" + value, 3, out -> out.writeInt(value));
+    }
+
+    int decimal(double value) {
+        // Doubles take two entries of the pool.
+        int index = constant("Double:" + Double.doubleToRawLongBits(value), 6, out -> out.writeDouble(value));
+        if (index == poolSize - 1) {
+            poolSize++;
+        }
+        return index;
+    }
+
+    int member(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classReference(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("NameAndType:" + name + ":" + descriptor, 12, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag + ":" + owner + "." + name + ":" + descriptor, tag, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(String key, int tag, Constant constant) {
+        Integer index = entries.get(key);
+        if (index == null) {
+            try {
+                constants.writeByte(tag);
+                constant.write(constants);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            index = poolSize++;
+            entries.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of local slots (or stack entries) of a descriptor's
+     * arguments.
+     */
+    static int arguments(String descriptor) {
+        int slots = 0;
+        for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+            char c = descriptor.charAt(i);
+            slots += c == 'D' || c == 'J' ? 2 : 1;
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the number of stack entries of a field or return descriptor.
+     */
+    static int size(String descriptor) {
+        return descriptor.equals("V") ? 0 : descriptor.equals("D") || descriptor.equals("J") ? 2 : 1;
+    }
+
+    private interface Constant {
+
+        void write(DataOutputStream out) throws IOException;
+
+    }
+
+    /**
+     * A position in the code of a method, which may be jumped to before it is
+     * placed.
+     */
+    static final class Label {
+
+        private int offset = -1;
+        private int stack = -1;
+
+    }
+
+    private static final class Jump {
+
+        private final Label label;
+        private final int instruction;
+        private final int position;
+        private final boolean wide;
+
+        private Jump(Label label, int instruction, int position, boolean wide) {
+            this.label = label;
+            this.instruction = instruction;
+            this.position = position;
+            this.wide = wide;
+        }
+
+    }
+
+    /**
+     * Builds the code of a method, tracking the depth of the operand stack to
+     * compute its maximum. Stack effects are given in slots (two for a double).
+     */
+    static final class Code {
+
+        private final ClassWriter owner;
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Jump> jumps = new ArrayList<>();
+        private int locals;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+
+        private Code(ClassWriter owner, int access, String name, String descriptor, int locals) {
+            this.owner = owner;
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.locals = locals;
+            this.maxLocals = locals;
+        }
+
+        ClassWriter getOwner() {
+            return owner;
+        }
+
+        /**
+         * Returns whether the last instruction cannot complete (a jump, return
+         * or throw), so that the code after it is only reached by jumping.
+         */
+        boolean isUnreachable() {
+            return stack < 0;
+        }
+
+        /**
+         * Allocates local slots, returning the first.
+         */
+        int local(int size) {
+            int local = locals;
+            locals += size;
+            maxLocals = Math.max(maxLocals, locals);
+            return local;
+        }
+
+        void op(int opcode, int effect) {
+            bytes.write(opcode);
+            stack(effect);
+        }
+
+        void op(int opcode, int operand, int effect) {
+            bytes.write(opcode);
+            bytes.write(operand);
+            stack(effect);
+        }
+
+        /**
+         * Writes an instruction with a two byte operand, such as a constant pool
+         * index.
+         */
+        void wide(int opcode, int operand, int effect) {
+            bytes.write(opcode);
+            bytes.write(operand >> 8);
+            bytes.write(operand);
+            stack(effect);
+        }
+
+        void end(int opcode) {
+            bytes.write(opcode);
+            stack = -1;
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value, 1);
+            }
+            else if (value == (byte) value) {
+                op(BIPUSH, value & 0xFF, 1);
+            }
+            else if (value == (short) value) {
+                wide(SIPUSH, value & 0xFFFF, 1);
+            }
+            else {
+                ldc(owner.integer(value), 1);
+            }
+        }
+
+        void dconst(double value) {
+            if (Double.doubleToRawLongBits(value) == 0L || value == 1.0) {
+                op(value == 0.0 ? DCONST_0 : DCONST_1, 2);
+            }
+            else {
+                wide(LDC2_W, owner.decimal(value), 2);
+            }
+        }
+
+        void ldc(int index, int effect) {
+            if (index < 256) {
+                op(LDC, index, effect);
+            }
+            else {
+                wide(LDC_W, index, effect);
+            }
+        }
+
+        /**
+         * Loads or stores a local, given the instruction for slot numbers below
+         * 256.
+         */
+        void local(int opcode, int index, int effect) {
+            if (index < 256) {
+                op(opcode, index, effect);
+            }
+            else {
+                bytes.write(WIDE);
+                wide(opcode, index, effect);
+            }
+        }
+
+        void field(int opcode, String owner, String name, String descriptor) {
+            int size = size(descriptor);
+            wide(opcode, this.owner.member(9, owner, name, descriptor), opcode == GETSTATIC ? size : -size);
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor) {
+            int effect = size(descriptor.substring(descriptor.indexOf(')') + 1)) - arguments(descriptor) - (opcode == INVOKESTATIC ? 0 : 1);
+            if (opcode == INVOKEINTERFACE) {
+                wide(opcode, this.owner.member(11, owner, name, descriptor), effect);
+                bytes.write(arguments(descriptor) + 1);
+                bytes.write(0);
+            }
+            else {
+                wide(opcode, this.owner.member(10, owner, name, descriptor), effect);
+            }
+        }
+
+        void type(int opcode, String type, int effect) {
+            wide(opcode, owner.classReference(type), effect);
+        }
+
+        /**
+         * Writes a jump; GOTO ends the reachable code.
+         */
+        void jump(int opcode, Label label, int effect) {
+            stack(effect);
+            record(label, bytes.size(), 1, false);
+            bytes.write(opcode);
+            bytes.write(0);
+            bytes.write(0);
+            if (opcode == GOTO) {
+                stack = -1;
+            }
+        }
+
+        void lookupswitch(TreeMap<Integer, Label> keys, Label fallback) {
+            stack(-1);
+            int start = bytes.size();
+            bytes.write(LOOKUPSWITCH);
+            while (bytes.size() % 4 != 0) {
+                bytes.write(0);
+            }
+            record(fallback, start, bytes.size() - start, true);
+            writeInt(0);
+            writeInt(keys.size());
+            for (Map.Entry<Integer, Label> entry : keys.entrySet()) {
+                writeInt(entry.getKey());
+                record(entry.getValue(), start, bytes.size() - start, true);
+                writeInt(0);
+            }
+            stack = -1;
+        }
+
+        void place(Label label) {
+            label.offset = bytes.size();
+            // After unreachable code, the label is only reached by the jumps
+            // to it, if any.
+            if (stack < 0) {
+                stack = label.stack;
+            }
+            label.stack = stack;
+        }
+
+        private void record(Label label, int instruction, int position, boolean wide) {
+            jumps.add(new Jump(label, instruction, instruction + position, wide));
+            if (label.stack < 0) {
+                label.stack = stack;
+            }
+        }
+
+        private void writeInt(int value) {
+            bytes.write(value >>> 24);
+            bytes.write(value >>> 16);
+            bytes.write(value >>> 8);
+            bytes.write(value);
+        }
+
+        private void stack(int effect) {
+            stack += effect;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void write(DataOutputStream out, int code) throws IOException {
+            byte[] bytecode = bytes.toByteArray();
+            if (bytecode.length > 65535) {
+                throw new RuntimeException("The method " + name + " is too large.");
+            }
+            for (Jump jump : jumps) {
+                int offset = jump.label.offset - jump.instruction;
+                if (jump.wide) {
+                    bytecode[jump.position] = (byte) (offset >>> 24);
+                    bytecode[jump.position + 1] = (byte) (offset >>> 16);
+                    bytecode[jump.position + 2] = (byte) (offset >>> 8);
+                    bytecode[jump.position + 3] = (byte) offset;
+                }
+                else if (offset != (short) offset) {
+                    throw new RuntimeException("The method " + name + " is too large.");
+                }
+                else {
+                    bytecode[jump.position] = (byte) (offset >>> 8);
+                    bytecode[jump.position + 1] = (byte) offset;
+                }
+            }
+            out.writeShort(access);
+            out.writeShort(owner.utf8(name));
+            out.writeShort(owner.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(code);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+    }
+
+}
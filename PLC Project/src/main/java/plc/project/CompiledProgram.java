@@ -0,0 +1,99 @@
+package plc.project;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A program whose {@link Generator} output has been compiled to a class, so
+ * that it runs at the speed of Java instead of being interpreted. This suits
+ * long-running programs, as compiling takes far longer than interpreting a
+ * short one; classes are reused through a {@link ClassCache}.
+ *
+ * The generated code has no step budget, call depth limit or memoization, and
+ * only supports the builtins of the generator (not e.g. {@link Natives}).
+ * Like a {@link Program}, it may be run concurrently: each run creates a new
+ * instance of the class, which holds its globals.
+ */
+public final class CompiledProgram {
+
+    private static final ClassCache CACHE = new ClassCache();
+
+    // Sources with at least this many functions are generated in parallel.
+    private static final int PARALLEL_FUNCTIONS = 64;
+
+    private final String java;
+    private final Constructor<?> constructor;
+    private final Method main;
+
+    CompiledProgram(String java, Class<?> type) {
+        this.java = java;
+        try {
+            constructor = type.getDeclaredConstructor();
+            main = type.getDeclaredMethod("main");
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("The generated class has no main function.", e);
+        }
+        constructor.setAccessible(true);
+        main.setAccessible(true);
+    }
+
+    /**
+     * Compiles the program using a shared in-memory cache, which keeps the
+     * classes of the most recently compiled sources.
+     */
+    public static CompiledProgram compile(Program program) {
+        return compile(program, CACHE);
+    }
+
+    public static CompiledProgram compile(Program program, ClassCache cache) {
+        Emitter emitter = new Emitter();
+        if (program.getSource().getFunctions().size() >= PARALLEL_FUNCTIONS) {
+            Generator.generate(program.getSource(), emitter, ForkJoinPool.commonPool());
+        }
+        else {
+            new Generator(emitter).visit(program.getSource());
+        }
+        String java = emitter.toString();
+        return new CompiledProgram(java, cache.load(java, "Main"));
+    }
+
+    /**
+     * Compiles the program with the incremental compiler, which only
+     * recompiles the functions changed since the program it last compiled.
+     */
+    public static CompiledProgram compile(Program program, IncrementalCompiler compiler) {
+        return compiler.compile(program.getSource());
+    }
+
+    /**
+     * Returns the generated Java source.
+     */
+    public String getJava() {
+        return java;
+    }
+
+    /**
+     * Runs {@code main} on a new instance and returns its result. Exceptions
+     * thrown by the program are rethrown as they are.
+     */
+    public Environment.PlcObject execute() {
+        try {
+            Object result = main.invoke(constructor.newInstance());
+            return Environment.create(result instanceof Integer ? BigInteger.valueOf((Integer) result) : result);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
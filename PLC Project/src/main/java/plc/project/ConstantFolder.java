@@ -0,0 +1,342 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Folds constant expressions of an analyzed source and returns the folded
+ * source; the input is not modified. Binary expressions over literals are
+ * replaced by their value, immutable globals with a literal value are
+ * replaced by that literal, and IF/WHILE statements with a constant condition
+ * are reduced to the branch that runs.
+ *
+ * Values are computed by the {@link Interpreter} itself, so folding keeps its
+ * exact semantics (int wraparound, decimal rounding, the identity check of
+ * comparisons). An expression is only folded if the generated Java computes
+ * the same value, which rules out exponentiation (a double), most decimal
+ * division and anything that fails at runtime. Equality is never folded, nor
+ * are its operands rewritten, as the interpreter compares the operand trees.
+ */
+public final class ConstantFolder implements Ast.Visitor<Ast> {
+
+    private final Map<Environment.Variable, Ast.Expression.Literal> constants = new IdentityHashMap<>();
+    private final Interpreter interpreter = new Interpreter(new Scope(null));
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        List<Ast.Global> globals = new ArrayList<>();
+        for (Ast.Global global : ast.getGlobals()) {
+            globals.add(visit(global));
+        }
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.add(visit(function));
+        }
+        return new Ast.Source(globals, functions);
+    }
+
+    @Override
+    public Ast.Global visit(Ast.Global ast) {
+        Optional<Ast.Expression> value = ast.getValue().map(this::visit);
+        Ast.Global global = new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), value);
+        global.setVariable(ast.getVariable());
+        global.setIndex(ast.getIndex());
+        if (!ast.getMutable() && value.isPresent() && value.get() instanceof Ast.Expression.Literal
+                && value.get().getType().equals(ast.getVariable().getType())) {
+            constants.put(ast.getVariable(), (Ast.Expression.Literal) value.get());
+        }
+        return global;
+    }
+
+    @Override
+    public Ast.Function visit(Ast.Function ast) {
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), block(ast.getStatements()));
+        function.setFunction(ast.getFunction());
+        function.setIndex(ast.getIndex());
+        function.setFrameSize(ast.getFrameSize());
+        return function;
+    }
+
+    @Override
+    public Ast.Statement.Expression visit(Ast.Statement.Expression ast) {
+        return new Ast.Statement.Expression(visit(ast.getExpression()));
+    }
+
+    @Override
+    public Ast.Statement.Declaration visit(Ast.Statement.Declaration ast) {
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), ast.getValue().map(this::visit));
+        declaration.setVariable(ast.getVariable());
+        return declaration;
+    }
+
+    @Override
+    public Ast.Statement.Assignment visit(Ast.Statement.Assignment ast) {
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        // The receiver is a variable, not a use of its value.
+        Ast.Expression.Access target = new Ast.Expression.Access(receiver.getOffset().map(this::visit), receiver.getName());
+        target.setVariable(receiver.getVariable());
+        return new Ast.Statement.Assignment(target, visit(ast.getValue()));
+    }
+
+    @Override
+    public Ast.Statement.If visit(Ast.Statement.If ast) {
+        return new Ast.Statement.If(visit(ast.getCondition()), block(ast.getThenStatements()), block(ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Switch visit(Ast.Statement.Switch ast) {
+        List<Ast.Statement.Case> cases = new ArrayList<>();
+        for (Ast.Statement.Case c : ast.getCases()) {
+            cases.add(visit(c));
+        }
+        Ast.Statement.Switch statement = new Ast.Statement.Switch(visit(ast.getCondition()), cases);
+        statement.setJumpTable(Analyzer.jumpTable(cases));
+        return statement;
+    }
+
+    @Override
+    public Ast.Statement.Case visit(Ast.Statement.Case ast) {
+        return new Ast.Statement.Case(ast.getValue().map(this::visit), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.While visit(Ast.Statement.While ast) {
+        return new Ast.Statement.While(visit(ast.getCondition()), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Return visit(Ast.Statement.Return ast) {
+        Ast.Statement.Return statement = new Ast.Statement.Return(visit(ast.getValue()));
+        statement.setTailCall(ast.isTailCall());
+        return statement;
+    }
+
+    @Override
+    public Ast.Expression.Literal visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Group ast) {
+        Ast.Expression expression = visit(ast.getExpression());
+        if (expression instanceof Ast.Expression.Literal) {
+            return expression;
+        }
+        Ast.Expression.Group group = new Ast.Expression.Group(expression);
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Binary ast) {
+        String operator = ast.getOperator();
+        if (operator.equals("==") || operator.equals("!=")) {
+            return ast;
+        }
+        Ast.Expression left = visit(ast.getLeft());
+        Ast.Expression right = visit(ast.getRight());
+        if (operator.equals("&&") || operator.equals("||")) {
+            // FALSE && x and TRUE || x do not evaluate x.
+            if (Boolean.valueOf(operator.equals("||")).equals(literal(left))) {
+                return left;
+            }
+        }
+        if (left instanceof Ast.Expression.Literal && right instanceof Ast.Expression.Literal) {
+            Ast.Expression probe = new Ast.Expression.Binary(operator, left, right);
+            if (operator.equals("<") || operator.equals(">")) {
+                // The comparison evaluates its left operand twice and yields
+                // NIL unless both results are the same object; the probe
+                // recomputes the operand like the original did.
+                probe = new Ast.Expression.Binary(operator, identity(ast.getLeft()), right);
+            }
+            Object value = evaluate(probe);
+            if (value != null && agrees(operator, (Ast.Expression.Literal) left, (Ast.Expression.Literal) right, value)) {
+                Ast.Expression.Literal literal = new Ast.Expression.Literal(value);
+                literal.setType(ast.getType());
+                return literal;
+            }
+        }
+        if (operator.equals("<") || operator.equals(">")) {
+            left = identity(ast.getLeft()) instanceof Ast.Expression.Literal ? left : keepRoot(ast.getLeft());
+        }
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(operator, left, right);
+        binary.setType(ast.getType());
+        return binary;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Access ast) {
+        if (!ast.getOffset().isPresent() && constants.containsKey(ast.getVariable())) {
+            return constants.get(ast.getVariable());
+        }
+        Ast.Expression.Access access = new Ast.Expression.Access(ast.getOffset().map(this::visit), ast.getName());
+        access.setVariable(ast.getVariable());
+        return access;
+    }
+
+    @Override
+    public Ast.Expression.Function visit(Ast.Expression.Function ast) {
+        List<Ast.Expression> arguments = new ArrayList<>();
+        for (Ast.Expression argument : ast.getArguments()) {
+            arguments.add(visit(argument));
+        }
+        Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    @Override
+    public Ast.Expression.PlcList visit(Ast.Expression.PlcList ast) {
+        List<Ast.Expression> values = new ArrayList<>();
+        for (Ast.Expression value : ast.getValues()) {
+            values.add(visit(value));
+        }
+        Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+        list.setType(ast.getType());
+        return list;
+    }
+
+    private Ast.Expression visit(Ast.Expression ast) {
+        return (Ast.Expression) visit((Ast) ast);
+    }
+
+    /**
+     * Folds a block. IF and WHILE statements with a constant condition are
+     * replaced by the statements that run; a branch declaring variables keeps
+     * its own block (an IF TRUE) so their scope does not change. Statements
+     * after a RETURN never run and are dropped.
+     */
+    private List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> block = new ArrayList<>();
+        for (Ast.Statement statement : statements) {
+            int size = block.size();
+            if (statement instanceof Ast.Statement.If) {
+                Ast.Statement.If folded = visit((Ast.Statement.If) statement);
+                Object condition = literal(folded.getCondition());
+                if (condition instanceof Boolean) {
+                    List<Ast.Statement> branch = (Boolean) condition ? folded.getThenStatements() : folded.getElseStatements();
+                    if (branch.stream().noneMatch(s -> s instanceof Ast.Statement.Declaration)) {
+                        block.addAll(branch);
+                    }
+                    else {
+                        Ast.Expression.Literal always = new Ast.Expression.Literal(true);
+                        always.setType(Environment.Type.BOOLEAN);
+                        block.add(new Ast.Statement.If(always, branch, new ArrayList<>()));
+                    }
+                }
+                else {
+                    block.add(folded);
+                }
+            }
+            else if (statement instanceof Ast.Statement.While) {
+                Ast.Statement.While folded = visit((Ast.Statement.While) statement);
+                if (!Boolean.FALSE.equals(literal(folded.getCondition()))) {
+                    block.add(folded);
+                }
+            }
+            else {
+                block.add((Ast.Statement) visit(statement));
+            }
+            block.subList(size, block.size()).forEach(s -> s.inherit(statement));
+            if (!block.isEmpty() && block.get(block.size() - 1) instanceof Ast.Statement.Return) {
+                break;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Returns an expression whose value has the same identity behavior as the
+     * given one when evaluated twice: literals and variables always yield the
+     * same object, a group yields the object of its expression, and a binary
+     * expression computes a new one from its (folded) operands.
+     */
+    private Ast.Expression identity(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Group) {
+            return identity(((Ast.Expression.Group) ast).getExpression());
+        }
+        else if (ast instanceof Ast.Expression.Binary && !isEquality(ast)) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            Ast.Expression left = visit(binary.getLeft());
+            Ast.Expression right = visit(binary.getRight());
+            if (left instanceof Ast.Expression.Literal && right instanceof Ast.Expression.Literal) {
+                return new Ast.Expression.Binary(binary.getOperator(), left, right);
+            }
+            return binary;
+        }
+        Ast.Expression folded = visit(ast);
+        return folded instanceof Ast.Expression.Literal ? folded : ast;
+    }
+
+    /**
+     * Folds the operands of an expression but not the expression itself, so a
+     * binary expression still computes a new object for a comparison.
+     */
+    private Ast.Expression keepRoot(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Group) {
+            Ast.Expression.Group group = new Ast.Expression.Group(keepRoot(((Ast.Expression.Group) ast).getExpression()));
+            group.setType(ast.getType());
+            return group;
+        }
+        else if (ast instanceof Ast.Expression.Binary && !isEquality(ast)) {
+            Ast.Expression.Binary binary = new Ast.Expression.Binary(((Ast.Expression.Binary) ast).getOperator(),
+                    visit(((Ast.Expression.Binary) ast).getLeft()), visit(((Ast.Expression.Binary) ast).getRight()));
+            binary.setType(ast.getType());
+            return binary;
+        }
+        return visit(ast);
+    }
+
+    /**
+     * Evaluates a constant expression in the interpreter, returning null if
+     * it fails or has no literal value.
+     */
+    private Object evaluate(Ast.Expression ast) {
+        Object value;
+        try {
+            value = interpreter.visit(ast).getValue();
+        } catch (RuntimeException e) {
+            return null;
+        }
+        boolean literal = value instanceof BigInteger || value instanceof BigDecimal || value instanceof String || value instanceof Boolean;
+        return literal ? value : null;
+    }
+
+    /**
+     * Returns whether the generated Java computes the interpreted value.
+     * Decimals are doubles in Java: division is not rounded, and comparisons
+     * are of the double values.
+     */
+    private static boolean agrees(String operator, Ast.Expression.Literal left, Ast.Expression.Literal right, Object value) {
+        if (!(left.getLiteral() instanceof BigDecimal)) {
+            return true;
+        }
+        double l = ((BigDecimal) left.getLiteral()).doubleValue();
+        double r = ((BigDecimal) right.getLiteral()).doubleValue();
+        switch (operator) {
+            case "/":
+                return l / r == ((BigDecimal) value).doubleValue();
+            case "<":
+                return (Boolean) value == l < r;
+            case ">":
+                return (Boolean) value == l > r;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isEquality(Ast.Expression ast) {
+        String operator = ((Ast.Expression.Binary) ast).getOperator();
+        return operator.equals("==") || operator.equals("!=");
+    }
+
+    private static Object literal(Ast.Expression ast) {
+        return ast instanceof Ast.Expression.Literal ? ((Ast.Expression.Literal) ast).getLiteral() : null;
+    }
+
+}
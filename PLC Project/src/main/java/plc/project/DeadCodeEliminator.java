@@ -0,0 +1,232 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the code of an analyzed source that never runs and returns the
+ * remaining source; the input is not modified.
+ *
+ * Functions are kept if they are reachable from {@code main} in the call
+ * graph, and globals if a kept function or global refers to them. A global
+ * whose value could have an effect (a call, or an operation that may fail)
+ * is always kept, as it is evaluated on startup. Within a block, statements
+ * after one that never completes - a RETURN, a WHILE TRUE, or an IF or
+ * SWITCH all of whose branches never complete - are dropped. These rules are
+ * no weaker than Java's, so the generated code never loses a RETURN javac
+ * would require.
+ */
+public final class DeadCodeEliminator implements Ast.Visitor<Ast> {
+
+    private final Map<Environment.Function, Ast.Function> functions = new IdentityHashMap<>();
+    private final Set<Ast.Function> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Deque<Ast.Function> pending = new ArrayDeque<>();
+    private final Set<Environment.Variable> referenced = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.put(function.getFunction(), function);
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            if (function.getName().equals("main") && function.getParameters().isEmpty()) {
+                call(function);
+            }
+        }
+        Map<Ast.Function, Ast.Function> bodies = new IdentityHashMap<>();
+        while (!pending.isEmpty()) {
+            Ast.Function function = pending.pop();
+            bodies.put(function, visit(function));
+        }
+        // Globals only refer to earlier globals, so a backwards pass sees
+        // every reference to a global before deciding on it.
+        List<Ast.Global> globals = new ArrayList<>();
+        for (int i = ast.getGlobals().size() - 1; i >= 0; i--) {
+            Ast.Global global = ast.getGlobals().get(i);
+            if (referenced.contains(global.getVariable()) || !global.getValue().map(DeadCodeEliminator::isInert).orElse(true)) {
+                globals.add(0, visit(global));
+            }
+        }
+        List<Ast.Function> kept = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            if (bodies.containsKey(function)) {
+                kept.add(bodies.get(function));
+            }
+        }
+        return new Ast.Source(globals, kept);
+    }
+
+    @Override
+    public Ast.Global visit(Ast.Global ast) {
+        ast.getValue().ifPresent(this::visit);
+        return ast;
+    }
+
+    @Override
+    public Ast.Function visit(Ast.Function ast) {
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), block(ast.getStatements()));
+        function.setFunction(ast.getFunction());
+        function.setIndex(ast.getIndex());
+        function.setFrameSize(ast.getFrameSize());
+        return function;
+    }
+
+    @Override
+    public Ast.Statement.Expression visit(Ast.Statement.Expression ast) {
+        visit(ast.getExpression());
+        return ast;
+    }
+
+    @Override
+    public Ast.Statement.Declaration visit(Ast.Statement.Declaration ast) {
+        ast.getValue().ifPresent(this::visit);
+        return ast;
+    }
+
+    @Override
+    public Ast.Statement.Assignment visit(Ast.Statement.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return ast;
+    }
+
+    @Override
+    public Ast.Statement.If visit(Ast.Statement.If ast) {
+        visit(ast.getCondition());
+        return new Ast.Statement.If(ast.getCondition(), block(ast.getThenStatements()), block(ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Switch visit(Ast.Statement.Switch ast) {
+        visit(ast.getCondition());
+        List<Ast.Statement.Case> cases = new ArrayList<>();
+        for (Ast.Statement.Case c : ast.getCases()) {
+            cases.add(visit(c));
+        }
+        Ast.Statement.Switch statement = new Ast.Statement.Switch(ast.getCondition(), cases);
+        statement.setJumpTable(Analyzer.jumpTable(cases));
+        return statement;
+    }
+
+    @Override
+    public Ast.Statement.Case visit(Ast.Statement.Case ast) {
+        ast.getValue().ifPresent(this::visit);
+        return new Ast.Statement.Case(ast.getValue(), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.While visit(Ast.Statement.While ast) {
+        visit(ast.getCondition());
+        return new Ast.Statement.While(ast.getCondition(), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Return visit(Ast.Statement.Return ast) {
+        visit(ast.getValue());
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Literal visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Group visit(Ast.Expression.Group ast) {
+        visit(ast.getExpression());
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Binary visit(Ast.Expression.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Access visit(Ast.Expression.Access ast) {
+        referenced.add(ast.getVariable());
+        ast.getOffset().ifPresent(this::visit);
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Function visit(Ast.Expression.Function ast) {
+        if (functions.containsKey(ast.getFunction())) {
+            call(functions.get(ast.getFunction()));
+        }
+        ast.getArguments().forEach(this::visit);
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.PlcList visit(Ast.Expression.PlcList ast) {
+        ast.getValues().forEach(this::visit);
+        return ast;
+    }
+
+    private void call(Ast.Function function) {
+        if (reachable.add(function)) {
+            pending.push(function);
+        }
+    }
+
+    /**
+     * Returns the statements of a block up to the first one that never
+     * completes.
+     */
+    private List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> block = new ArrayList<>();
+        for (Ast.Statement statement : statements) {
+            Ast.Statement kept = (Ast.Statement) visit(statement);
+            kept.inherit(statement);
+            block.add(kept);
+            if (!completes(kept)) {
+                break;
+            }
+        }
+        return block;
+    }
+
+    private static boolean completes(List<Ast.Statement> block) {
+        return block.isEmpty() || completes(block.get(block.size() - 1));
+    }
+
+    private static boolean completes(Ast.Statement statement) {
+        if (statement instanceof Ast.Statement.Return) {
+            return false;
+        }
+        else if (statement instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            return completes(ast.getThenStatements()) || completes(ast.getElseStatements());
+        }
+        else if (statement instanceof Ast.Statement.Switch) {
+            return ((Ast.Statement.Switch) statement).getCases().stream().anyMatch(c -> completes(c.getStatements()));
+        }
+        else if (statement instanceof Ast.Statement.While) {
+            Ast.Expression condition = ((Ast.Statement.While) statement).getCondition();
+            // Loops have no break, so WHILE TRUE only exits by returning.
+            return !(condition instanceof Ast.Expression.Literal && Boolean.TRUE.equals(((Ast.Expression.Literal) condition).getLiteral()));
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether evaluating a global's value can neither fail nor have an
+     * effect. Constant values have already been folded to literals.
+     */
+    private static boolean isInert(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.PlcList) {
+            return ((Ast.Expression.PlcList) ast).getValues().stream().allMatch(DeadCodeEliminator::isInert);
+        }
+        return ast instanceof Ast.Expression.Literal || ast instanceof Ast.Expression.Access && !((Ast.Expression.Access) ast).getOffset().isPresent();
+    }
+
+}
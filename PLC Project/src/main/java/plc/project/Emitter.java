@@ -0,0 +1,191 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable character buffer that {@link Generator} emits code into. Line
+ * breaks with indentation are appended from precomputed strings, and the
+ * buffer is written out straight from its array, or encoded to UTF-8 in
+ * chunks for byte sinks. It can be cleared and reused; it is not
+ * thread-safe.
+ */
+public final class Emitter {
+
+    private static final String INDENT = "    ";
+    private static final int CHUNK = 8192;
+
+    // Line separator followed by the indentation of each level. Emitters on
+    // other threads read it without a lock, so grow() publishes each table
+    // through the volatile write only once it is filled.
+    private static volatile String[] newlines = {System.lineSeparator()};
+
+    private char[] buffer;
+    private int length = 0;
+
+    // The number of line breaks and where the current line starts.
+    private int lines = 0;
+    private int start = 0;
+    private ByteBuffer bytes = null;
+
+    public Emitter() {
+        this(CHUNK);
+    }
+
+    public Emitter(int capacity) {
+        buffer = new char[Math.max(capacity, 16)];
+    }
+
+    public Emitter append(String string) {
+        int size = string.length();
+        reserve(size);
+        string.getChars(0, size, buffer, length);
+        length += size;
+        return this;
+    }
+
+    public Emitter append(char c) {
+        reserve(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    public Emitter append(int value) {
+        return append(Integer.toString(value));
+    }
+
+    public Emitter append(Emitter emitter) {
+        reserve(emitter.length);
+        System.arraycopy(emitter.buffer, 0, buffer, length, emitter.length);
+        if (emitter.lines > 0) {
+            lines += emitter.lines;
+            start = length + emitter.start;
+        }
+        length += emitter.length;
+        return this;
+    }
+
+    /**
+     * Appends a line separator and the indentation of the given level.
+     */
+    public Emitter newline(int indent) {
+        String[] newlines = Emitter.newlines;
+        if (indent >= newlines.length) {
+            newlines = grow(indent);
+        }
+        lines++;
+        start = length + newlines[0].length();
+        return append(newlines[indent]);
+    }
+
+    private static synchronized String[] grow(int indent) {
+        String[] newlines = Arrays.copyOf(Emitter.newlines, Math.max(indent + 1, 2 * Emitter.newlines.length));
+        for (int i = Emitter.newlines.length; i < newlines.length; i++) {
+            newlines[i] = newlines[i - 1] + INDENT;
+        }
+        Emitter.newlines = newlines;
+        return newlines;
+    }
+
+    private void reserve(int size) {
+        if (length + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + size, 2 * buffer.length));
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of line breaks appended by {@link #newline(int)}.
+     */
+    public int lines() {
+        return lines;
+    }
+
+    /**
+     * Returns the number of characters appended since the last line break.
+     */
+    public int column() {
+        return length - start;
+    }
+
+    /**
+     * Empties the buffer, keeping its capacity.
+     */
+    public void clear() {
+        length = 0;
+        lines = 0;
+        start = 0;
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(buffer, 0, length);
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        encode(bytes -> stream.write(bytes.array(), 0, bytes.limit()));
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        encode(bytes -> {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        });
+    }
+
+    /**
+     * Encodes the buffer to UTF-8 through a reusable chunk, passing each
+     * filled chunk to the sink.
+     */
+    private void encode(Sink sink) throws IOException {
+        if (bytes == null) {
+            bytes = ByteBuffer.allocate(CHUNK);
+        }
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        CharBuffer chars = CharBuffer.wrap(buffer, 0, length);
+        while (true) {
+            bytes.clear();
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            bytes.flip();
+            sink.write(bytes);
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        while (true) {
+            bytes.clear();
+            CoderResult result = encoder.flush(bytes);
+            bytes.flip();
+            sink.write(bytes);
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private interface Sink {
+
+        void write(ByteBuffer bytes) throws IOException;
+
+    }
+
+}
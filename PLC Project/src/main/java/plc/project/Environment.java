@@ -1,10 +1,13 @@
 package plc.project;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public final class Environment {
 
@@ -131,6 +134,7 @@ public final class Environment {
         private final boolean mutable;
         private final Type type;
         private PlcObject value;
+        private int slot = -1;
 
         public Variable(String name, boolean mutable, PlcObject value) {
             this(name, name, Type.ANY, mutable, value);
@@ -168,6 +172,18 @@ public final class Environment {
             this.value = value;
         }
 
+        /**
+         * Returns the index of this variable in its function's local frame, or
+         * -1 if it is not a function local (globals and unanalyzed code).
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Variable &&
@@ -177,6 +193,11 @@ public final class Environment {
                     type.equals(((Variable) obj).type);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, jvmName, mutable, type);
+        }
+
         @Override
         public String toString() {
             return "Variable{" +
@@ -190,27 +211,98 @@ public final class Environment {
 
     }
 
+    /**
+     * The implementation behind a {@link Function}. Calls with up to four
+     * arguments go through the arity-specialized entry points, so invokers
+     * that override them receive their arguments without any collection
+     * being allocated; all other calls use the array-based variadic form.
+     */
+    public static abstract class Invoker {
+
+        private static final PlcObject[] NO_ARGUMENTS = new PlcObject[0];
+
+        public abstract PlcObject invoke(PlcObject... arguments);
+
+        public PlcObject invoke(List<PlcObject> arguments) {
+            return invoke(arguments.toArray(NO_ARGUMENTS));
+        }
+
+        public PlcObject invoke0() {
+            return invoke(NO_ARGUMENTS);
+        }
+
+        public PlcObject invoke1(PlcObject argument0) {
+            return invoke(new PlcObject[] {argument0});
+        }
+
+        public PlcObject invoke2(PlcObject argument0, PlcObject argument1) {
+            return invoke(new PlcObject[] {argument0, argument1});
+        }
+
+        public PlcObject invoke3(PlcObject argument0, PlcObject argument1, PlcObject argument2) {
+            return invoke(new PlcObject[] {argument0, argument1, argument2});
+        }
+
+        public PlcObject invoke4(PlcObject argument0, PlcObject argument1, PlcObject argument2, PlcObject argument3) {
+            return invoke(new PlcObject[] {argument0, argument1, argument2, argument3});
+        }
+
+        /**
+         * Adapts a function over an argument list, such as the lambdas used for
+         * builtins, to an invoker.
+         */
+        public static Invoker of(java.util.function.Function<List<PlcObject>, PlcObject> function) {
+            return new Invoker() {
+
+                @Override
+                public PlcObject invoke(PlcObject... arguments) {
+                    return function.apply(Arrays.asList(arguments));
+                }
+
+                @Override
+                public PlcObject invoke(List<PlcObject> arguments) {
+                    return function.apply(arguments);
+                }
+
+                @Override
+                public String toString() {
+                    return function.toString();
+                }
+
+            };
+        }
+
+    }
+
     public static final class Function {
 
         private final String name;
         private final String jvmName;
         private final List<Type> parameterTypes;
         private final Type returnType;
-        private final java.util.function.Function<List<PlcObject>, PlcObject> function;
+        private final Invoker invoker;
 
         public Function(String name, int arity, java.util.function.Function<List<PlcObject>, PlcObject> function) {
-            this(name, name, new ArrayList<>(), Type.ANY, function);
+            this(name, arity, Invoker.of(function));
+        }
+
+        public Function(String name, int arity, Invoker invoker) {
+            this(name, name, new ArrayList<>(), Type.ANY, invoker);
             for (int i = 0; i < arity; i++) {
                 this.parameterTypes.add(Type.ANY);
             }
         }
 
         public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, java.util.function.Function<List<PlcObject>, PlcObject> function) {
+            this(name, jvmName, parameterTypes, returnType, Invoker.of(function));
+        }
+
+        public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, Invoker invoker) {
             this.name = name;
             this.jvmName = jvmName;
             this.parameterTypes = parameterTypes;
             this.returnType = returnType;
-            this.function = function;
+            this.invoker = invoker;
         }
 
         public String getName() {
@@ -234,8 +326,36 @@ public final class Environment {
             return parameterTypes.size();
         }
 
+        public Invoker getInvoker() {
+            return invoker;
+        }
+
         public PlcObject invoke(List<PlcObject> arguments) {
-            return function.apply(arguments);
+            return invoker.invoke(arguments);
+        }
+
+        public PlcObject invoke(PlcObject... arguments) {
+            return invoker.invoke(arguments);
+        }
+
+        public PlcObject invoke0() {
+            return invoker.invoke0();
+        }
+
+        public PlcObject invoke1(PlcObject argument0) {
+            return invoker.invoke1(argument0);
+        }
+
+        public PlcObject invoke2(PlcObject argument0, PlcObject argument1) {
+            return invoker.invoke2(argument0, argument1);
+        }
+
+        public PlcObject invoke3(PlcObject argument0, PlcObject argument1, PlcObject argument2) {
+            return invoker.invoke3(argument0, argument1, argument2);
+        }
+
+        public PlcObject invoke4(PlcObject argument0, PlcObject argument1, PlcObject argument2, PlcObject argument3) {
+            return invoker.invoke4(argument0, argument1, argument2, argument3);
         }
 
         @Override
@@ -247,6 +367,11 @@ public final class Environment {
                     returnType.equals(((Function) obj).returnType);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, jvmName, parameterTypes, returnType);
+        }
+
         @Override
         public String toString() {
             return "Function{" +
@@ -255,7 +380,7 @@ public final class Environment {
                     ", arity=" + parameterTypes.size() +
                     ", parameterTypes=" + parameterTypes +
                     ", returnType=" + returnType +
-                    ", function=" + function +
+                    ", function=" + invoker +
                     '}';
         }
 
@@ -270,14 +395,15 @@ public final class Environment {
         registerType(Type.DECIMAL);
         registerType(Type.CHARACTER);
         registerType(Type.STRING);
-        Type.ANY.scope.defineFunction("stringify", "toString", Arrays.asList(), Type.STRING, args -> Environment.NIL);
-        Type.COMPARABLE.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.COMPARABLE), Type.COMPARABLE, args -> Environment.NIL);
-        Type.INTEGER.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.INTEGER), Type.INTEGER, args -> Environment.NIL);
-        Type.DECIMAL.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.DECIMAL), Type.DECIMAL, args -> Environment.NIL);
-        Type.CHARACTER.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.CHARACTER), Type.CHARACTER, args -> Environment.NIL);
+        // Members take their receiver as the first argument.
+        Natives.define(Type.ANY.scope, "stringify", "toString", Arrays.asList(Type.ANY), Type.STRING, Natives.findVirtual(Object.class, "toString", String.class));
+        Natives.define(Type.COMPARABLE.scope, "compare", "compareTo", Arrays.asList(Type.ANY, Type.COMPARABLE), Type.COMPARABLE, Natives.findVirtual(Comparable.class, "compareTo", int.class, Object.class));
+        Natives.define(Type.INTEGER.scope, "compare", "compareTo", Arrays.asList(Type.ANY, Type.INTEGER), Type.INTEGER, Natives.findVirtual(BigInteger.class, "compareTo", int.class, BigInteger.class));
+        Natives.define(Type.DECIMAL.scope, "compare", "compareTo", Arrays.asList(Type.ANY, Type.DECIMAL), Type.DECIMAL, Natives.findVirtual(BigDecimal.class, "compareTo", int.class, BigDecimal.class));
+        Natives.define(Type.CHARACTER.scope, "compare", "compareTo", Arrays.asList(Type.ANY, Type.CHARACTER), Type.CHARACTER, Natives.findVirtual(Character.class, "compareTo", int.class, Character.class));
         Type.STRING.scope.defineVariable("length", "length()", Type.INTEGER, false, Environment.NIL);
-        Type.STRING.scope.defineFunction("slice", "substring", Arrays.asList(Type.ANY, Type.INTEGER, Type.INTEGER), Type.STRING, args -> Environment.NIL);
-        Type.STRING.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.STRING), Type.STRING, args -> Environment.NIL);
+        Natives.define(Type.STRING.scope, "slice", "substring", Arrays.asList(Type.ANY, Type.INTEGER, Type.INTEGER), Type.STRING, Natives.findVirtual(String.class, "substring", String.class, int.class, int.class));
+        Natives.define(Type.STRING.scope, "compare", "compareTo", Arrays.asList(Type.ANY, Type.STRING), Type.STRING, Natives.findVirtual(String.class, "compareTo", int.class, String.class));
     }
 
 }
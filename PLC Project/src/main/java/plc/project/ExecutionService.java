@@ -0,0 +1,266 @@
+package plc.project;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs executions of {@link Program}s concurrently, each on its own virtual
+ * thread when the JDK provides them (21+). On older JDKs executions run on a
+ * pool of {@code maxConcurrency} platform threads instead.
+ *
+ * At most {@code maxConcurrency} executions run at the same time; further
+ * submissions wait for a permit. An execution that runs longer than the
+ * timeout is interrupted, which the interpreter checks at loop back-edges and
+ * function entries, and its future completes with a {@link TimeoutException}.
+ * Cancelling a future interrupts its execution the same way. An optional step
+ * budget (see {@link Interpreter#setBudget}) bounds the work of each execution
+ * independently of the load on the machine.
+ *
+ * The print builtin of an execution appends to a buffer returned with its
+ * {@link Result} rather than writing to System.out, so scripts never block on
+ * a shared stream (whose monitor would pin the carrier of a virtual thread).
+ */
+public final class ExecutionService implements AutoCloseable {
+
+    private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+
+    private final Semaphore permits;
+    private final long timeoutNanos;
+    private final long budget;
+    private final Executor executor;
+    private final ExecutorService pool;
+    private final ScheduledThreadPoolExecutor timer;
+    private volatile boolean closed = false;
+
+    public ExecutionService(int maxConcurrency, Duration timeout) {
+        this(maxConcurrency, timeout, Long.MAX_VALUE);
+    }
+
+    public ExecutionService(int maxConcurrency, Duration timeout, long budget) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The concurrency must be positive.");
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        this.timeoutNanos = timeout.toNanos();
+        this.budget = budget;
+        if (VIRTUAL_THREADS != null) {
+            this.pool = null;
+            this.executor = command -> VIRTUAL_THREADS.newThread(command).start();
+        } else {
+            this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), daemonThreads("plc-execution"));
+            this.executor = pool;
+        }
+        this.timer = new ScheduledThreadPoolExecutor(1, daemonThreads("plc-execution-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Returns whether executions run on virtual threads.
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL_THREADS != null;
+    }
+
+    /**
+     * Submits a new execution of the program and returns a future for its
+     * result.
+     */
+    public CompletableFuture<Result> submit(Program program) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(rejected());
+            return future;
+        }
+        Invocation invocation = new Invocation(program, future);
+        future.whenComplete((result, error) -> invocation.interrupt());
+        try {
+            executor.execute(invocation);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stops accepting submissions. Running executions are not interrupted and
+     * keep their timeouts; executions that have not started yet fail with a
+     * {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdown();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static RejectedExecutionException rejected() {
+        return new RejectedExecutionException("The execution service is closed.");
+    }
+
+    /**
+     * Returns a factory for virtual threads, or null if the JDK has none. The
+     * API is looked up reflectively so the project still builds on JDK 17.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The value returned by main, everything printed by the execution and the
+     * number of steps it took.
+     */
+    public static final class Result {
+
+        private final Environment.PlcObject value;
+        private final String output;
+        private final long steps;
+
+        private Result(Environment.PlcObject value, String output, long steps) {
+            this.value = value;
+            this.output = output;
+            this.steps = steps;
+        }
+
+        public Environment.PlcObject getValue() {
+            return value;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+
+    }
+
+    /**
+     * A submitted execution. The lock guards {@link #runner} so an interrupt
+     * is only ever delivered while the execution is running; pooled threads
+     * would otherwise carry it into the next execution.
+     */
+    private final class Invocation implements Runnable {
+
+        private final Program program;
+        private final CompletableFuture<Result> future;
+        private final ReentrantLock lock = new ReentrantLock();
+        private Thread runner;
+
+        private Invocation(Program program, CompletableFuture<Result> future) {
+            this.program = program;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            if (!start()) {
+                return;
+            }
+            if (closed) {
+                future.completeExceptionally(rejected());
+                finish();
+                return;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                finish();
+                return;
+            }
+            try {
+                // The service may have been closed while waiting for a permit.
+                if (closed) {
+                    future.completeExceptionally(rejected());
+                } else if (!future.isDone()) {
+                    future.complete(execute());
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                finish();
+                permits.release();
+            }
+        }
+
+        private Result execute() {
+            ScheduledFuture<?> timeout = timer.schedule(() -> future.completeExceptionally(new TimeoutException("The execution exceeded its timeout.")), timeoutNanos, TimeUnit.NANOSECONDS);
+            try {
+                StringBuilder output = new StringBuilder();
+                Environment.Invoker print = Environment.Invoker.of(args -> {
+                    output.append(args.get(0).getValue()).append(System.lineSeparator());
+                    return Environment.NIL;
+                });
+                Program.Execution execution = program.newExecution(print);
+                execution.setBudget(budget);
+                Environment.PlcObject value = execution.run();
+                return new Result(value, output.toString(), execution.getSteps());
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        private boolean start() {
+            lock.lock();
+            try {
+                if (future.isDone()) {
+                    return false;
+                }
+                runner = Thread.currentThread();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void finish() {
+            lock.lock();
+            try {
+                runner = null;
+                Thread.interrupted();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void interrupt() {
+            lock.lock();
+            try {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+}
@@ -1,39 +1,359 @@
 package plc.project;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public final class Generator implements Ast.Visitor<Void> {
 
+    /**
+     * Size in AST nodes above which a function is split into helper methods,
+     * keeping each well below HotSpot's 8000-byte HugeMethodLimit (beyond
+     * which methods are never JIT-compiled) and javac's 64KB limit.
+     */
+    private static final int METHOD_LIMIT = 500;
+
+    // Cases per helper mapping a split switch's value to its case index.
+    private static final int INDEX_LIMIT = 256;
+
+    // Helper calls per method, beyond which the calls are nested.
+    private static final int CALL_LIMIT = 64;
+
+    // Helper for integer ^, emitted into Main when used.
+    private static final String[] POWER = {
+            "private static int $power(int base, int exponent) {",
+            "    if (exponent < 0) {",
+            "        return (int) Math.pow(base, exponent);",
+            "    }",
+            "    int result = 1;",
+            "    while (exponent > 0) {",
+            "        if ((exponent & 1) != 0) {",
+            "            result *= base;",
+            "        }",
+            "        base *= base;",
+            "        exponent >>= 1;",
+            "    }",
+            "    return result;",
+            "}"
+    };
+
+    // The class holding the globals when functions have classes of their own.
+    static final String GLOBALS = "Main$Globals";
+
+    private final Emitter emitter;
+
+    // Where the positions of the emitted globals, functions and statements
+    // are recorded, if anywhere.
+    private final SourceMap map;
+
+    // Where the emitter is flushed after each top-level visit, if anywhere.
     private final PrintWriter writer;
+    private int depth = 0;
+
     private int indent = 0;
+    private boolean power = false;
+    private int switches = 0;
+
+    // StringBuilders of the String locals that enclosing loops only append to.
+    private final Map<Environment.Variable, String> builders = new IdentityHashMap<>();
+
+    // The function being split, if any, and whether a helper is being emitted.
+    private Split split = null;
+    private boolean helper = false;
+
+    // The code of each global and function when generated in parallel.
+    private List<Emitter> members = null;
+
+    // The package of the generated class, if not the default package.
+    private String packageName = null;
+
+    // The functions and globals of the source when each function is
+    // generated into a class of its own (see IncrementalCompiler), or null.
+    // Functions are then static and take the globals as a parameter.
+    private Set<Environment.Function> functions = null;
+    private Set<Environment.Variable> globals = null;
+
+    // The functions of the source called by the generated code, in that case.
+    private final Set<Environment.Function> called = new LinkedHashSet<>();
 
     public Generator(PrintWriter writer) {
+        this.emitter = new Emitter();
+        this.map = null;
         this.writer = writer;
     }
 
-    private void print(Object... objects) {
-        for (Object object : objects) {
-            if (object instanceof Ast) {
-                visit((Ast) object);
-            } else {
-                writer.write(object.toString());
+    /**
+     * Creates a generator that appends to the given emitter, for the caller
+     * to write out.
+     */
+    public Generator(Emitter emitter) {
+        this(emitter, null);
+    }
+
+    /**
+     * Creates a generator that appends to the given emitter and records the
+     * positions in it of the code generated from each node with an index.
+     */
+    public Generator(Emitter emitter, SourceMap map) {
+        this.emitter = emitter;
+        this.map = map;
+        this.writer = null;
+    }
+
+    /**
+     * Sets the package the {@code Main} class is generated in, e.g. for tools
+     * such as JMH that reject classes in the default package.
+     */
+    public void setPackage(String packageName) {
+        this.packageName = packageName;
+    }
+
+    public static void generate(Ast.Source ast, PrintWriter writer, ForkJoinPool pool) {
+        Generator generator = new Generator(writer);
+        generate(ast, generator.emitter, pool);
+        generator.flush();
+    }
+
+    /**
+     * Generates a source like {@link #visit(Ast.Source)}, but with each global
+     * and function generated into its own emitter by a task on the pool. The
+     * emitters are appended in source order, so the output is identical.
+     */
+    public static void generate(Ast.Source ast, Emitter emitter, ForkJoinPool pool) {
+        List<Ast> members = new ArrayList<>(ast.getGlobals());
+        members.addAll(ast.getFunctions());
+        List<Callable<Generator>> tasks = new ArrayList<>();
+        for (Ast member : members) {
+            tasks.add(() -> generate(member));
+        }
+        List<Generator> generators = new ArrayList<>();
+        for (Future<Generator> result : pool.invokeAll(tasks)) {
+            try {
+                generators.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("The generation was interrupted.");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
             }
         }
+        generate(ast, emitter, generators);
+    }
+
+    /**
+     * Generates the given global or function on its own, indented as a member
+     * of {@code Main}, into the returned generator's emitter.
+     */
+    static Generator generate(Ast member) {
+        Generator generator = new Generator(new Emitter());
+        generator.indent = 1;
+        generator.member(member);
+        return generator;
+    }
+
+    /**
+     * Generates a source using the code of each global and function, in
+     * source order, from the generators returned by {@link #generate(Ast)}.
+     */
+    static void generate(Ast.Source ast, Emitter emitter, List<Generator> members) {
+        Generator generator = new Generator(emitter);
+        generator.members = new ArrayList<>();
+        for (Generator member : members) {
+            generator.members.add(member.emitter);
+            generator.power |= member.power;
+        }
+        generator.visit(ast);
+    }
+
+    /**
+     * Generates a function into a class of its own, like
+     * {@link #generate(Ast)} but as a static method taking the globals.
+     */
+    static Generator generate(Ast.Function function, Set<Environment.Function> functions, Set<Environment.Variable> globals) {
+        Generator generator = new Generator(new Emitter());
+        generator.functions = functions;
+        generator.globals = globals;
+        generator.indent = 1;
+        generator.member(function);
+        return generator;
+    }
+
+    /**
+     * Returns the functions of the source called by a function generated into
+     * a class of its own.
+     */
+    Set<Environment.Function> getCalled() {
+        return called;
+    }
+
+    /**
+     * Returns the name of the class of a function generated into a class of
+     * its own.
+     */
+    static String className(Environment.Function function) {
+        return "Main$" + function.getJvmName() + "$" + function.getArity();
+    }
+
+    /**
+     * Generates the class of a function from {@link #generate(Ast.Function,
+     * Set, Set)}, with the helper for integer ^ if it uses it.
+     */
+    static void generateClass(Ast.Function ast, Generator member, Emitter emitter) {
+        emitter.append("final class ").append(className(ast.getFunction())).append(" {").newline(0);
+        emitter.newline(1).append(member.emitter).newline(0);
+        if (member.power) {
+            for (int i = 0; i < POWER.length; i++) {
+                emitter.newline(1).append(POWER[i]);
+            }
+            emitter.newline(0);
+        }
+        emitter.newline(0).append("}");
+    }
+
+    /**
+     * Generates a placeholder for the class of a function, against which the
+     * classes calling it are compiled without compiling it.
+     */
+    static void generatePlaceholder(Ast.Function ast, Emitter emitter) {
+        Generator generator = new Generator(emitter);
+        generator.functions = Collections.emptySet();
+        generator.emit("final class ").emit(className(ast.getFunction())).emit(" {");
+        generator.newline(0);
+        generator.newline(1);
+        generator.signature(ast);
+        generator.emit(" {");
+        generator.newline(2);
+        generator.emit("throw new AbstractMethodError();");
+        generator.newline(1);
+        generator.emit("}");
+        generator.newline(0);
+        generator.newline(0);
+        generator.emit("}");
+    }
+
+    /**
+     * Generates the class holding the globals of a source whose functions
+     * have classes of their own. Immutable globals are not final, as javac
+     * would inline their values into the classes using them.
+     */
+    static void generateGlobals(Ast.Source ast, Emitter emitter) {
+        Generator generator = new Generator(emitter);
+        generator.functions = Collections.emptySet();
+        generator.globals = Collections.emptySet();
+        generator.emit("class ").emit(GLOBALS).emit(" {");
+        generator.newline(0);
+        if (!ast.getGlobals().isEmpty()) {
+            for (Ast.Global global : ast.getGlobals()) {
+                generator.newline(1);
+                generator.emit(global);
+            }
+            generator.newline(0);
+        }
+        generator.newline(0);
+        generator.emit("}");
+    }
+
+    /**
+     * Generates the {@code Main} class of a source whose functions have
+     * classes of their own, which holds the globals and calls main.
+     */
+    static void generateMain(Ast.Source ast, Emitter emitter) {
+        emitter.append("public final class Main extends ").append(GLOBALS).append(" {").newline(0);
+        for (Ast.Function function : ast.getFunctions()) {
+            if (function.getName().equals("main") && function.getParameters().isEmpty()) {
+                emitter.newline(1).append(function.getFunction().getReturnType().getJvmName()).append(" main() {");
+                emitter.newline(2).append("return ").append(className(function.getFunction())).append(".main(this);");
+                emitter.newline(1).append("}").newline(0);
+            }
+        }
+        emitter.newline(1).append("public static void main(String[] args) {");
+        emitter.newline(2).append("System.exit(new Main().main());");
+        emitter.newline(1).append("}").newline(0);
+        emitter.newline(0).append("}");
+    }
+
+    private Generator emit(String string) {
+        emitter.append(string);
+        return this;
+    }
+
+    private Generator emit(char c) {
+        emitter.append(c);
+        return this;
+    }
+
+    private Generator emit(int value) {
+        emitter.append(value);
+        return this;
+    }
+
+    private Generator emit(Ast ast) {
+        visit(ast);
+        return this;
     }
 
     private void newline(int indent) {
-        writer.println();
-        for (int i = 0; i < indent; i++) {
-            writer.write("    ");
+        emitter.newline(indent);
+    }
+
+    /**
+     * Writes the emitted code to the writer, if there is one.
+     */
+    private void flush() {
+        if (writer != null) {
+            try {
+                emitter.writeTo(writer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            writer.flush();
+            emitter.clear();
+        }
+    }
+
+    @Override
+    public Void visit(Ast ast) {
+        if (map != null && ast.getIndex() >= 0) {
+            map.add(emitter.lines() + 1, emitter.column(), ast.getIndex());
         }
+        depth++;
+        try {
+            Ast.Visitor.super.visit(ast);
+        } finally {
+            depth--;
+        }
+        if (depth == 0) {
+            flush();
+        }
+        return null;
     }
 
     @Override
     public Void visit(Ast.Source ast) {
-        print("public class Main {");
+        if (packageName != null) {
+            emit("package ").emit(packageName).emit(";");
+            newline(0);
+            newline(0);
+        }
+        emit("public class Main {");
         newline(indent);
 
         if (!ast.getGlobals().isEmpty()) {
@@ -42,18 +362,18 @@ public final class Generator implements Ast.Visitor<Void> {
                 if (i != 0) {
                     newline(indent);
                 }
-                print(ast.getGlobals().get(i));
+                member(ast.getGlobals().get(i), i);
             }
             newline(--indent);
         }
 
         newline(++indent);
 
-        print("public static void main(String[] args) {");
+        emit("public static void main(String[] args) {");
         newline(++indent);
-        print("System.exit(new Main().main());");
+        emit("System.exit(new Main().main());");
         newline(--indent);
-        print("}");
+        emit("}");
         newline(--indent);
 
         if (!ast.getFunctions().isEmpty()) {
@@ -63,100 +383,161 @@ public final class Generator implements Ast.Visitor<Void> {
                     newline(--indent);
                     newline(++indent);
                 }
-                print(ast.getFunctions().get(i));
+                member(ast.getFunctions().get(i), ast.getGlobals().size() + i);
+            }
+            newline(--indent);
+        }
+
+        if (power) {
+            newline(++indent);
+            for (int i = 0; i < POWER.length; i++) {
+                if (i != 0) {
+                    newline(indent);
+                }
+                emit(POWER[i]);
             }
             newline(--indent);
         }
 
         newline(indent);
 
-        print("}");
+        emit("}");
+        if (depth == 0) {
+            flush();
+        }
 
         return null;
     }
 
+    /**
+     * Emits the global or function with the given index in the source, or
+     * its code if it was generated in parallel.
+     */
+    private void member(Ast ast, int index) {
+        if (members != null) {
+            emitter.append(members.get(index));
+        }
+        else {
+            member(ast);
+        }
+    }
+
+    private void member(Ast ast) {
+        emit(ast);
+        if (split != null) {
+            helpers((Ast.Function) ast);
+            split = null;
+        }
+    }
+
     @Override
     public Void visit(Ast.Global ast) {
-        if (!ast.getMutable()) {
-            print("final ");
+        if (!ast.getMutable() && globals == null) {
+            emit("final ");
         }
 
         if (ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList) {
-            print(ast.getVariable().getType().getJvmName(), "[] ", ast.getVariable().getJvmName());
+            emit(ast.getVariable().getType().getJvmName()).emit("[] ").emit(ast.getVariable().getJvmName());
         }
         else {
-            print(ast.getVariable().getType().getJvmName(), " ", ast.getVariable().getJvmName());
+            emit(ast.getVariable().getType().getJvmName()).emit(" ").emit(ast.getVariable().getJvmName());
         }
 
         if (ast.getValue().isPresent()) {
-            print(" = ", ast.getValue().get());
+            emit(" = ").emit(ast.getValue().get());
         }
 
-        print(";");
+        emit(";");
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Function ast) {
-        print(ast.getFunction().getReturnType().getJvmName(), " ", ast.getFunction().getJvmName(), "(");
-        for (int i = 0; i < ast.getFunction().getArity(); i++) {
-            if (i != 0) {
-                print(", ");
-            }
-            print(ast.getFunction().getParameterTypes().get(i).getJvmName(), " " ,ast.getParameters().get(i));
+        // Names of temporaries are numbered per function, independently of the others.
+        switches = 0;
+        if (size(ast.getStatements()) > METHOD_LIMIT) {
+            split(ast);
+            return null;
         }
-        print(") {");
+        signature(ast);
+        emit(" {");
 
         if (!ast.getStatements().isEmpty()) {
             block(ast.getStatements());
         }
 
-        print("}");
+        emit("}");
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Statement.Expression ast) {
-        print(ast.getExpression(), ";");
+        emit(ast.getExpression()).emit(";");
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Statement.Declaration ast) {
-        print(ast.getVariable().getType().getJvmName(), " ", ast.getVariable().getJvmName());
+        if (split != null) {
+            emit(split.field(ast.getVariable())).emit(" = ");
+            if (ast.getValue().isPresent()) {
+                emit(ast.getValue().get()).emit(";");
+            }
+            else {
+                emit(initial(ast.getVariable().getType())).emit(";");
+            }
+            return null;
+        }
+        emit(ast.getVariable().getType().getJvmName()).emit(" ").emit(ast.getVariable().getJvmName());
 
         if (ast.getValue().isPresent()) {
-            print(" = ", ast.getValue().get());
+            emit(" = ").emit(ast.getValue().get());
         }
 
-        print(";");
+        emit(";");
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Statement.Assignment ast) {
-        print(ast.getReceiver(), " = ", ast.getValue(), ";");
+        Environment.Variable variable = appended(ast);
+        if (variable != null && builders.containsKey(variable)) {
+            List<Ast.Expression> operands = new ArrayList<>();
+            Ast.Expression value = ast.getValue();
+            while (value instanceof Ast.Expression.Binary) {
+                operands.add(0, ((Ast.Expression.Binary) value).getRight());
+                value = ((Ast.Expression.Binary) value).getLeft();
+            }
+            emit(builders.get(variable));
+            for (Ast.Expression operand : operands) {
+                // A null literal would match several overloads.
+                emit(".append(").emit(operand.getType().equals(Environment.Type.NIL) ? "(Object) " : "").emit(operand).emit(")");
+            }
+            emit(";");
+            return null;
+        }
+        emit(ast.getReceiver()).emit(" = ").emit(ast.getValue()).emit(";");
         return null;
     }
 
     @Override
     public Void visit(Ast.Statement.If ast) {
-        print("if (", ast.getCondition(), ") {");
+        emit("if (").emit(ast.getCondition()).emit(") {");
 
         if (!ast.getThenStatements().isEmpty()) {
             block(ast.getThenStatements());
         }
 
-        print("}");
+        emit("}");
 
         if (!ast.getElseStatements().isEmpty()) {
-            print(" else {");
+            emit(" else {");
             block(ast.getElseStatements());
-            print("}");
+            emit("}");
         }
 
         return null;
@@ -164,18 +545,26 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Statement.Switch ast) {
-        print("switch (", ast.getCondition(), ") {");
+        if (!isSwitchable(ast)) {
+            chain(ast);
+            return null;
+        }
+        if (split != null && size(ast) > METHOD_LIMIT) {
+            splitSwitch(ast);
+            return null;
+        }
+        emit("switch (").emit(ast.getCondition()).emit(") {");
 
         if (!ast.getCases().isEmpty()) {
             newline(++indent);
             for (int i = 0; i < ast.getCases().size(); i++) {
-                print(ast.getCases().get(i));
+                emit(ast.getCases().get(i));
             }
             indent = indent - 2;
             newline(indent);
         }
 
-        print("}");
+        emit("}");
 
         return null;
     }
@@ -183,20 +572,20 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Case ast) {
         if (ast.getValue().isPresent()) {
-            print("case ", ast.getValue().get(), ":");
+            emit("case ").emit(ast.getValue().get()).emit(":");
             if (!ast.getStatements().isEmpty()) {
                 block(ast.getStatements());
             }
         }
         else {
-            print("default:");
+            emit("default:");
             if (!ast.getStatements().isEmpty()) {
                 newline(++indent);
                 for (int i = 0; i < ast.getStatements().size(); i++) {
                     if (i != 0) {
                         newline(indent);
                     }
-                    print(ast.getStatements().get(i));
+                    emit(ast.getStatements().get(i));
                 }
             }
         }
@@ -206,20 +595,40 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Statement.While ast) {
-        print("while (", ast.getCondition(), ") {");
+        // The builders are Java locals, which split helpers could not see.
+        List<Environment.Variable> built = split == null ? builders(ast) : new ArrayList<>();
+        for (Environment.Variable variable : built) {
+            // Numbered, as sibling loops may build the same local.
+            builders.put(variable, variable.getJvmName() + "$builder" + switches++);
+            emit("StringBuilder ").emit(builders.get(variable)).emit(" = new StringBuilder(").emit(variable.getJvmName()).emit(");");
+            newline(indent);
+        }
+
+        emit("while (").emit(ast.getCondition()).emit(") {");
 
         if (!ast.getStatements().isEmpty()) {
             block(ast.getStatements());
         }
 
-        print("}");
+        emit("}");
+
+        for (Environment.Variable variable : built) {
+            newline(indent);
+            emit(variable.getJvmName()).emit(" = ").emit(builders.remove(variable)).emit(".toString();");
+        }
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Statement.Return ast) {
-        print("return ", ast.getValue(), ";");
+        if (helper) {
+            emit("$context.$result = ").emit(ast.getValue()).emit(";");
+            newline(indent);
+            emit("return true;");
+            return null;
+        }
+        emit("return ").emit(ast.getValue()).emit(";");
 
         return null;
     }
@@ -227,43 +636,53 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Expression.Literal ast) {
         if (ast.getType().equals(Environment.Type.STRING)) {
-            print("\"", ast.getLiteral(), "\"");
+            emit("\"").emit(ast.getLiteral().toString()).emit("\"");
         } else if (ast.getType().equals(Environment.Type.CHARACTER)) {
-            print("'", ast.getLiteral(), "'");
+            emit("'").emit(ast.getLiteral().toString()).emit("'");
         }
         else if (ast.getType().equals(Environment.Type.NIL)){
-            print("null");
+            emit("null");
         } else {
-            print(ast.getLiteral());
+            emit(ast.getLiteral().toString());
         }
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.Group ast) {
-        print("(", ast.getExpression(), ")");
+        emit("(").emit(ast.getExpression()).emit(")");
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.Binary ast) {
-        if (ast.getOperator().equals("^")) {
-            print("Math.pow(", ast.getLeft(), ", ", ast.getRight(), ")");
+        if (ast.getOperator().equals("^") && ast.getType().equals(Environment.Type.INTEGER)) {
+            power = true;
+            emit("$power(").emit(ast.getLeft()).emit(", ").emit(ast.getRight()).emit(")");
+        }
+        else if (ast.getOperator().equals("^")) {
+            emit("Math.pow(").emit(ast.getLeft()).emit(", ").emit(ast.getRight()).emit(")");
         }
         else {
-            print(ast.getLeft(), " ", ast.getOperator(), " ", ast.getRight());
+            emit(ast.getLeft()).emit(" ").emit(ast.getOperator()).emit(" ").emit(ast.getRight());
         }
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.Access ast) {
+        if (globals != null && globals.contains(ast.getVariable())) {
+            emit(holder()).emit(".");
+        }
         if (ast.getOffset().isPresent()) {
-            print(ast.getVariable().getJvmName(), "[", ast.getOffset().get(), "]");
+            emit(ast.getVariable().getJvmName()).emit("[").emit(ast.getOffset().get()).emit("]");
+        }
+        else if (split != null && ast.getVariable().getSlot() >= 0) {
+            emit(split.field(ast.getVariable()));
         }
         else {
-            print(ast.getVariable().getJvmName());
+            emit(ast.getVariable().getJvmName());
         }
 
         return null;
@@ -271,44 +690,576 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Function ast) {
-        print(ast.getFunction().getJvmName(), "(");
+        boolean separate = functions != null && functions.contains(ast.getFunction());
+        if (separate) {
+            called.add(ast.getFunction());
+            emit(className(ast.getFunction())).emit(".");
+        }
+        emit(ast.getFunction().getJvmName()).emit("(");
+        if (separate) {
+            emit(holder()).emit(ast.getArguments().isEmpty() ? "" : ", ");
+        }
 
         for (int i = 0; i < ast.getArguments().size(); i++) {
             if (i != 0) {
-                print(", ");
+                emit(", ");
             }
-            print(ast.getArguments().get(i));
+            emit(ast.getArguments().get(i));
         }
 
-        print(")");
+        emit(")");
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.PlcList ast) {
-        print("{");
+        emit("{");
 
         for (int i = 0; i < ast.getValues().size(); i++) {
             if (i != 0) {
-                print(", ");
+                emit(", ");
             }
-            print(ast.getValues().get(i));
+            emit(ast.getValues().get(i));
         }
 
-        print("}");
+        emit("}");
 
         return null;
     }
 
+    /**
+     * Emits the return type, name and parameters of a function, which is
+     * static and also takes the globals when it has a class of its own.
+     */
+    private void signature(Ast.Function ast) {
+        Environment.Function function = ast.getFunction();
+        if (functions != null) {
+            emit("static ");
+        }
+        emit(function.getReturnType().getJvmName()).emit(" ").emit(function.getJvmName()).emit("(");
+        if (functions != null) {
+            emit(GLOBALS).emit(" $globals").emit(function.getArity() == 0 ? "" : ", ");
+        }
+        for (int i = 0; i < function.getArity(); i++) {
+            if (i != 0) {
+                emit(", ");
+            }
+            emit(function.getParameterTypes().get(i).getJvmName()).emit(" ").emit(ast.getParameters().get(i));
+        }
+        emit(")");
+    }
+
+    /**
+     * Returns the expression for the globals of a function with a class of
+     * its own, which its helpers get from the context.
+     */
+    private String holder() {
+        return helper ? "$context.$globals" : "$globals";
+    }
+
     public void block(List<Ast.Statement> statements) {
         newline(++indent);
-        for (int i = 0; i < statements.size(); i++) {
+        statements(statements);
+        newline(--indent);
+    }
+
+    /**
+     * Emits statements on separate lines, moving them into helper methods
+     * if they are too large for the function being split.
+     */
+    private void statements(List<Ast.Statement> statements) {
+        if (split == null || size(statements) <= METHOD_LIMIT) {
+            for (int i = 0; i < statements.size(); i++) {
+                if (i != 0) {
+                    newline(indent);
+                }
+                emit(statements.get(i));
+            }
+            return;
+        }
+        List<List<Ast.Statement>> chunks = new ArrayList<>();
+        int size = 0;
+        for (Ast.Statement statement : statements) {
+            if (chunks.isEmpty() || size > 0 && size + size(statement) > METHOD_LIMIT) {
+                chunks.add(new ArrayList<>());
+                size = 0;
+            }
+            chunks.get(chunks.size() - 1).add(statement);
+            size += size(statement);
+        }
+        if (chunks.size() > CALL_LIMIT) {
+            // Each group is split again into at most CALL_LIMIT chunks by its helper.
+            List<List<Ast.Statement>> grouped = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                if (i % CALL_LIMIT == 0) {
+                    grouped.add(new ArrayList<>());
+                }
+                grouped.get(grouped.size() - 1).addAll(chunks.get(i));
+            }
+            chunks = grouped;
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            List<Ast.Statement> chunk = chunks.get(i);
+            String name = split.helper(() -> {
+                boolean nested = chunk.size() > 1 && size(chunk) > METHOD_LIMIT;
+                if (nested) {
+                    statements(chunk);
+                }
+                else {
+                    for (int j = 0; j < chunk.size(); j++) {
+                        if (j != 0) {
+                            newline(indent);
+                        }
+                        emit(chunk.get(j));
+                    }
+                }
+                // Nested helper calls always complete for javac.
+                if (nested || completes(chunk)) {
+                    newline(indent);
+                    emit("return false;");
+                }
+            });
             if (i != 0) {
                 newline(indent);
             }
-            print(statements.get(i));
+            emit("if (").emit(name).emit("($context)) {");
+            newline(++indent);
+            emit(helper ? "return true;" : "return $context.$result;");
+            newline(--indent);
+            emit("}");
+        }
+    }
+
+    /**
+     * Emits a function whose body is too large for one method. Its locals
+     * become fields of a context object, and its statements move into
+     * helpers that take the context and return whether they returned, the
+     * result being left in the context.
+     */
+    private void split(Ast.Function ast) {
+        split = new Split(ast.getFunction().getJvmName() + "$Context");
+        Environment.Function function = ast.getFunction();
+        signature(ast);
+        emit(" {");
+        newline(++indent);
+        emit(split.name).emit(" $context = new ").emit(split.name).emit("();");
+        if (globals != null) {
+            newline(indent);
+            emit("$context.$globals = $globals;");
+        }
+        List<Environment.Variable> parameters = new ArrayList<>();
+        ast.getStatements().forEach(statement -> forEach(statement, node -> {
+            if (node instanceof Ast.Expression.Access && ((Ast.Expression.Access) node).getVariable().getSlot() >= 0) {
+                Environment.Variable variable = ((Ast.Expression.Access) node).getVariable();
+                if (variable.getSlot() < function.getArity() && !parameters.contains(variable)) {
+                    parameters.add(variable);
+                }
+            }
+        }));
+        for (Environment.Variable parameter : parameters) {
+            newline(indent);
+            emit(split.field(parameter)).emit(" = ").emit(ast.getParameters().get(parameter.getSlot())).emit(";");
+        }
+        newline(indent);
+        statements(ast.getStatements());
+        newline(indent);
+        emit("return $context.$result;");
+        newline(--indent);
+        emit("}");
+    }
+
+    /**
+     * Emits the helpers of the split function and then its context class,
+     * whose fields are only known once all helpers are emitted.
+     */
+    private void helpers(Ast.Function ast) {
+        // Helpers may add more helpers while they are emitted.
+        for (int i = 0; i < split.helpers.size(); i++) {
+            newline(--indent);
+            newline(++indent);
+            split.helpers.get(i).run();
         }
         newline(--indent);
+        newline(++indent);
+        emit("private static final class ").emit(split.name).emit(" {");
+        indent++;
+        if (globals != null) {
+            newline(indent);
+            emit(GLOBALS).emit(" $globals;");
+        }
+        for (int i = 0; i < split.locals.size(); i++) {
+            newline(indent);
+            emit(split.locals.get(i).getType().getJvmName()).emit(" ").emit(split.fields.get(i)).emit(";");
+        }
+        newline(indent);
+        emit(ast.getFunction().getReturnType().getJvmName()).emit(" $result;");
+        newline(--indent);
+        emit("}");
+    }
+
+    /**
+     * Emits a switch too large for one method: helpers map the value to the
+     * index of its case, and others run the cases from that index on, so
+     * the switch falls through cases like the Java switch it replaces.
+     */
+    private void splitSwitch(Ast.Statement.Switch ast) {
+        List<Ast.Statement.Case> cases = ast.getCases();
+        String type = ast.getCondition().getType().getJvmName();
+        String index = null;
+        for (int start = Math.max(cases.size() - 2, 0) / INDEX_LIMIT * INDEX_LIMIT; start >= 0; start -= INDEX_LIMIT) {
+            int first = start;
+            String next = index;
+            index = split.helper("int", type + " $value", () -> {
+                emit("switch ($value) {");
+                newline(++indent);
+                for (int i = first; i < Math.min(first + INDEX_LIMIT, cases.size() - 1); i++) {
+                    emit("case ").emit(cases.get(i).getValue().get()).emit(":");
+                    newline(++indent);
+                    emit("return ").emit(i).emit(";");
+                    newline(--indent);
+                }
+                emit("default:");
+                newline(++indent);
+                emit("return ").emit(next != null ? next + "($value)" : Integer.toString(cases.size() - 1)).emit(";");
+                newline(--indent);
+                newline(--indent);
+                emit("}");
+            });
+        }
+        String variable = "$case" + switches++;
+        emit("int ").emit(variable).emit(" = ").emit(index).emit("(").emit(ast.getCondition()).emit(");");
+        int start = 0;
+        while (start < cases.size()) {
+            int end = start;
+            int size = 0;
+            while (end < cases.size() && (end == start || size + size(cases.get(end)) <= METHOD_LIMIT)) {
+                size += size(cases.get(end++));
+            }
+            int first = start;
+            int last = end;
+            String body = split.helper("boolean", split.name + " $context, int $case", () -> {
+                emit("switch ($case) {");
+                indent++;
+                for (int i = first; i < last; i++) {
+                    newline(indent);
+                    emit("case ").emit(i).emit(":");
+                    if (!cases.get(i).getStatements().isEmpty()) {
+                        newline(++indent);
+                        statements(cases.get(i).getStatements());
+                        indent--;
+                    }
+                }
+                newline(--indent);
+                emit("}");
+                newline(indent);
+                emit("return false;");
+            });
+            newline(indent);
+            emit("if (").emit(variable).emit(" < ").emit(end).emit(") {");
+            newline(++indent);
+            emit("if (").emit(body).emit("($context, ").emit(variable).emit(")) {");
+            newline(++indent);
+            emit(helper ? "return true;" : "return $context.$result;");
+            newline(--indent);
+            emit("}");
+            newline(indent);
+            emit(variable).emit(" = ").emit(end).emit(";");
+            newline(--indent);
+            emit("}");
+            start = end;
+        }
+    }
+
+    /**
+     * Returns the number of nodes of an AST, which approximates the size of
+     * its bytecode.
+     */
+    private static int size(Ast ast) {
+        int[] size = {0};
+        forEach(ast, node -> size[0]++);
+        return size[0];
+    }
+
+    private static int size(List<Ast.Statement> statements) {
+        int size = 0;
+        for (Ast.Statement statement : statements) {
+            size += size(statement);
+        }
+        return size;
+    }
+
+    /**
+     * Returns whether the Java code of statements can complete normally, so
+     * that a statement after them would be reachable for javac.
+     */
+    private static boolean completes(List<Ast.Statement> statements) {
+        if (statements.isEmpty()) {
+            return true;
+        }
+        Ast.Statement last = statements.get(statements.size() - 1);
+        if (last instanceof Ast.Statement.Return) {
+            return false;
+        }
+        else if (last instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) last;
+            return statement.getElseStatements().isEmpty() || completes(statement.getThenStatements()) || completes(statement.getElseStatements());
+        }
+        else if (last instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch statement = (Ast.Statement.Switch) last;
+            if (!isSwitchable(statement)) {
+                return statement.getCases().stream().anyMatch(c -> completes(c.getStatements()));
+            }
+            // A split switch always completes, as do switches whose last (default) case completes.
+            return size(statement) > METHOD_LIMIT || completes(statement.getCases().get(statement.getCases().size() - 1).getStatements());
+        }
+        else if (last instanceof Ast.Statement.While) {
+            boolean[] constant = {true};
+            forEach(((Ast.Statement.While) last).getCondition(), node -> constant[0] &= !(node instanceof Ast.Expression.Access || node instanceof Ast.Expression.Function));
+            return !constant[0];
+        }
+        return true;
+    }
+
+    private static String initial(Environment.Type type) {
+        switch (type.getJvmName()) {
+            case "int":
+                return "0";
+            case "double":
+                return "0.0";
+            case "boolean":
+                return "false";
+            case "char":
+                return "'\\0'";
+            default:
+                return "null";
+        }
+    }
+
+    /**
+     * State of a function being split: the context class holding its
+     * locals, and the helper methods still to be emitted after it.
+     */
+    private final class Split {
+
+        private final String name;
+        private final List<Environment.Variable> locals = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>();
+        private final List<Runnable> helpers = new ArrayList<>();
+
+        private Split(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the context field of a local, named after it unless that
+         * name is taken by another local of the same name.
+         */
+        private String field(Environment.Variable variable) {
+            for (int i = 0; i < locals.size(); i++) {
+                if (locals.get(i) == variable) {
+                    return "$context." + fields.get(i);
+                }
+            }
+            String name = variable.getJvmName();
+            while (fields.contains(name)) {
+                name += "$";
+            }
+            locals.add(variable);
+            fields.add(name);
+            return "$context." + name;
+        }
+
+        private String helper(Runnable body) {
+            return helper("boolean", this.name + " $context", body);
+        }
+
+        /**
+         * Adds a helper method with the given body, returning its name.
+         */
+        private String helper(String type, String parameters, Runnable body) {
+            String name = this.name.substring(0, this.name.length() - "$Context".length()) + "$" + helpers.size();
+            helpers.add(() -> {
+                boolean outer = helper;
+                helper = true;
+                emit(functions != null ? "private static " : "private ").emit(type).emit(" ").emit(name).emit("(").emit(parameters).emit(") {");
+                newline(++indent);
+                body.run();
+                newline(--indent);
+                emit("}");
+                helper = outer;
+            });
+            return name;
+        }
+
+    }
+
+    /**
+     * Returns whether a SWITCH can be emitted as a Java switch, which takes
+     * int, char and String conditions and constant case values.
+     */
+    private static boolean isSwitchable(Ast.Statement.Switch ast) {
+        Environment.Type type = ast.getCondition().getType();
+        if (!type.equals(Environment.Type.INTEGER) && !type.equals(Environment.Type.CHARACTER) && !type.equals(Environment.Type.STRING)) {
+            return false;
+        }
+        for (Ast.Statement.Case c : ast.getCases()) {
+            if (c.getValue().isPresent() && !(c.getValue().get() instanceof Ast.Expression.Literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Emits a SWITCH as an if-else chain, evaluating the condition once.
+     */
+    private void chain(Ast.Statement.Switch ast) {
+        Ast.Expression condition = ast.getCondition();
+        Environment.Type type = condition.getType();
+        boolean primitive = Character.isLowerCase(type.getJvmName().charAt(0));
+        String temporary = null;
+        if (!(condition instanceof Ast.Expression.Literal) && !(condition instanceof Ast.Expression.Access && !((Ast.Expression.Access) condition).getOffset().isPresent())) {
+            temporary = "$switch" + switches++;
+            emit(type.getJvmName()).emit(" ").emit(temporary).emit(" = ").emit(condition).emit(";");
+            newline(indent);
+        }
+        List<Ast.Statement.Case> cases = ast.getCases();
+        for (int i = 0; i < cases.size(); i++) {
+            Ast.Statement.Case c = cases.get(i);
+            if (c.getValue().isPresent()) {
+                if (i != 0) {
+                    emit(" else ");
+                }
+                emit(primitive ? "if (" : "if (java.util.Objects.equals(");
+                if (temporary != null) {
+                    emit(temporary);
+                }
+                else {
+                    emit(condition);
+                }
+                emit(primitive ? " == " : ", ").emit(c.getValue().get()).emit(primitive ? ") {" : ")) {");
+            }
+            else {
+                emit(i != 0 ? " else {" : "{");
+            }
+            if (!c.getStatements().isEmpty()) {
+                block(c.getStatements());
+            }
+            emit("}");
+        }
+    }
+
+    /**
+     * Returns the String locals that a loop only appends to, with
+     * assignments like s = s + x whose other operands do not read it, so
+     * that they can be built with a StringBuilder. Loops with a constant
+     * condition are skipped, as the statement after them is unreachable.
+     */
+    private List<Environment.Variable> builders(Ast.Statement.While ast) {
+        List<Environment.Variable> result = new ArrayList<>();
+        boolean[] constant = {true};
+        forEach(ast.getCondition(), node -> constant[0] &= !(node instanceof Ast.Expression.Access || node instanceof Ast.Expression.Function));
+        if (constant[0]) {
+            return result;
+        }
+        List<Environment.Variable> candidates = new ArrayList<>();
+        forEach(ast, node -> {
+            Environment.Variable variable = node instanceof Ast.Statement.Assignment ? appended((Ast.Statement.Assignment) node) : null;
+            if (variable != null && !builders.containsKey(variable) && !candidates.contains(variable)) {
+                candidates.add(variable);
+            }
+        });
+        for (Environment.Variable variable : candidates) {
+            int[] counts = new int[2];
+            forEach(ast, node -> {
+                if (node instanceof Ast.Statement.Assignment && appended((Ast.Statement.Assignment) node) == variable) {
+                    counts[0]++;
+                }
+                else if (node instanceof Ast.Expression.Access && ((Ast.Expression.Access) node).getVariable() == variable) {
+                    counts[1]++;
+                }
+                else if (node instanceof Ast.Statement.Declaration && ((Ast.Statement.Declaration) node).getVariable() == variable) {
+                    counts[1] = -1;
+                }
+            });
+            // Each append accesses the variable twice, as receiver and leftmost operand.
+            if (counts[1] == 2 * counts[0]) {
+                result.add(variable);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the variable an assignment appends to, if it is a String local
+     * assigned a concatenation with itself as the leftmost operand.
+     */
+    private static Environment.Variable appended(Ast.Statement.Assignment ast) {
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        Environment.Variable variable = receiver.getVariable();
+        if (receiver.getOffset().isPresent() || variable.getSlot() < 0 || !variable.getType().equals(Environment.Type.STRING)) {
+            return null;
+        }
+        Ast.Expression left = ast.getValue();
+        while (left instanceof Ast.Expression.Binary && ((Ast.Expression.Binary) left).getOperator().equals("+")) {
+            left = ((Ast.Expression.Binary) left).getLeft();
+        }
+        boolean appends = left != ast.getValue() && left instanceof Ast.Expression.Access
+                && !((Ast.Expression.Access) left).getOffset().isPresent() && ((Ast.Expression.Access) left).getVariable() == variable;
+        return appends ? variable : null;
+    }
+
+    /**
+     * Calls the action on a node and all nodes nested in it.
+     */
+    private static void forEach(Ast ast, Consumer<Ast> action) {
+        action.accept(ast);
+        if (ast instanceof Ast.Statement.Expression) {
+            forEach(((Ast.Statement.Expression) ast).getExpression(), action);
+        }
+        else if (ast instanceof Ast.Statement.Declaration) {
+            ((Ast.Statement.Declaration) ast).getValue().ifPresent(value -> forEach(value, action));
+        }
+        else if (ast instanceof Ast.Statement.Assignment) {
+            forEach(((Ast.Statement.Assignment) ast).getReceiver(), action);
+            forEach(((Ast.Statement.Assignment) ast).getValue(), action);
+        }
+        else if (ast instanceof Ast.Statement.If) {
+            forEach(((Ast.Statement.If) ast).getCondition(), action);
+            ((Ast.Statement.If) ast).getThenStatements().forEach(statement -> forEach(statement, action));
+            ((Ast.Statement.If) ast).getElseStatements().forEach(statement -> forEach(statement, action));
+        }
+        else if (ast instanceof Ast.Statement.Switch) {
+            forEach(((Ast.Statement.Switch) ast).getCondition(), action);
+            ((Ast.Statement.Switch) ast).getCases().forEach(c -> forEach(c, action));
+        }
+        else if (ast instanceof Ast.Statement.Case) {
+            ((Ast.Statement.Case) ast).getValue().ifPresent(value -> forEach(value, action));
+            ((Ast.Statement.Case) ast).getStatements().forEach(statement -> forEach(statement, action));
+        }
+        else if (ast instanceof Ast.Statement.While) {
+            forEach(((Ast.Statement.While) ast).getCondition(), action);
+            ((Ast.Statement.While) ast).getStatements().forEach(statement -> forEach(statement, action));
+        }
+        else if (ast instanceof Ast.Statement.Return) {
+            forEach(((Ast.Statement.Return) ast).getValue(), action);
+        }
+        else if (ast instanceof Ast.Expression.Group) {
+            forEach(((Ast.Expression.Group) ast).getExpression(), action);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            forEach(((Ast.Expression.Binary) ast).getLeft(), action);
+            forEach(((Ast.Expression.Binary) ast).getRight(), action);
+        }
+        else if (ast instanceof Ast.Expression.Access) {
+            ((Ast.Expression.Access) ast).getOffset().ifPresent(offset -> forEach(offset, action));
+        }
+        else if (ast instanceof Ast.Expression.Function) {
+            ((Ast.Expression.Function) ast).getArguments().forEach(argument -> forEach(argument, action));
+        }
+        else if (ast instanceof Ast.Expression.PlcList) {
+            ((Ast.Expression.PlcList) ast).getValues().forEach(value -> forEach(value, action));
+        }
     }
 }
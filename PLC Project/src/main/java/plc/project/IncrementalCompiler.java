@@ -0,0 +1,187 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles programs like {@link CompiledProgram}, but with each function in a
+ * class of its own, so that an edit in an edit-compile loop only recompiles
+ * the functions it changed. Functions are reused by their structural hash, as
+ * in {@link IncrementalGenerator}, which covers the signatures of the
+ * functions they call and the types of the globals they use.
+ *
+ * Functions are static methods taking the globals, which {@code Main} holds
+ * as fields of its superclass {@code Main$Globals}. A changed function is
+ * compiled against placeholders of the functions it calls, so only the
+ * changed classes go through javac, in a single task. Each program gets a new
+ * class loader for the classes.
+ *
+ * Compiled programs are kept as keys and must not be modified afterwards.
+ */
+public final class IncrementalCompiler {
+
+    // The class of each function of the previous program.
+    private Map<IncrementalGenerator.Key, Unit> cache = new HashMap<>();
+    private Unit globals = null;
+    private Unit main = null;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Compiles the source, replacing the cache with its functions.
+     */
+    synchronized CompiledProgram compile(Ast.Source ast) {
+        Map<Environment.Function, Ast.Function> functions = new IdentityHashMap<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.put(function.getFunction(), function);
+        }
+        Set<Environment.Variable> globals = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Ast.Global global : ast.getGlobals()) {
+            globals.add(global.getVariable());
+        }
+
+        // The classes to compile, by name.
+        Map<String, String> sources = new LinkedHashMap<>();
+        List<Unit> units = new ArrayList<>();
+
+        Emitter emitter = new Emitter();
+        Generator.generateGlobals(ast, emitter);
+        Unit holder = unit(this.globals, Generator.GLOBALS, emitter, Collections.emptySet(), sources);
+        units.add(holder);
+
+        Map<IncrementalGenerator.Key, Unit> compiled = new HashMap<>();
+        long hits = 0;
+        for (Ast.Function function : ast.getFunctions()) {
+            IncrementalGenerator.Key key = new IncrementalGenerator.Key(function);
+            Unit unit = cache.get(key);
+            if (unit != null) {
+                hits++;
+            }
+            else {
+                Generator code = Generator.generate(function, functions.keySet(), globals);
+                emitter = new Emitter();
+                Generator.generateClass(function, code, emitter);
+                unit = new Unit(Generator.className(function.getFunction()), emitter.toString(), code.getCalled());
+                sources.put(unit.name, unit.source);
+            }
+            compiled.put(key, unit);
+            units.add(unit);
+        }
+
+        emitter = new Emitter();
+        Generator.generateMain(ast, emitter);
+        Set<Environment.Function> entry = Collections.newSetFromMap(new IdentityHashMap<>());
+        functions.keySet().stream().filter(f -> f.getName().equals("main") && f.getArity() == 0).forEach(entry::add);
+        Unit main = unit(this.main, "Main", emitter, entry, sources);
+        units.add(main);
+
+        if (!sources.isEmpty()) {
+            // The classes used by those compiled are replaced by placeholders,
+            // which are compiled but not loaded.
+            Map<String, String> placeholders = new LinkedHashMap<>();
+            if (!sources.containsKey(Generator.GLOBALS)) {
+                placeholders.put(Generator.GLOBALS, holder.source);
+            }
+            for (Unit unit : units) {
+                if (!sources.containsKey(unit.name)) {
+                    continue;
+                }
+                for (Environment.Function function : unit.called) {
+                    String name = Generator.className(function);
+                    if (!sources.containsKey(name) && !placeholders.containsKey(name)) {
+                        emitter = new Emitter();
+                        Generator.generatePlaceholder(functions.get(function), emitter);
+                        placeholders.put(name, emitter.toString());
+                    }
+                }
+            }
+            Map<String, String> all = new LinkedHashMap<>(sources);
+            all.putAll(placeholders);
+            Map<String, Map<String, byte[]>> classes = ClassCache.compile(all);
+            for (Unit unit : units) {
+                if (sources.containsKey(unit.name)) {
+                    unit.classes = classes.get(unit.name);
+                }
+            }
+        }
+
+        this.hits += hits;
+        this.misses += ast.getFunctions().size() - hits;
+        this.cache = compiled;
+        this.globals = holder;
+        this.main = main;
+
+        Map<String, byte[]> classes = new HashMap<>();
+        StringBuilder java = new StringBuilder();
+        for (Unit unit : units) {
+            classes.putAll(unit.classes);
+            if (java.length() != 0) {
+                java.append(System.lineSeparator()).append(System.lineSeparator());
+            }
+            java.append(unit.source);
+        }
+        try {
+            return new CompiledProgram(java.toString(), new ClassCache.Loader(classes).loadClass("Main"));
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns the unit of a generated class, reusing the previous one if its
+     * source is the same and adding it to the sources otherwise.
+     */
+    private static Unit unit(Unit previous, String name, Emitter emitter, Set<Environment.Function> called, Map<String, String> sources) {
+        String source = emitter.toString();
+        if (previous != null && previous.source.equals(source)) {
+            return previous;
+        }
+        sources.put(name, source);
+        return new Unit(name, source, called);
+    }
+
+    /**
+     * Returns the number of functions whose class was reused.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of functions that were compiled.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * A generated class, its source, the functions it calls and the class
+     * files compiled from it.
+     */
+    private static final class Unit {
+
+        private final String name;
+        private final String source;
+        private final Set<Environment.Function> called;
+        private Map<String, byte[]> classes;
+
+        private Unit(String name, String source, Set<Environment.Function> called) {
+            this.name = name;
+            this.source = source;
+            this.called = called;
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates sources like {@link Generator}, but reuses the code of each global
+ * and function that is equal to one of the previously generated source. The
+ * cache is keyed by the structural hash of the member, which covers its
+ * resolved types, variables and called functions, so an edit in an
+ * edit-compile loop only regenerates the members it changed.
+ *
+ * Generated sources are kept as keys and must not be modified afterwards.
+ */
+public final class IncrementalGenerator {
+
+    // The code of each member of the previous source.
+    private Map<Key, Generator> cache = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Generates the source into the emitter, replacing the cache with its
+     * members.
+     */
+    public synchronized void generate(Ast.Source ast, Emitter emitter) {
+        List<Ast> members = new ArrayList<>(ast.getGlobals());
+        members.addAll(ast.getFunctions());
+        Map<Key, Generator> generated = new HashMap<>();
+        List<Generator> generators = new ArrayList<>();
+        for (Ast member : members) {
+            Key key = new Key(member);
+            Generator generator = cache.get(key);
+            if (generator != null) {
+                hits++;
+            }
+            else {
+                generator = Generator.generate(member);
+                misses++;
+            }
+            generated.put(key, generator);
+            generators.add(generator);
+        }
+        cache = generated;
+        Generator.generate(ast, emitter, generators);
+    }
+
+    /**
+     * Returns the number of members whose code was reused.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of members that were generated.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * A member with its structural hash, which is computed only once.
+     */
+    static final class Key {
+
+        private final Ast ast;
+        private final int hash;
+
+        Key(Ast ast) {
+            this.ast = ast;
+            this.hash = ast.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key &&
+                    hash == ((Key) obj).hash &&
+                    ast.equals(((Key) obj).ast);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
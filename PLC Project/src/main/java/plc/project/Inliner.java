@@ -0,0 +1,469 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Inlines calls of small functions in an analyzed source and returns the
+ * resulting source; the input is not modified.
+ *
+ * A function is inlined if it does not call itself (functions can only call
+ * earlier ones, so there is no other recursion), its body is at most
+ * {@code threshold} nodes, and it is straight-line: declarations,
+ * assignments and calls, ending in an optional RETURN.
+ *
+ * A call that is the whole value of a LET, an assignment or a RETURN, or a
+ * call statement, is replaced by declarations of the parameters initialized
+ * to the arguments, followed by the body. Locals of the body are renamed to
+ * fresh names and frame slots of the caller, so arguments are still evaluated
+ * once and in order before the body. A function that only returns an
+ * expression is also inlined within expressions, with its parameters
+ * replaced by the arguments, if every argument is a literal or a variable
+ * that cannot change while the expression is evaluated.
+ *
+ * Calls within equality operands are never inlined (the interpreter compares
+ * the operand trees), nor are functions returning an equality. Neither are
+ * calls of functions using a global named like a local or parameter of the
+ * caller, which would shadow it in the generated Java.
+ */
+public final class Inliner implements Ast.Visitor<Ast> {
+
+    public static final int DEFAULT_THRESHOLD = 32;
+
+    private final int threshold;
+    private final Map<Environment.Function, Ast.Function> inlinable = new IdentityHashMap<>();
+    // The names of the globals each inlinable function uses.
+    private final Map<Environment.Function, Set<String>> globals = new IdentityHashMap<>();
+    private Locals locals = null;
+    // The names of the parameters and locals of the function being rebuilt.
+    private Set<String> declared = null;
+    private Map<Integer, Ast.Expression> substitutions = null;
+    private int frameSize = 0;
+    private boolean equality = false;
+
+    public Inliner() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public Inliner(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        locals = new Locals(ast);
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            Ast.Function inlined = visit(function);
+            if (isInlinable(inlined)) {
+                inlinable.put(inlined.getFunction(), inlined);
+                globals.put(inlined.getFunction(), globals(inlined));
+            }
+            functions.add(inlined);
+        }
+        return new Ast.Source(ast.getGlobals(), functions);
+    }
+
+    @Override
+    public Ast.Global visit(Ast.Global ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Function visit(Ast.Function ast) {
+        frameSize = ast.getFrameSize();
+        declared = Locals.names(ast);
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), block(ast.getStatements()));
+        function.setFunction(ast.getFunction());
+        function.setIndex(ast.getIndex());
+        function.setFrameSize(frameSize);
+        return function;
+    }
+
+    @Override
+    public Ast.Statement.Expression visit(Ast.Statement.Expression ast) {
+        // A call statement is only inlined as a statement (see block), since
+        // the expression it returns may not be a statement.
+        if (ast.getExpression() instanceof Ast.Expression.Function) {
+            return new Ast.Statement.Expression(call((Ast.Expression.Function) ast.getExpression(), false));
+        }
+        return new Ast.Statement.Expression(visit(ast.getExpression()));
+    }
+
+    @Override
+    public Ast.Statement.Declaration visit(Ast.Statement.Declaration ast) {
+        Optional<Ast.Expression> value = ast.getValue().map(this::visit);
+        Environment.Variable variable = ast.getVariable();
+        if (substitutions != null) {
+            variable = locals.fresh(variable.getName(), variable.getType(), frameSize++);
+            substitutions.put(ast.getVariable().getSlot(), Locals.access(variable));
+        }
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(variable.getName(), ast.getTypeName(), value);
+        declaration.setVariable(variable);
+        return declaration;
+    }
+
+    @Override
+    public Ast.Statement.Assignment visit(Ast.Statement.Assignment ast) {
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        Environment.Variable variable = receiver.getVariable();
+        if (substitutions != null && variable.getSlot() >= 0) {
+            variable = ((Ast.Expression.Access) substitutions.get(variable.getSlot())).getVariable();
+        }
+        Ast.Expression.Access target = new Ast.Expression.Access(receiver.getOffset().map(this::visit), variable.getName());
+        target.setVariable(variable);
+        return new Ast.Statement.Assignment(target, visit(ast.getValue()));
+    }
+
+    @Override
+    public Ast.Statement.If visit(Ast.Statement.If ast) {
+        return new Ast.Statement.If(visit(ast.getCondition()), block(ast.getThenStatements()), block(ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Switch visit(Ast.Statement.Switch ast) {
+        Ast.Expression condition = visit(ast.getCondition());
+        List<Ast.Statement.Case> cases = new ArrayList<>();
+        for (Ast.Statement.Case c : ast.getCases()) {
+            cases.add(visit(c));
+        }
+        Ast.Statement.Switch statement = new Ast.Statement.Switch(condition, cases);
+        statement.setJumpTable(Analyzer.jumpTable(cases));
+        return statement;
+    }
+
+    @Override
+    public Ast.Statement.Case visit(Ast.Statement.Case ast) {
+        return new Ast.Statement.Case(ast.getValue().map(this::visit), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.While visit(Ast.Statement.While ast) {
+        return new Ast.Statement.While(visit(ast.getCondition()), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Return visit(Ast.Statement.Return ast) {
+        return ret(visit(ast.getValue()));
+    }
+
+    @Override
+    public Ast.Expression.Literal visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Group visit(Ast.Expression.Group ast) {
+        Ast.Expression.Group group = new Ast.Expression.Group(visit(ast.getExpression()));
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast.Expression.Binary visit(Ast.Expression.Binary ast) {
+        boolean enclosing = equality;
+        equality = enclosing || ast.getOperator().equals("==") || ast.getOperator().equals("!=");
+        try {
+            Ast.Expression.Binary binary = new Ast.Expression.Binary(ast.getOperator(), visit(ast.getLeft()), visit(ast.getRight()));
+            binary.setType(ast.getType());
+            return binary;
+        } finally {
+            equality = enclosing;
+        }
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Access ast) {
+        if (substitutions != null && ast.getVariable().getSlot() >= 0) {
+            Ast.Expression substitute = substitutions.get(ast.getVariable().getSlot());
+            if (!ast.getOffset().isPresent()) {
+                return substitute;
+            }
+            Ast.Expression.Access access = new Ast.Expression.Access(Optional.of(visit(ast.getOffset().get())), ((Ast.Expression.Access) substitute).getName());
+            access.setVariable(((Ast.Expression.Access) substitute).getVariable());
+            return access;
+        }
+        Ast.Expression.Access access = new Ast.Expression.Access(ast.getOffset().map(this::visit), ast.getName());
+        access.setVariable(ast.getVariable());
+        return access;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Function ast) {
+        return call(ast, true);
+    }
+
+    @Override
+    public Ast.Expression.PlcList visit(Ast.Expression.PlcList ast) {
+        List<Ast.Expression> values = new ArrayList<>();
+        for (Ast.Expression value : ast.getValues()) {
+            values.add(visit(value));
+        }
+        Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+        list.setType(ast.getType());
+        return list;
+    }
+
+    private Ast.Expression visit(Ast.Expression ast) {
+        return (Ast.Expression) visit((Ast) ast);
+    }
+
+    /**
+     * Rebuilds a call, substituting the body of a callee that only returns an
+     * expression if allowed.
+     */
+    private Ast.Expression call(Ast.Expression.Function ast, boolean substitute) {
+        List<Ast.Expression> arguments = new ArrayList<>();
+        for (Ast.Expression argument : ast.getArguments()) {
+            arguments.add(visit(argument));
+        }
+        Ast.Function callee = inlinable(ast.getFunction());
+        if (substitute && !equality && callee != null && isFormula(callee) && arguments.stream().allMatch(Inliner::isStable)
+                && types(arguments).equals(callee.getFunction().getParameterTypes())) {
+            Map<Integer, Ast.Expression> enclosing = substitutions;
+            substitutions = new HashMap<>();
+            try {
+                for (int i = 0; i < arguments.size(); i++) {
+                    substitutions.put(i, arguments.get(i));
+                }
+                Ast.Expression value = visit(((Ast.Statement.Return) callee.getStatements().get(0)).getValue());
+                if (!(value instanceof Ast.Expression.Binary)) {
+                    return value;
+                }
+                // The generator relies on groups for precedence.
+                Ast.Expression.Group group = new Ast.Expression.Group(value);
+                group.setType(value.getType());
+                return group;
+            } finally {
+                substitutions = enclosing;
+            }
+        }
+        Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    /**
+     * Rebuilds a block, expanding calls that make up a whole statement.
+     */
+    private List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> block = new ArrayList<>();
+        for (Ast.Statement statement : statements) {
+            int size = block.size();
+            Ast.Statement rebuilt = (Ast.Statement) visit(statement);
+            Ast.Expression value = null;
+            if (rebuilt instanceof Ast.Statement.Declaration) {
+                value = ((Ast.Statement.Declaration) rebuilt).getValue().orElse(null);
+            }
+            else if (rebuilt instanceof Ast.Statement.Assignment && !((Ast.Expression.Access) ((Ast.Statement.Assignment) rebuilt).getReceiver()).getOffset().isPresent()) {
+                value = ((Ast.Statement.Assignment) rebuilt).getValue();
+            }
+            else if (rebuilt instanceof Ast.Statement.Expression) {
+                value = ((Ast.Statement.Expression) rebuilt).getExpression();
+            }
+            else if (rebuilt instanceof Ast.Statement.Return) {
+                value = ((Ast.Statement.Return) rebuilt).getValue();
+            }
+            Ast.Function callee = value instanceof Ast.Expression.Function ? inlinable(((Ast.Expression.Function) value).getFunction()) : null;
+            if (callee == null || !expand(rebuilt, (Ast.Expression.Function) value, callee, block)) {
+                block.add(rebuilt);
+            }
+            // The parameters and result of an inlined call are attributed to it.
+            block.subList(size, block.size()).forEach(s -> s.inherit(statement));
+        }
+        return block;
+    }
+
+    /**
+     * Appends the inlined call of a statement to the block, returning false if
+     * the statement cannot use the value the body ends with.
+     */
+    private boolean expand(Ast.Statement statement, Ast.Expression.Function call, Ast.Function callee, List<Ast.Statement> block) {
+        List<Ast.Statement> body = callee.getStatements();
+        boolean returns = !body.isEmpty() && body.get(body.size() - 1) instanceof Ast.Statement.Return;
+        Ast.Expression result = returns ? ((Ast.Statement.Return) body.get(body.size() - 1)).getValue() : null;
+        if (statement instanceof Ast.Statement.Expression) {
+            if (returns && !(result instanceof Ast.Expression.Function || result instanceof Ast.Expression.Literal
+                    || result instanceof Ast.Expression.Access && !((Ast.Expression.Access) result).getOffset().isPresent())) {
+                return false;
+            }
+        }
+        else if (!returns) {
+            return false;
+        }
+        Map<Integer, Ast.Expression> enclosing = substitutions;
+        substitutions = new HashMap<>();
+        try {
+            for (int i = 0; i < call.getArguments().size(); i++) {
+                Environment.Variable parameter = locals.fresh(callee.getParameters().get(i), callee.getFunction().getParameterTypes().get(i), frameSize++);
+                block.add(Locals.declaration(parameter, call.getArguments().get(i)));
+                substitutions.put(i, Locals.access(parameter));
+            }
+            block.addAll(block(returns ? body.subList(0, body.size() - 1) : body));
+            Ast.Expression value = returns ? visit(result) : null;
+            if (statement instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration ast = (Ast.Statement.Declaration) statement;
+                Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), Optional.of(value));
+                declaration.setVariable(ast.getVariable());
+                block.add(declaration);
+            }
+            else if (statement instanceof Ast.Statement.Assignment) {
+                block.add(new Ast.Statement.Assignment(((Ast.Statement.Assignment) statement).getReceiver(), value));
+            }
+            else if (statement instanceof Ast.Statement.Return) {
+                block.add(ret(value));
+            }
+            else if (value instanceof Ast.Expression.Function) {
+                block.add(new Ast.Statement.Expression(value));
+            }
+            return true;
+        } finally {
+            substitutions = enclosing;
+        }
+    }
+
+    /**
+     * Returns the function if it is inlinable into the function being
+     * rebuilt, or null.
+     */
+    private Ast.Function inlinable(Environment.Function function) {
+        Ast.Function callee = inlinable.get(function);
+        if (callee == null || globals.get(function).stream().anyMatch(declared::contains)) {
+            return null;
+        }
+        return callee;
+    }
+
+    private boolean isInlinable(Ast.Function function) {
+        int size = 0;
+        List<Ast.Statement> statements = function.getStatements();
+        for (int i = 0; i < statements.size(); i++) {
+            Ast.Statement statement = statements.get(i);
+            List<Ast.Expression> expressions = expressions(statement);
+            if (expressions == null || statement instanceof Ast.Statement.Return && i != statements.size() - 1) {
+                return false;
+            }
+            size++;
+            for (Ast.Expression expression : expressions) {
+                if (count(expression, e -> e instanceof Ast.Expression.Function && ((Ast.Expression.Function) e).getFunction() == function.getFunction()) > 0) {
+                    return false;
+                }
+                size += count(expression, e -> true);
+            }
+        }
+        return size <= threshold;
+    }
+
+    /**
+     * Returns the expressions of a declaration, assignment, expression or
+     * RETURN statement, or null for other statements.
+     */
+    private static List<Ast.Expression> expressions(Ast.Statement statement) {
+        List<Ast.Expression> expressions = new ArrayList<>();
+        if (statement instanceof Ast.Statement.Declaration) {
+            ((Ast.Statement.Declaration) statement).getValue().ifPresent(expressions::add);
+        }
+        else if (statement instanceof Ast.Statement.Assignment) {
+            expressions.add(((Ast.Statement.Assignment) statement).getReceiver());
+            expressions.add(((Ast.Statement.Assignment) statement).getValue());
+        }
+        else if (statement instanceof Ast.Statement.Expression) {
+            expressions.add(((Ast.Statement.Expression) statement).getExpression());
+        }
+        else if (statement instanceof Ast.Statement.Return) {
+            expressions.add(((Ast.Statement.Return) statement).getValue());
+        }
+        else {
+            return null;
+        }
+        return expressions;
+    }
+
+    /**
+     * Returns the names of the globals an inlinable function reads or
+     * assigns, including those of the calls inlined into it.
+     */
+    private static Set<String> globals(Ast.Function function) {
+        Set<String> globals = new HashSet<>();
+        for (Ast.Statement statement : function.getStatements()) {
+            for (Ast.Expression expression : expressions(statement)) {
+                count(expression, e -> e instanceof Ast.Expression.Access && ((Ast.Expression.Access) e).getVariable().getSlot() < 0
+                        && globals.add(((Ast.Expression.Access) e).getVariable().getJvmName()));
+            }
+        }
+        return globals;
+    }
+
+    /**
+     * Returns whether a function only returns an expression that may be
+     * substituted for its calls.
+     */
+    private static boolean isFormula(Ast.Function function) {
+        if (function.getStatements().size() != 1 || !(function.getStatements().get(0) instanceof Ast.Statement.Return)) {
+            return false;
+        }
+        Ast.Expression value = ((Ast.Statement.Return) function.getStatements().get(0)).getValue();
+        // Parameters may be replaced by literals, which cannot be indexed.
+        return value.getType().equals(function.getFunction().getReturnType())
+                && count(value, e -> e instanceof Ast.Expression.Binary && (((Ast.Expression.Binary) e).getOperator().equals("==") || ((Ast.Expression.Binary) e).getOperator().equals("!="))) == 0
+                && count(value, e -> e instanceof Ast.Expression.Access && ((Ast.Expression.Access) e).getOffset().isPresent() && ((Ast.Expression.Access) e).getVariable().getSlot() >= 0) == 0;
+    }
+
+    /**
+     * Returns whether evaluating an argument any number of times, at any point
+     * of the inlined expression, gives the same value with no effects.
+     */
+    private static boolean isStable(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Access) {
+            Environment.Variable variable = ((Ast.Expression.Access) ast).getVariable();
+            return !((Ast.Expression.Access) ast).getOffset().isPresent() && (variable.getSlot() >= 0 || !variable.getMutable());
+        }
+        return ast instanceof Ast.Expression.Literal;
+    }
+
+    private static int count(Ast.Expression ast, Predicate<Ast.Expression> predicate) {
+        int count = predicate.test(ast) ? 1 : 0;
+        if (ast instanceof Ast.Expression.Group) {
+            count += count(((Ast.Expression.Group) ast).getExpression(), predicate);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            count += count(((Ast.Expression.Binary) ast).getLeft(), predicate) + count(((Ast.Expression.Binary) ast).getRight(), predicate);
+        }
+        else if (ast instanceof Ast.Expression.Access && ((Ast.Expression.Access) ast).getOffset().isPresent()) {
+            count += count(((Ast.Expression.Access) ast).getOffset().get(), predicate);
+        }
+        else if (ast instanceof Ast.Expression.Function) {
+            for (Ast.Expression argument : ((Ast.Expression.Function) ast).getArguments()) {
+                count += count(argument, predicate);
+            }
+        }
+        else if (ast instanceof Ast.Expression.PlcList) {
+            for (Ast.Expression value : ((Ast.Expression.PlcList) ast).getValues()) {
+                count += count(value, predicate);
+            }
+        }
+        return count;
+    }
+
+    private static List<Environment.Type> types(List<Ast.Expression> expressions) {
+        List<Environment.Type> types = new ArrayList<>();
+        for (Ast.Expression expression : expressions) {
+            types.add(expression.getType());
+        }
+        return types;
+    }
+
+    private static Ast.Statement.Return ret(Ast.Expression value) {
+        Ast.Statement.Return statement = new Ast.Statement.Return(value);
+        statement.setTailCall(value instanceof Ast.Expression.Function);
+        return statement;
+    }
+
+}
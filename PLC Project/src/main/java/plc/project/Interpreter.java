@@ -4,23 +4,163 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
+/**
+ * Tree-walking interpreter. An interpreter holds the state of a single
+ * execution (globals, the current frame and scope) and is not thread-safe;
+ * use {@link Program} to run the same source concurrently.
+ */
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
+    // Bound once and shared, as an interpreter is created for every execution.
+    private static final Environment.Invoker PRINT = Natives.invoker(Natives.findStatic(Interpreter.class, "print", void.class, Object.class));
+
+    // Completion signal of a RETURN that continues with tailCallee.
+    private static final Environment.PlcObject TAIL_CALL = Environment.create(new Object());
+
+    // Steps between checks of the budget and of the thread's interrupt status.
+    private static final int SAFEPOINT_INTERVAL = 1024;
+
     private Scope scope = new Scope(null);
 
+    /**
+     * Completion signal for RETURN statements. A non-null value means a return
+     * is in progress and the remaining statements of the enclosing blocks are
+     * skipped until the function invocation consumes it.
+     */
+    private Environment.PlcObject returnValue = null;
+
+    /**
+     * The function and filled-in frame of a pending tail call, set together
+     * with {@link #TAIL_CALL} as the return value.
+     */
+    private FunctionInvoker tailCallee = null;
+    private Environment.PlcObject[] tailArguments = null;
+
+    /**
+     * Local slots of the current activation of an analyzed function, or null
+     * when variables are resolved by name through {@link #scope} instead.
+     */
+    private Environment.PlcObject[] frame = null;
+
+    /**
+     * Step metering. A step is a loop back-edge or a function entry; each one
+     * decrements {@link #fuel}, and only when that runs out is it refilled
+     * from {@link #budget} (the steps not yet handed out) by
+     * {@link #refuel()}.
+     */
+    private long limit = Long.MAX_VALUE;
+    private long budget = Long.MAX_VALUE;
+    private int fuel = 0;
+
+    /**
+     * Runs analyzed functions on a heap-allocated call stack, or null to run
+     * them by recursing on the Java stack.
+     */
+    private Machine machine = null;
+
+    /**
+     * Capacity of the caches of pure functions, or 0 if calls are not
+     * memoized, and the caches by function name and arity.
+     */
+    private int memoCapacity = 0;
+    private final Map<String, MemoCache> memoCaches = new LinkedHashMap<>();
+
+    /**
+     * Promotes hot functions to compiled code, or null to only interpret
+     * them, and the invoker of the running activation, whose loop back-edges
+     * count towards its hotness.
+     */
+    private Tiering tiering = null;
+    private FunctionInvoker running = null;
+
     public Interpreter(Scope parent) {
+        this(parent, PRINT);
+    }
+
+    /**
+     * Creates an interpreter whose print builtin is the given invoker, e.g. to
+     * capture output instead of writing to System.out.
+     */
+    public Interpreter(Scope parent, Environment.Invoker print) {
         scope = new Scope(parent);
-        scope.defineFunction("print", 1, args -> {
-            System.out.println(args.get(0).getValue());
-            return Environment.NIL;
-        });
+        scope.defineFunction("print", 1, print);
     }
 
     public Scope getScope() {
         return scope;
     }
 
+    /**
+     * Limits the number of steps (loop back-edges and function entries) this
+     * interpreter may execute before throwing a
+     * {@link BudgetExceededException}. Unlimited by default.
+     */
+    public void setBudget(long steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("The budget must not be negative.");
+        }
+        limit = steps;
+        budget = steps;
+        fuel = 0;
+    }
+
+    /**
+     * Returns the number of steps executed so far.
+     */
+    public long getSteps() {
+        return limit - budget - fuel;
+    }
+
+    /**
+     * Runs analyzed functions on a {@link Machine}, which keeps activations
+     * on the heap instead of the Java stack. A call beyond the given depth
+     * then throws a {@link PlcStackOverflowException}, independently of the
+     * thread's stack size.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("The maximum depth must be positive.");
+        }
+        machine = new Machine(this, maxDepth);
+    }
+
+    /**
+     * Memoizes calls of functions marked pure by {@link PurityAnalyzer}, each
+     * in a {@link MemoCache} of the given capacity. Calls with list arguments
+     * and list results are not cached, as lists are mutable. Applies to the
+     * functions defined after it is set, so it is set before running a source.
+     */
+    public void setMemoization(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        memoCapacity = capacity;
+    }
+
+    /**
+     * Returns the caches of the memoized functions, keyed by name/arity.
+     */
+    public Map<String, MemoCache> getMemoCaches() {
+        return Collections.unmodifiableMap(memoCaches);
+    }
+
+    /**
+     * Promotes hot functions to compiled code through the given
+     * {@link Tiering}, which may be shared by executions of the same source.
+     * Compiled code takes no steps, so functions are only promoted when
+     * neither a budget nor a maximum depth is set. Applies to the functions
+     * defined after it is set, so it is set before running a source.
+     */
+    public void setTiering(Tiering tiering) {
+        this.tiering = tiering;
+    }
+
+    private boolean isTiered() {
+        return tiering != null && machine == null && limit == Long.MAX_VALUE;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
         List<Ast.Global> globalList = ast.getGlobals();
@@ -31,7 +171,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         Environment.Function function = scope.lookupFunction("main", 0);
 
-        return function.invoke(new ArrayList<>());
+        return function.invoke0();
     }
 
     @Override
@@ -48,33 +188,16 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Function ast) {
-        List<String> parameterList = ast.getParameters();
-
-        Scope oldScope = scope;
-
-        scope.defineFunction(ast.getName(), parameterList.size(), args -> {
-            Scope newScope = scope;
-            try {
-                // Set up new scope.
-                scope = new Scope(oldScope);
-                // Define variables for the incoming arguments.
-                for (int i = 0; i < parameterList.size(); i++) {
-                    scope.defineVariable(parameterList.get(i), true, args.get(i));
-                }
-                // Returns the value contained in a Return exception if thrown, otherwise NIL.
-                try {
-                    ast.getStatements().forEach(this::visit);
-                    return Environment.NIL;
-                }
-                catch (Return r) {
-                    return r.value;
-                }
-            }
-            finally {
-                scope = newScope;
-            }
-        });
-
+        MemoCache memo = null;
+        if (memoCapacity > 0 && ast.isPure()) {
+            memo = new MemoCache(memoCapacity);
+            memoCaches.put(ast.getName() + "/" + ast.getParameters().size(), memo);
+        }
+        FunctionInvoker invoker = new FunctionInvoker(ast, scope, memo);
+        if (isTiered()) {
+            tiering.define(invoker);
+        }
+        scope.defineFunction(ast.getName(), ast.getParameters().size(), invoker);
         return Environment.NIL;
     }
 
@@ -86,11 +209,15 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Declaration ast) {
+        Environment.PlcObject value = Environment.NIL;
         if (ast.getValue().isPresent()) {
-            scope.defineVariable(ast.getName(), true, visit(ast.getValue().get()));
+            value = visit(ast.getValue().get());
+        }
+        if (frame != null) {
+            frame[ast.getVariable().getSlot()] = value;
         }
         else {
-            scope.defineVariable(ast.getName(), true, Environment.NIL);
+            scope.defineVariable(ast.getName(), true, value);
         }
         return Environment.NIL;
     }
@@ -98,15 +225,23 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Statement.Assignment ast) {
         Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        int slot = slotOf(receiver);
+        if (slot >= 0) {
+            // Frame locals are always mutable.
+            if (receiver.getOffset().isPresent()) {
+                frame[slot] = Environment.create(setElement(frame[slot], receiver, ast));
+            }
+            else {
+                frame[slot] = visit(ast.getValue());
+            }
+            return Environment.NIL;
+        }
         Environment.Variable var = scope.lookupVariable(receiver.getName());
         if (!var.getMutable())
             throw new RuntimeException("Tried to mutate immutable variable");
         if (receiver.getOffset().isPresent())
         {
-            List<Object> list = (List<Object>) var.getValue().getValue();
-            Ast.Expression.Literal temp = (Ast.Expression.Literal) ast.getValue();
-            list.set(((BigInteger)visit(receiver.getOffset().get()).getValue()).intValue(), temp.getLiteral());
-            var.setValue(Environment.create(list));
+            var.setValue(Environment.create(setElement(var.getValue(), receiver, ast)));
         }
         else
         {
@@ -119,22 +254,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Statement.If ast) {
         if (requireType(Boolean.class, visit(ast.getCondition()))) {
-            try {
-                scope = new Scope(scope);
-                ast.getThenStatements().forEach(this::visit);
-            }
-            finally {
-                scope = scope.getParent();
-            }
+            executeBlock(ast.getThenStatements());
         }
         else {
-            try {
-                scope = new Scope(scope);
-                ast.getElseStatements().forEach(this::visit);
-            }
-            finally {
-                scope = scope.getParent();
-            }
+            executeBlock(ast.getElseStatements());
         }
         return Environment.NIL;
     }
@@ -145,6 +268,12 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         Environment.PlcObject condition = visit(ast.getCondition());
         List<Ast.Statement.Case> cases = ast.getCases();
 
+        // Analyzed switches over constant cases dispatch through their jump table.
+        if (ast.getJumpTable() != null) {
+            Ast.Statement.Case match = ast.getJumpTable().get(condition.getValue());
+            return visit(match != null ? match : cases.get(cases.size() - 1));
+        }
+
         for (int i = 0; i < ast.getCases().size() - 1; i++) {
             if (condition.getValue().equals(visit(cases.get(i).getValue().get()).getValue())) {
                 return visit(cases.get(i));
@@ -156,25 +285,22 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     //TODO
     public Environment.PlcObject visit(Ast.Statement.Case ast) {
-        try {
-            scope = new Scope(scope);
-            ast.getStatements().forEach(this::visit);
-        }
-        finally {
-            scope = scope.getParent();
-        }
+        executeBlock(ast.getStatements());
         return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.While ast) {
-        while (requireType(Boolean.class, visit(ast.getCondition()))) {
-            try {
-                scope = new Scope(scope);
-                ast.getStatements().forEach(this::visit);
-            }
-            finally {
-                scope = scope.getParent();
+        while (returnValue == null && requireType(Boolean.class, visit(ast.getCondition()))) {
+            executeBlock(ast.getStatements());
+            // A back-edge is only taken if the block did not return.
+            if (returnValue == null) {
+                if (--fuel < 0) {
+                    refuel();
+                }
+                if (running != null) {
+                    running.heat();
+                }
             }
         }
         return Environment.NIL;
@@ -182,7 +308,24 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Return ast) {
-        throw new Return(visit(ast.getValue()));
+        if (ast.isTailCall()) {
+            Ast.Expression.Function call = (Ast.Expression.Function) ast.getValue();
+            Environment.Invoker invoker = scope.lookupFunction(call.getName(), call.getArguments().size()).getInvoker();
+            // Native and compiled functions are called normally, as they do not recurse into the interpreter.
+            if (invoker instanceof FunctionInvoker && ((FunctionInvoker) invoker).interpreter() == this && !((FunctionInvoker) invoker).isMemoized() && !((FunctionInvoker) invoker).isCompiled()) {
+                FunctionInvoker callee = (FunctionInvoker) invoker;
+                Environment.PlcObject[] arguments = callee.frame();
+                for (int i = 0; i < call.getArguments().size(); i++) {
+                    arguments[i] = visit(call.getArguments().get(i));
+                }
+                tailCallee = callee;
+                tailArguments = arguments;
+                returnValue = TAIL_CALL;
+                return Environment.NIL;
+            }
+        }
+        returnValue = visit(ast.getValue());
+        return Environment.NIL;
     }
 
     @Override
@@ -406,7 +549,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 throw new RuntimeException("Not BigInteger Class.");
             }
             else {
-                List<Object> list = (List<Object>) scope.lookupVariable(ast.getName()).getValue().getValue();
+                List<Object> list = (List<Object>) load(ast).getValue();
                 BigInteger offset = (BigInteger) visit(ast.getOffset().get()).getValue();
                 if (offset.intValue() >= list.size() || offset.intValue() < 0) {
                     throw new RuntimeException("Out of Bound.");
@@ -417,21 +560,35 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             }
         }
         else {
-            return scope.lookupVariable(ast.getName()).getValue();
+            return load(ast);
         }
     }
 
     @Override
     //TODO
     public Environment.PlcObject visit(Ast.Expression.Function ast) {
-        Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
-        List<Environment.PlcObject> newList = new ArrayList<Environment.PlcObject>();
-
-        for (int i = 0; i < ast.getArguments().size(); i++) {
-            newList.add(i, visit(ast.getArguments().get(i)));
+        List<Ast.Expression> arguments = ast.getArguments();
+        Environment.Function function = scope.lookupFunction(ast.getName(), arguments.size());
+
+        // Arguments are evaluated left to right in every case.
+        switch (arguments.size()) {
+            case 0:
+                return function.invoke0();
+            case 1:
+                return function.invoke1(visit(arguments.get(0)));
+            case 2:
+                return function.invoke2(visit(arguments.get(0)), visit(arguments.get(1)));
+            case 3:
+                return function.invoke3(visit(arguments.get(0)), visit(arguments.get(1)), visit(arguments.get(2)));
+            case 4:
+                return function.invoke4(visit(arguments.get(0)), visit(arguments.get(1)), visit(arguments.get(2)), visit(arguments.get(3)));
+            default:
+                Environment.PlcObject[] values = new Environment.PlcObject[arguments.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = visit(arguments.get(i));
+                }
+                return function.invoke(values);
         }
-
-        return function.invoke(newList);
     }
 
     @Override
@@ -444,10 +601,160 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         }
         return Environment.create(newList);
     }
+
+    /**
+     * Invokes a PLC function on an array holding its arguments in the first
+     * slots. For analyzed functions that array is the activation's frame.
+     *
+     * Tail calls are trampolined: the returning activation is replaced by the
+     * callee in this loop, so they do not grow the Java stack.
+     */
+    private Environment.PlcObject call(Ast.Function ast, Scope definition, Environment.PlcObject[] arguments) {
+        if (machine != null && ast.getFrameSize() >= 0) {
+            return machine.run(ast, definition, arguments);
+        }
+        Scope newScope = scope;
+        Environment.PlcObject[] callerFrame = frame;
+        try {
+            while (true) {
+                if (--fuel < 0) {
+                    refuel();
+                }
+                if (ast.getFrameSize() >= 0) {
+                    scope = definition;
+                    frame = arguments;
+                }
+                else {
+                    // Set up new scope.
+                    scope = new Scope(definition);
+                    frame = null;
+                    // Define variables for the incoming arguments.
+                    for (int i = 0; i < ast.getParameters().size(); i++) {
+                        scope.defineVariable(ast.getParameters().get(i), true, arguments[i]);
+                    }
+                }
+                // Returns the value of the completed RETURN if there was one, otherwise NIL.
+                execute(ast.getStatements());
+                if (returnValue != TAIL_CALL) {
+                    return returnValue != null ? returnValue : Environment.NIL;
+                }
+                if (running != null) {
+                    running = tailCallee;
+                    running.heat();
+                }
+                ast = tailCallee.ast;
+                definition = tailCallee.definition;
+                arguments = tailArguments;
+                returnValue = null;
+                tailCallee = null;
+                tailArguments = null;
+            }
+        }
+        finally {
+            scope = newScope;
+            frame = callerFrame;
+            returnValue = null;
+        }
+    }
+
+    /**
+     * Executes statements in order, stopping early once a RETURN has completed.
+     */
+    private void execute(List<Ast.Statement> statements) {
+        for (Ast.Statement statement : statements) {
+            visit(statement);
+            if (returnValue != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Executes the statements of a nested block. Blocks of analyzed functions
+     * share the function's frame, so only unanalyzed code needs a new scope.
+     */
+    private void executeBlock(List<Ast.Statement> statements) {
+        if (frame != null) {
+            execute(statements);
+            return;
+        }
+        try {
+            scope = new Scope(scope);
+            execute(statements);
+        }
+        finally {
+            scope = scope.getParent();
+        }
+    }
+
+    /**
+     * Returns the frame slot of the accessed variable, or -1 if it has to be
+     * looked up by name in the current scope.
+     */
+    private int slotOf(Ast.Expression.Access ast) {
+        return frame != null ? ast.getVariable().getSlot() : -1;
+    }
+
+    /**
+     * Returns the current value of the accessed variable.
+     */
+    private Environment.PlcObject load(Ast.Expression.Access ast) {
+        int slot = slotOf(ast);
+        return slot >= 0 ? frame[slot] : scope.lookupVariable(ast.getName()).getValue();
+    }
+
+    /**
+     * Stores the (literal) value of a list element assignment into the list
+     * held by {@code current}, returning the list.
+     */
+    private List<Object> setElement(Environment.PlcObject current, Ast.Expression.Access receiver, Ast.Statement.Assignment ast) {
+        List<Object> list = (List<Object>) current.getValue();
+        Ast.Expression.Literal temp = (Ast.Expression.Literal) ast.getValue();
+        list.set(((BigInteger)visit(receiver.getOffset().get()).getValue()).intValue(), temp.getLiteral());
+        return list;
+    }
+
+    /**
+     * Implementation of the print builtin. System.out is read on every call,
+     * since callers (such as tests) may replace it.
+     */
+    static void print(Object value) {
+        System.out.println(value);
+    }
+
+    /**
+     * Takes a step, see {@link #fuel}.
+     */
+    void step() {
+        if (--fuel < 0) {
+            refuel();
+        }
+    }
+
+    /**
+     * Slow path of a step, taken every {@link #SAFEPOINT_INTERVAL} steps: aborts
+     * the execution if the running thread has been interrupted (which is how
+     * {@link ExecutionService} stops executions that timed out) or the budget
+     * is used up, and otherwise hands out the next steps. The step being taken
+     * has already decremented fuel to -1.
+     */
+    private void refuel() {
+        fuel = 0;
+        if (Thread.interrupted()) {
+            throw new CancellationException("The execution was interrupted.");
+        }
+        if (budget == 0) {
+            throw new BudgetExceededException("The execution exceeded its budget of " + limit + " steps.", getSteps());
+        }
+        int steps = (int) Math.min(budget, SAFEPOINT_INTERVAL);
+        budget -= steps;
+        fuel = steps - 1;
+    }
+
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
-    private static <T> T requireType(Class<T> type, Environment.PlcObject object) {
+    static <T> T requireType(Class<T> type, Environment.PlcObject object) {
         if (type.isInstance(object.getValue())) {
             return type.cast(object.getValue());
         } else {
@@ -456,14 +763,189 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * Invoker for a PLC function defined by {@link #visit(Ast.Function)}. The
+     * arity-specialized entry points write the arguments straight into a new
+     * frame, so a call allocates nothing besides that frame.
      */
-    private static class Return extends RuntimeException {
+    final class FunctionInvoker extends Environment.Invoker {
+
+        private final Ast.Function ast;
+        private final Scope definition;
+        private final MemoCache memo;
+
+        /**
+         * Invocations and back-edges counted towards a promotion by
+         * {@link #tiering}, and the compiled code once it is bound.
+         */
+        private int hotness = 0;
+        private volatile Environment.Invoker compiled = null;
+
+        private FunctionInvoker(Ast.Function ast, Scope definition, MemoCache memo) {
+            this.ast = ast;
+            this.definition = definition;
+            this.memo = memo;
+        }
+
+        Ast.Function getAst() {
+            return ast;
+        }
 
-        private final Environment.PlcObject value;
+        Scope getDefinition() {
+            return definition;
+        }
+
+        Environment.PlcObject[] frame() {
+            return new Environment.PlcObject[Math.max(ast.getFrameSize(), ast.getParameters().size())];
+        }
+
+        Interpreter interpreter() {
+            return Interpreter.this;
+        }
+
+        /**
+         * Returns whether calls go through a cache, in which case they are
+         * not trampolined or run on a {@link Machine} stack directly.
+         */
+        boolean isMemoized() {
+            return memo != null;
+        }
 
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+        boolean isCompiled() {
+            return compiled != null;
+        }
+
+        /**
+         * Replaces the interpreted function with compiled code for all
+         * subsequent calls; activations already running are not affected.
+         */
+        void bind(Environment.Invoker invoker) {
+            compiled = invoker;
+        }
+
+        /**
+         * Counts an invocation or back-edge, promoting the function once it
+         * reaches the threshold.
+         */
+        private void heat() {
+            if (hotness >= 0 && ++hotness >= tiering.getThreshold()) {
+                hotness = -1;
+                tiering.promote(this);
+            }
+        }
+
+        private Environment.PlcObject invokeFrame(Environment.PlcObject[] frame) {
+            if (!isTiered()) {
+                return invokeMemo(frame);
+            }
+            FunctionInvoker caller = running;
+            try {
+                running = this;
+                heat();
+                return invokeMemo(frame);
+            }
+            finally {
+                running = caller;
+            }
+        }
+
+        private Environment.PlcObject invokeMemo(Environment.PlcObject[] frame) {
+            Object key = memo != null ? key(frame) : null;
+            if (key == null) {
+                return call(ast, definition, frame);
+            }
+            Environment.PlcObject result = memo.get(key);
+            if (result == null) {
+                result = call(ast, definition, frame);
+                if (!(result.getValue() instanceof List)) {
+                    memo.put(key, result);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the cache key of the arguments in a frame, or null if they
+         * include a list.
+         */
+        private Object key(Environment.PlcObject[] frame) {
+            Object[] values = new Object[ast.getParameters().size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = frame[i].getValue();
+                if (values[i] instanceof List) {
+                    return null;
+                }
+            }
+            return values.length == 1 ? values[0] : Arrays.asList(values);
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject... arguments) {
+            Environment.Invoker compiled = this.compiled;
+            if (compiled != null) {
+                return compiled.invoke(arguments);
+            }
+            Environment.PlcObject[] frame = frame();
+            System.arraycopy(arguments, 0, frame, 0, arguments.length);
+            return invokeFrame(frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke0() {
+            Environment.Invoker compiled = this.compiled;
+            if (compiled != null) {
+                return compiled.invoke0();
+            }
+            return invokeFrame(frame());
+        }
+
+        @Override
+        public Environment.PlcObject invoke1(Environment.PlcObject argument0) {
+            Environment.Invoker compiled = this.compiled;
+            if (compiled != null) {
+                return compiled.invoke1(argument0);
+            }
+            Environment.PlcObject[] frame = frame();
+            frame[0] = argument0;
+            return invokeFrame(frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke2(Environment.PlcObject argument0, Environment.PlcObject argument1) {
+            Environment.Invoker compiled = this.compiled;
+            if (compiled != null) {
+                return compiled.invoke2(argument0, argument1);
+            }
+            Environment.PlcObject[] frame = frame();
+            frame[0] = argument0;
+            frame[1] = argument1;
+            return invokeFrame(frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke3(Environment.PlcObject argument0, Environment.PlcObject argument1, Environment.PlcObject argument2) {
+            Environment.Invoker compiled = this.compiled;
+            if (compiled != null) {
+                return compiled.invoke3(argument0, argument1, argument2);
+            }
+            Environment.PlcObject[] frame = frame();
+            frame[0] = argument0;
+            frame[1] = argument1;
+            frame[2] = argument2;
+            return invokeFrame(frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke4(Environment.PlcObject argument0, Environment.PlcObject argument1, Environment.PlcObject argument2, Environment.PlcObject argument3) {
+            Environment.Invoker compiled = this.compiled;
+            if (compiled != null) {
+                return compiled.invoke4(argument0, argument1, argument2, argument3);
+            }
+            Environment.PlcObject[] frame = frame();
+            frame[0] = argument0;
+            frame[1] = argument1;
+            frame[2] = argument2;
+            frame[3] = argument3;
+            return invokeFrame(frame);
         }
 
     }
@@ -0,0 +1,82 @@
+package plc.project;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Creates the locals that optimization passes add to the functions of a
+ * source. Their names are distinct from every name in the source, as the
+ * generated Java does not allow one local to shadow another.
+ */
+final class Locals {
+
+    private final Set<String> names = new HashSet<>();
+
+    Locals(Ast.Source source) {
+        for (Ast.Global global : source.getGlobals()) {
+            names.add(global.getVariable().getJvmName());
+        }
+        for (Ast.Function function : source.getFunctions()) {
+            names.add(function.getFunction().getJvmName());
+            names.addAll(names(function));
+        }
+    }
+
+    /**
+     * Returns the names of the parameters and locals of a function.
+     */
+    static Set<String> names(Ast.Function function) {
+        Set<String> names = new HashSet<>(function.getParameters());
+        declarations(function.getStatements(), names);
+        return names;
+    }
+
+    /**
+     * Returns a new local in the given frame slot, named after the given name.
+     */
+    Environment.Variable fresh(String name, Environment.Type type, int slot) {
+        int suffix = 1;
+        while (names.contains(name + "_" + suffix)) {
+            suffix++;
+        }
+        names.add(name + "_" + suffix);
+        Environment.Variable variable = new Environment.Variable(name + "_" + suffix, name + "_" + suffix, type, true, Environment.NIL);
+        variable.setSlot(slot);
+        return variable;
+    }
+
+    static Ast.Statement.Declaration declaration(Environment.Variable variable, Ast.Expression value) {
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(variable.getName(), Optional.of(variable.getType().getName()), Optional.of(value));
+        declaration.setVariable(variable);
+        return declaration;
+    }
+
+    static Ast.Expression.Access access(Environment.Variable variable) {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), variable.getName());
+        access.setVariable(variable);
+        return access;
+    }
+
+    private static void declarations(List<Ast.Statement> statements, Set<String> names) {
+        for (Ast.Statement statement : statements) {
+            if (statement instanceof Ast.Statement.Declaration) {
+                names.add(((Ast.Statement.Declaration) statement).getName());
+            }
+            else if (statement instanceof Ast.Statement.If) {
+                declarations(((Ast.Statement.If) statement).getThenStatements(), names);
+                declarations(((Ast.Statement.If) statement).getElseStatements(), names);
+            }
+            else if (statement instanceof Ast.Statement.Switch) {
+                for (Ast.Statement.Case c : ((Ast.Statement.Switch) statement).getCases()) {
+                    declarations(c.getStatements(), names);
+                }
+            }
+            else if (statement instanceof Ast.Statement.While) {
+                declarations(((Ast.Statement.While) statement).getStatements(), names);
+            }
+        }
+    }
+
+}
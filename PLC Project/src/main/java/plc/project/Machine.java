@@ -0,0 +1,977 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Executes analyzed functions on a heap-allocated call stack, so the depth of
+ * PLC recursion is limited by a configurable maximum rather than the size of
+ * the thread's stack.
+ *
+ * Each function is compiled once into {@link Code} for a small stack machine.
+ * Activations are linked {@link Activation} records and operands live on an
+ * explicit stack, so a PLC call from compiled code only pushes a record. Calls
+ * to native functions (and functions of unanalyzed code) are made directly.
+ *
+ * Compiled code evaluates every expression exactly as often, and in the same
+ * order, as the tree-walking {@link Interpreter} does, including operands the
+ * interpreter visits several times; each expression is compiled once into a
+ * subroutine that is called with {@code EVAL} wherever it is visited.
+ */
+final class Machine {
+
+    private static final int EVAL = 0;            // label: call the subroutine of an expression
+    private static final int RET = 1;             // return from a subroutine
+    private static final int LITERAL = 2;         // constant: push the literal
+    private static final int NIL = 3;
+    private static final int TRUE = 4;
+    private static final int FALSE = 5;
+    private static final int LIST = 6;            // constant: push a new list of the literals
+    private static final int LOAD = 7;            // slot
+    private static final int STORE = 8;           // slot
+    private static final int LOAD_NAME = 9;       // constant: name of a variable in scope
+    private static final int STORE_NAME = 10;     // constant: name
+    private static final int CHECK_MUTABLE = 11;  // constant: name
+    private static final int GROUP = 12;
+    private static final int CAST = 13;           // constant: class the top value must have
+    private static final int REQUIRE = 14;        // constant: class, as Interpreter.requireType
+    private static final int INSTANCE_JUMP = 15;  // constant, label: pop, jump if an instance
+    private static final int OTHER_JUMP = 16;     // constant, label: pop, jump if not an instance
+    private static final int TRUE_JUMP = 17;      // label: pop a Boolean, jump if true
+    private static final int FALSE_JUMP = 18;     // label: pop a Boolean, jump if false
+    private static final int DIFFERENT_JUMP = 19; // label: pop two, jump unless the values are identical
+    private static final int SAME_CLASS = 20;
+    private static final int LESS = 21;
+    private static final int GREATER = 22;
+    private static final int CONCAT = 23;
+    private static final int ADD_INTEGER = 24;
+    private static final int SUBTRACT_INTEGER = 25;
+    private static final int MULTIPLY_INTEGER = 26;
+    private static final int DIVIDE_INTEGER = 27;
+    private static final int ADD_DECIMAL = 28;
+    private static final int SUBTRACT_DECIMAL = 29;
+    private static final int MULTIPLY_DECIMAL = 30;
+    private static final int DIVIDE_DECIMAL = 31;
+    private static final int POWER_INTEGER = 32;
+    private static final int POWER_DECIMAL = 33;
+    private static final int THROW = 34;          // constant: exception message
+    private static final int THROW_CAST = 35;     // constant: exception message
+    private static final int CHECK_INDEX = 36;
+    private static final int INDEX = 37;
+    private static final int SET_ELEMENT = 38;    // constant: literal
+    private static final int LOOKUP = 39;         // constant: call
+    private static final int INVOKE = 40;         // arity
+    private static final int TAIL_INVOKE = 41;    // arity
+    private static final int POP = 42;
+    private static final int DUP = 43;
+    private static final int EQUAL_JUMP = 44;     // label: pop two, jump if the values are equal
+    private static final int TABLE = 45;          // constant, label: pop, jump to the matching case or the label
+    private static final int JUMP = 46;           // label
+    private static final int STEP = 47;
+    private static final int RETURN = 48;
+
+    private final Interpreter interpreter;
+    private final int maxDepth;
+    private int depth = 0;
+
+    Machine(Interpreter interpreter, int maxDepth) {
+        this.interpreter = interpreter;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Invokes an analyzed function on an array holding its arguments in the
+     * first slots, which becomes the frame of the activation.
+     */
+    Environment.PlcObject run(Ast.Function function, Scope definition, Environment.PlcObject[] arguments) {
+        int entryDepth = depth;
+        try {
+            return execute(enter(null, function, definition, arguments));
+        }
+        finally {
+            depth = entryDepth;
+        }
+    }
+
+    private Activation enter(Activation caller, Ast.Function function, Scope definition, Environment.PlcObject[] frame) {
+        if (depth == maxDepth) {
+            throw new PlcStackOverflowException("The call stack exceeded its maximum depth of " + maxDepth + ".", maxDepth);
+        }
+        depth++;
+        interpreter.step();
+        return new Activation(caller, code(function), definition, frame);
+    }
+
+    /**
+     * Returns the compiled code of a function, compiling it on first use. The
+     * code is immutable, so executions on other threads may race to compile
+     * it and share either result.
+     */
+    private static Code code(Ast.Function function) {
+        Code code = function.getCode();
+        if (code == null) {
+            code = new Compiler().compile(function);
+            function.setCode(code);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the activation a call to the given function pushes, or null if
+     * it is not an analyzed function of this interpreter and is invoked
+     * directly instead.
+     */
+    private Interpreter.FunctionInvoker callee(Environment.Function function) {
+        if (function.getInvoker() instanceof Interpreter.FunctionInvoker) {
+            Interpreter.FunctionInvoker invoker = (Interpreter.FunctionInvoker) function.getInvoker();
+            if (invoker.interpreter() == interpreter && invoker.getAst().getFrameSize() >= 0 && !invoker.isMemoized()) {
+                return invoker;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("fallthrough")
+    private Environment.PlcObject execute(Activation activation) {
+        Object[] stack = new Object[16];
+        int sp = 0;
+        int[] returns = new int[16];
+        int rp = 0;
+
+        int[] code = activation.code.instructions;
+        Object[] constants = activation.code.constants;
+        Environment.PlcObject[] frame = activation.frame;
+        Scope scope = activation.scope;
+        int pc = 0;
+
+        while (true) {
+            if (stack.length - sp < 2) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            switch (code[pc++]) {
+                case EVAL:
+                    if (rp == returns.length) {
+                        returns = Arrays.copyOf(returns, returns.length * 2);
+                    }
+                    returns[rp++] = pc + 1;
+                    pc = code[pc];
+                    break;
+                case RET:
+                    pc = returns[--rp];
+                    break;
+                case LITERAL:
+                    stack[sp++] = Environment.create(constants[code[pc++]]);
+                    break;
+                case NIL:
+                    stack[sp++] = Environment.NIL;
+                    break;
+                case TRUE:
+                    stack[sp++] = Environment.create(true);
+                    break;
+                case FALSE:
+                    stack[sp++] = Environment.create(false);
+                    break;
+                case LIST:
+                    stack[sp++] = Environment.create(new ArrayList<>((List<?>) constants[code[pc++]]));
+                    break;
+                case LOAD:
+                    stack[sp++] = frame[code[pc++]];
+                    break;
+                case STORE:
+                    frame[code[pc++]] = (Environment.PlcObject) stack[--sp];
+                    break;
+                case LOAD_NAME:
+                    stack[sp++] = scope.lookupVariable((String) constants[code[pc++]]).getValue();
+                    break;
+                case STORE_NAME:
+                    scope.lookupVariable((String) constants[code[pc++]]).setValue((Environment.PlcObject) stack[--sp]);
+                    break;
+                case CHECK_MUTABLE:
+                    if (!scope.lookupVariable((String) constants[code[pc++]]).getMutable()) {
+                        throw new RuntimeException("Tried to mutate immutable variable");
+                    }
+                    break;
+                case GROUP:
+                    stack[sp - 1] = Environment.create(value(stack[sp - 1]));
+                    break;
+                case CAST:
+                    ((Class<?>) constants[code[pc++]]).cast(value(stack[sp - 1]));
+                    break;
+                case REQUIRE:
+                    Interpreter.requireType((Class<?>) constants[code[pc++]], (Environment.PlcObject) stack[sp - 1]);
+                    break;
+                case INSTANCE_JUMP:
+                    if (((Class<?>) constants[code[pc++]]).isInstance(value(stack[--sp]))) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case OTHER_JUMP:
+                    if (!((Class<?>) constants[code[pc++]]).isInstance(value(stack[--sp]))) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case TRUE_JUMP:
+                    if (Interpreter.requireType(Boolean.class, (Environment.PlcObject) stack[--sp])) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case FALSE_JUMP:
+                    if (!Interpreter.requireType(Boolean.class, (Environment.PlcObject) stack[--sp])) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case DIFFERENT_JUMP:
+                    sp -= 2;
+                    if (value(stack[sp]) != value(stack[sp + 1])) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case SAME_CLASS:
+                    sp -= 2;
+                    if (!value(stack[sp]).getClass().equals(value(stack[sp + 1]).getClass())) {
+                        throw new RuntimeException("Not the same class");
+                    }
+                    break;
+                case LESS:
+                    sp--;
+                    stack[sp - 1] = Environment.create(compare(stack[sp - 1], stack[sp]) == -1);
+                    break;
+                case GREATER:
+                    sp--;
+                    stack[sp - 1] = Environment.create(compare(stack[sp - 1], stack[sp]) == 1);
+                    break;
+                case CONCAT:
+                    sp--;
+                    stack[sp - 1] = Environment.create((String) value(stack[sp - 1]) + (String) value(stack[sp]));
+                    break;
+                case ADD_INTEGER:
+                    sp--;
+                    stack[sp - 1] = Environment.create(BigInteger.valueOf(integer(stack[sp - 1]) + integer(stack[sp])));
+                    break;
+                case SUBTRACT_INTEGER:
+                    sp--;
+                    stack[sp - 1] = Environment.create(BigInteger.valueOf(integer(stack[sp - 1]) - integer(stack[sp])));
+                    break;
+                case MULTIPLY_INTEGER:
+                    sp--;
+                    stack[sp - 1] = Environment.create(BigInteger.valueOf(integer(stack[sp - 1]) * integer(stack[sp])));
+                    break;
+                case DIVIDE_INTEGER:
+                    sp--;
+                    if (integer(stack[sp]) == 0) {
+                        throw new RuntimeException("Denominator is zero");
+                    }
+                    stack[sp - 1] = Environment.create(BigInteger.valueOf(integer(stack[sp - 1]) / integer(stack[sp])));
+                    break;
+                case ADD_DECIMAL:
+                    sp--;
+                    stack[sp - 1] = Environment.create(BigDecimal.valueOf(decimal(stack[sp - 1]) + decimal(stack[sp])));
+                    break;
+                case SUBTRACT_DECIMAL:
+                    sp--;
+                    stack[sp - 1] = Environment.create(BigDecimal.valueOf(decimal(stack[sp - 1]) - decimal(stack[sp])));
+                    break;
+                case MULTIPLY_DECIMAL:
+                    sp--;
+                    stack[sp - 1] = Environment.create(BigDecimal.valueOf(decimal(stack[sp - 1]) * decimal(stack[sp])));
+                    break;
+                case DIVIDE_DECIMAL:
+                    sp--;
+                    if (decimal(stack[sp]) == 0.0) {
+                        throw new RuntimeException("Denominator is zero");
+                    }
+                    stack[sp - 1] = Environment.create(BigDecimal.valueOf(decimal(stack[sp - 1]) / decimal(stack[sp])).setScale(1, RoundingMode.HALF_EVEN));
+                    break;
+                case POWER_INTEGER:
+                    // The exponent is below the base, as it is visited first.
+                    sp--;
+                    stack[sp - 1] = Environment.create(Math.pow(integer(stack[sp]), integer(stack[sp - 1])));
+                    break;
+                case POWER_DECIMAL:
+                    sp--;
+                    stack[sp - 1] = Environment.create(Math.pow(decimal(stack[sp]), integer(stack[sp - 1])));
+                    break;
+                case THROW:
+                    throw new RuntimeException((String) constants[code[pc]]);
+                case THROW_CAST:
+                    throw new ClassCastException((String) constants[code[pc]]);
+                case CHECK_INDEX:
+                    if (!(value(stack[--sp]) instanceof BigInteger)) {
+                        throw new RuntimeException("Not BigInteger Class.");
+                    }
+                    break;
+                case INDEX: {
+                    sp--;
+                    List<?> list = (List<?>) value(stack[sp - 1]);
+                    BigInteger offset = (BigInteger) value(stack[sp]);
+                    if (offset.intValue() >= list.size() || offset.intValue() < 0) {
+                        throw new RuntimeException("Out of Bound.");
+                    }
+                    stack[sp - 1] = Environment.create(list.get(offset.intValue()));
+                    break;
+                }
+                case SET_ELEMENT: {
+                    sp--;
+                    @SuppressWarnings("unchecked")
+                    List<Object> list = (List<Object>) value(stack[sp - 1]);
+                    list.set(((BigInteger) value(stack[sp])).intValue(), constants[code[pc++]]);
+                    stack[sp - 1] = Environment.create(list);
+                    break;
+                }
+                case LOOKUP: {
+                    Call call = (Call) constants[code[pc++]];
+                    stack[sp++] = scope.lookupFunction(call.name, call.arity);
+                    break;
+                }
+                case INVOKE:
+                case TAIL_INVOKE: {
+                    boolean tail = code[pc - 1] == TAIL_INVOKE;
+                    int arity = code[pc++];
+                    sp -= arity;
+                    Environment.Function function = (Environment.Function) stack[sp - 1];
+                    Interpreter.FunctionInvoker callee = callee(function);
+                    Environment.PlcObject result;
+                    if (callee != null) {
+                        Environment.PlcObject[] arguments = callee.frame();
+                        System.arraycopy(stack, sp, arguments, 0, arity);
+                        Arrays.fill(stack, sp - 1, sp + arity, null);
+                        sp--;
+                        if (tail) {
+                            // The callee replaces the returning activation.
+                            depth--;
+                            activation = enter(activation.caller, callee.getAst(), callee.getDefinition(), arguments);
+                        }
+                        else {
+                            activation.pc = pc;
+                            activation = enter(activation, callee.getAst(), callee.getDefinition(), arguments);
+                        }
+                        code = activation.code.instructions;
+                        constants = activation.code.constants;
+                        frame = activation.frame;
+                        scope = activation.scope;
+                        pc = 0;
+                        break;
+                    }
+                    result = invoke(function, stack, sp, arity);
+                    Arrays.fill(stack, sp, sp + arity, null);
+                    stack[sp - 1] = result;
+                    if (!tail) {
+                        break;
+                    }
+                }
+                // Fall through to return the result of a direct tail call.
+                case RETURN: {
+                    Environment.PlcObject result = (Environment.PlcObject) stack[--sp];
+                    stack[sp] = null;
+                    depth--;
+                    activation = activation.caller;
+                    if (activation == null) {
+                        return result;
+                    }
+                    stack[sp++] = result;
+                    code = activation.code.instructions;
+                    constants = activation.code.constants;
+                    frame = activation.frame;
+                    scope = activation.scope;
+                    pc = activation.pc;
+                    break;
+                }
+                case POP:
+                    stack[--sp] = null;
+                    break;
+                case DUP:
+                    stack[sp] = stack[sp - 1];
+                    sp++;
+                    break;
+                case EQUAL_JUMP:
+                    sp -= 2;
+                    if (value(stack[sp]).equals(value(stack[sp + 1]))) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case TABLE: {
+                    Integer target = (Integer) ((Map<?, ?>) constants[code[pc++]]).get(value(stack[--sp]));
+                    pc = target != null ? target : code[pc];
+                    break;
+                }
+                case JUMP:
+                    pc = code[pc];
+                    break;
+                case STEP:
+                    interpreter.step();
+                    break;
+                default:
+                    throw new AssertionError("Unknown instruction " + code[pc - 1] + ".");
+            }
+        }
+    }
+
+    private static Object value(Object object) {
+        return ((Environment.PlcObject) object).getValue();
+    }
+
+    private static int integer(Object object) {
+        return ((BigInteger) value(object)).intValue();
+    }
+
+    private static double decimal(Object object) {
+        return ((BigDecimal) value(object)).doubleValue();
+    }
+
+    private static int compare(Object left, Object right) {
+        @SuppressWarnings("unchecked")
+        Comparable<Object> comparable = (Comparable<Object>) value(left);
+        return comparable.compareTo(value(right));
+    }
+
+    private static Environment.PlcObject invoke(Environment.Function function, Object[] stack, int from, int arity) {
+        switch (arity) {
+            case 0:
+                return function.invoke0();
+            case 1:
+                return function.invoke1((Environment.PlcObject) stack[from]);
+            case 2:
+                return function.invoke2((Environment.PlcObject) stack[from], (Environment.PlcObject) stack[from + 1]);
+            case 3:
+                return function.invoke3((Environment.PlcObject) stack[from], (Environment.PlcObject) stack[from + 1], (Environment.PlcObject) stack[from + 2]);
+            case 4:
+                return function.invoke4((Environment.PlcObject) stack[from], (Environment.PlcObject) stack[from + 1], (Environment.PlcObject) stack[from + 2], (Environment.PlcObject) stack[from + 3]);
+            default:
+                Environment.PlcObject[] arguments = new Environment.PlcObject[arity];
+                System.arraycopy(stack, from, arguments, 0, arity);
+                return function.invoke(arguments);
+        }
+    }
+
+    /**
+     * The compiled instructions of a function with their constants.
+     */
+    static final class Code {
+
+        private final int[] instructions;
+        private final Object[] constants;
+
+        private Code(int[] instructions, Object[] constants) {
+            this.instructions = instructions;
+            this.constants = constants;
+        }
+
+    }
+
+    /**
+     * An activation record: the code, frame and definition scope of a call,
+     * and where the caller continues.
+     */
+    private static final class Activation {
+
+        private final Activation caller;
+        private final Code code;
+        private final Scope scope;
+        private final Environment.PlcObject[] frame;
+        private int pc;
+
+        private Activation(Activation caller, Code code, Scope scope, Environment.PlcObject[] frame) {
+            this.caller = caller;
+            this.code = code;
+            this.scope = scope;
+            this.frame = frame;
+        }
+
+    }
+
+    private static final class Call {
+
+        private final String name;
+        private final int arity;
+
+        private Call(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+    }
+
+    /**
+     * Compiles a function: its statements are compiled in place, and each
+     * expression that is not a literal or plain variable access becomes a
+     * subroutine placed after them.
+     */
+    private static final class Compiler {
+
+        private int[] code = new int[64];
+        private int size = 0;
+        private final List<Object> constants = new ArrayList<>();
+        private final List<Integer> labels = new ArrayList<>();
+        private final List<Integer> references = new ArrayList<>();
+        private final List<Integer> tables = new ArrayList<>();
+        private final Map<Ast.Expression, Integer> subroutines = new IdentityHashMap<>();
+        private final ArrayDeque<Ast.Expression> pending = new ArrayDeque<>();
+
+        private Code compile(Ast.Function function) {
+            statements(function.getStatements());
+            emit(NIL);
+            emit(RETURN);
+            while (!pending.isEmpty()) {
+                Ast.Expression expression = pending.poll();
+                mark(subroutines.get(expression));
+                expression(expression);
+                emit(RET);
+            }
+            for (int reference : references) {
+                code[reference] = labels.get(code[reference]);
+            }
+            for (int table : tables) {
+                Map<Object, Integer> targets = new HashMap<>();
+                ((Map<?, ?>) constants.get(table)).forEach((value, label) -> targets.put(value, labels.get((Integer) label)));
+                constants.set(table, targets);
+            }
+            return new Code(Arrays.copyOf(code, size), constants.toArray());
+        }
+
+        private void statements(List<Ast.Statement> statements) {
+            statements.forEach(this::statement);
+        }
+
+        private void statement(Ast.Statement statement) {
+            if (statement instanceof Ast.Statement.Expression) {
+                eval(((Ast.Statement.Expression) statement).getExpression());
+                emit(POP);
+            }
+            else if (statement instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration ast = (Ast.Statement.Declaration) statement;
+                if (ast.getValue().isPresent()) {
+                    eval(ast.getValue().get());
+                }
+                else {
+                    emit(NIL);
+                }
+                emit(STORE, ast.getVariable().getSlot());
+            }
+            else if (statement instanceof Ast.Statement.Assignment) {
+                assignment((Ast.Statement.Assignment) statement);
+            }
+            else if (statement instanceof Ast.Statement.If) {
+                Ast.Statement.If ast = (Ast.Statement.If) statement;
+                int otherwise = label();
+                int end = label();
+                eval(ast.getCondition());
+                jump(FALSE_JUMP, otherwise);
+                statements(ast.getThenStatements());
+                jump(JUMP, end);
+                mark(otherwise);
+                statements(ast.getElseStatements());
+                mark(end);
+            }
+            else if (statement instanceof Ast.Statement.Switch) {
+                Ast.Statement.Switch ast = (Ast.Statement.Switch) statement;
+                if (ast.getJumpTable() != null) {
+                    table(ast);
+                }
+                else {
+                    linearSwitch(ast);
+                }
+            }
+            else if (statement instanceof Ast.Statement.While) {
+                Ast.Statement.While ast = (Ast.Statement.While) statement;
+                int condition = label();
+                int end = label();
+                mark(condition);
+                eval(ast.getCondition());
+                jump(FALSE_JUMP, end);
+                statements(ast.getStatements());
+                emit(STEP);
+                jump(JUMP, condition);
+                mark(end);
+            }
+            else if (statement instanceof Ast.Statement.Return) {
+                Ast.Statement.Return ast = (Ast.Statement.Return) statement;
+                if (ast.isTailCall()) {
+                    call((Ast.Expression.Function) ast.getValue(), TAIL_INVOKE);
+                }
+                else {
+                    eval(ast.getValue());
+                    emit(RETURN);
+                }
+            }
+            else {
+                throw new AssertionError("Unexpected statement " + statement + ".");
+            }
+        }
+
+        private void assignment(Ast.Statement.Assignment ast) {
+            Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+            int slot = receiver.getVariable().getSlot();
+            if (slot < 0) {
+                emit(CHECK_MUTABLE, constant(receiver.getName()));
+            }
+            if (receiver.getOffset().isPresent()) {
+                load(receiver);
+                emit(CAST, constant(List.class));
+                if (!(ast.getValue() instanceof Ast.Expression.Literal)) {
+                    emit(THROW_CAST, constant(ast.getValue().getClass().getName() + " cannot be cast to " + Ast.Expression.Literal.class.getName()));
+                    return;
+                }
+                eval(receiver.getOffset().get());
+                emit(SET_ELEMENT, constant(((Ast.Expression.Literal) ast.getValue()).getLiteral()));
+            }
+            else {
+                eval(ast.getValue());
+            }
+            if (slot >= 0) {
+                emit(STORE, slot);
+            }
+            else {
+                emit(STORE_NAME, constant(receiver.getName()));
+            }
+        }
+
+        private void table(Ast.Statement.Switch ast) {
+            List<Ast.Statement.Case> cases = ast.getCases();
+            Map<Ast.Statement.Case, Integer> caseLabels = new IdentityHashMap<>();
+            for (Ast.Statement.Case current : cases) {
+                caseLabels.put(current, label());
+            }
+            Map<Object, Integer> targets = new HashMap<>();
+            ast.getJumpTable().forEach((value, match) -> targets.put(value, caseLabels.get(match)));
+            int end = label();
+            eval(ast.getCondition());
+            int table = constant(targets);
+            tables.add(table);
+            emit(TABLE, table);
+            reference(caseLabels.get(cases.get(cases.size() - 1)));
+            for (Ast.Statement.Case current : cases) {
+                mark(caseLabels.get(current));
+                statements(current.getStatements());
+                jump(JUMP, end);
+            }
+            mark(end);
+        }
+
+        private void linearSwitch(Ast.Statement.Switch ast) {
+            List<Ast.Statement.Case> cases = ast.getCases();
+            int[] caseLabels = new int[cases.size() - 1];
+            int end = label();
+            eval(ast.getCondition());
+            for (int i = 0; i < caseLabels.length; i++) {
+                caseLabels[i] = label();
+                emit(DUP);
+                eval(cases.get(i).getValue().get());
+                jump(EQUAL_JUMP, caseLabels[i]);
+            }
+            emit(POP);
+            statements(cases.get(cases.size() - 1).getStatements());
+            jump(JUMP, end);
+            for (int i = 0; i < caseLabels.length; i++) {
+                mark(caseLabels[i]);
+                emit(POP);
+                statements(cases.get(i).getStatements());
+                jump(JUMP, end);
+            }
+            mark(end);
+        }
+
+        /**
+         * Emits code pushing the value of an expression, calling its
+         * subroutine unless it is trivial to evaluate in place.
+         */
+        private void eval(Ast.Expression expression) {
+            if (expression instanceof Ast.Expression.Literal) {
+                literal((Ast.Expression.Literal) expression);
+            }
+            else if (expression instanceof Ast.Expression.Access && !((Ast.Expression.Access) expression).getOffset().isPresent()) {
+                load((Ast.Expression.Access) expression);
+            }
+            else {
+                Integer subroutine = subroutines.get(expression);
+                if (subroutine == null) {
+                    subroutine = label();
+                    subroutines.put(expression, subroutine);
+                    pending.add(expression);
+                }
+                jump(EVAL, subroutine);
+            }
+        }
+
+        private void expression(Ast.Expression expression) {
+            if (expression instanceof Ast.Expression.Group) {
+                eval(((Ast.Expression.Group) expression).getExpression());
+                emit(GROUP);
+            }
+            else if (expression instanceof Ast.Expression.Binary) {
+                binary((Ast.Expression.Binary) expression);
+            }
+            else if (expression instanceof Ast.Expression.Access) {
+                Ast.Expression.Access ast = (Ast.Expression.Access) expression;
+                eval(ast.getOffset().get());
+                emit(CHECK_INDEX);
+                load(ast);
+                emit(CAST, constant(List.class));
+                eval(ast.getOffset().get());
+                emit(INDEX);
+            }
+            else if (expression instanceof Ast.Expression.Function) {
+                call((Ast.Expression.Function) expression, INVOKE);
+            }
+            else if (expression instanceof Ast.Expression.PlcList) {
+                List<Object> values = new ArrayList<>();
+                for (Ast.Expression value : ((Ast.Expression.PlcList) expression).getValues()) {
+                    if (!(value instanceof Ast.Expression.Literal)) {
+                        emit(THROW_CAST, constant(value.getClass().getName() + " cannot be cast to " + Ast.Expression.Literal.class.getName()));
+                        return;
+                    }
+                    values.add(((Ast.Expression.Literal) value).getLiteral());
+                }
+                emit(LIST, constant(values));
+            }
+            else {
+                throw new AssertionError("Unexpected expression " + expression + ".");
+            }
+        }
+
+        /**
+         * Mirrors {@link Interpreter#visit(Ast.Expression.Binary)}, visiting
+         * the operands in the same order and as many times.
+         */
+        private void binary(Ast.Expression.Binary ast) {
+            Ast.Expression left = ast.getLeft();
+            Ast.Expression right = ast.getRight();
+            int end = label();
+            switch (ast.getOperator()) {
+                case "&&": {
+                    int otherwise = label();
+                    eval(left);
+                    jump(FALSE_JUMP, otherwise);
+                    eval(right);
+                    jump(FALSE_JUMP, otherwise);
+                    emit(TRUE);
+                    jump(JUMP, end);
+                    mark(otherwise);
+                    emit(FALSE);
+                    break;
+                }
+                case "||": {
+                    int then = label();
+                    eval(left);
+                    jump(TRUE_JUMP, then);
+                    eval(right);
+                    jump(TRUE_JUMP, then);
+                    emit(FALSE);
+                    jump(JUMP, end);
+                    mark(then);
+                    emit(TRUE);
+                    break;
+                }
+                case "<":
+                case ">": {
+                    int nil = label();
+                    int decimal = label();
+                    int compare = ast.getOperator().equals("<") ? LESS : GREATER;
+                    eval(left);
+                    emit(REQUIRE, constant(Comparable.class));
+                    eval(left);
+                    jump(DIFFERENT_JUMP, nil);
+                    eval(left);
+                    eval(right);
+                    emit(SAME_CLASS);
+                    eval(left);
+                    jump(OTHER_JUMP, constant(BigInteger.class), decimal);
+                    operands(left, right, BigInteger.class);
+                    emit(compare);
+                    jump(JUMP, end);
+                    mark(decimal);
+                    operands(left, right, BigDecimal.class);
+                    emit(compare);
+                    jump(JUMP, end);
+                    mark(nil);
+                    emit(NIL);
+                    break;
+                }
+                case "==":
+                    emit(Objects.equals(left, right) ? TRUE : FALSE);
+                    break;
+                case "!=":
+                    emit(Objects.equals(left, right) ? FALSE : TRUE);
+                    break;
+                case "+": {
+                    int string = label();
+                    int numeric = label();
+                    eval(left);
+                    jump(INSTANCE_JUMP, constant(String.class), string);
+                    eval(right);
+                    jump(INSTANCE_JUMP, constant(String.class), string);
+                    jump(JUMP, numeric);
+                    mark(string);
+                    operands(left, right, String.class);
+                    emit(CONCAT);
+                    jump(JUMP, end);
+                    mark(numeric);
+                    arithmetic(left, right, ADD_INTEGER, ADD_DECIMAL, end);
+                    break;
+                }
+                case "-":
+                    arithmetic(left, right, SUBTRACT_INTEGER, SUBTRACT_DECIMAL, end);
+                    break;
+                case "*":
+                    arithmetic(left, right, MULTIPLY_INTEGER, MULTIPLY_DECIMAL, end);
+                    break;
+                case "/":
+                    arithmetic(left, right, DIVIDE_INTEGER, DIVIDE_DECIMAL, end);
+                    break;
+                case "^": {
+                    int decimal = label();
+                    int notNumber = label();
+                    int notInteger = label();
+                    eval(right);
+                    jump(OTHER_JUMP, constant(BigInteger.class), notInteger);
+                    eval(right);
+                    emit(CAST, constant(BigInteger.class));
+                    eval(left);
+                    jump(OTHER_JUMP, constant(BigInteger.class), decimal);
+                    eval(left);
+                    emit(CAST, constant(BigInteger.class));
+                    emit(POWER_INTEGER);
+                    jump(JUMP, end);
+                    mark(decimal);
+                    eval(left);
+                    jump(OTHER_JUMP, constant(BigDecimal.class), notNumber);
+                    eval(left);
+                    emit(CAST, constant(BigDecimal.class));
+                    emit(POWER_DECIMAL);
+                    jump(JUMP, end);
+                    mark(notNumber);
+                    emit(THROW, constant("Not a number."));
+                    mark(notInteger);
+                    emit(THROW, constant("Exponent is not BigInteger."));
+                    break;
+                }
+                default:
+                    emit(NIL);
+            }
+            mark(end);
+        }
+
+        /**
+         * Emits the integer and decimal cases shared by the arithmetic
+         * operators, jumping to end with the result.
+         */
+        private void arithmetic(Ast.Expression left, Ast.Expression right, int integer, int decimal, int end) {
+            int decimalCase = label();
+            int error = label();
+            eval(left);
+            jump(OTHER_JUMP, constant(BigInteger.class), decimalCase);
+            eval(right);
+            jump(OTHER_JUMP, constant(BigInteger.class), decimalCase);
+            operands(left, right, BigInteger.class);
+            emit(integer);
+            jump(JUMP, end);
+            mark(decimalCase);
+            eval(left);
+            jump(OTHER_JUMP, constant(BigDecimal.class), error);
+            eval(right);
+            jump(OTHER_JUMP, constant(BigDecimal.class), error);
+            operands(left, right, BigDecimal.class);
+            emit(decimal);
+            jump(JUMP, end);
+            mark(error);
+            emit(THROW, constant("Different Class Types."));
+        }
+
+        /**
+         * Pushes both operands, each cast to the given type right after it is
+         * visited.
+         */
+        private void operands(Ast.Expression left, Ast.Expression right, Class<?> type) {
+            int constant = constant(type);
+            eval(left);
+            emit(CAST, constant);
+            eval(right);
+            emit(CAST, constant);
+        }
+
+        private void call(Ast.Expression.Function ast, int invoke) {
+            emit(LOOKUP, constant(new Call(ast.getName(), ast.getArguments().size())));
+            ast.getArguments().forEach(this::eval);
+            emit(invoke, ast.getArguments().size());
+        }
+
+        private void literal(Ast.Expression.Literal ast) {
+            if (ast.getLiteral() == null) {
+                emit(NIL);
+            }
+            else {
+                emit(LITERAL, constant(ast.getLiteral()));
+            }
+        }
+
+        private void load(Ast.Expression.Access ast) {
+            int slot = ast.getVariable().getSlot();
+            if (slot >= 0) {
+                emit(LOAD, slot);
+            }
+            else {
+                emit(LOAD_NAME, constant(ast.getName()));
+            }
+        }
+
+        private int constant(Object value) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+
+        private int label() {
+            labels.add(-1);
+            return labels.size() - 1;
+        }
+
+        private void mark(int label) {
+            labels.set(label, size);
+        }
+
+        private void emit(int... values) {
+            if (size + values.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + values.length));
+            }
+            for (int value : values) {
+                code[size++] = value;
+            }
+        }
+
+        private void reference(int label) {
+            references.add(size);
+            emit(label);
+        }
+
+        private void jump(int instruction, int label) {
+            emit(instruction);
+            reference(label);
+        }
+
+        private void jump(int instruction, int constant, int label) {
+            emit(instruction, constant);
+            reference(label);
+        }
+
+    }
+
+}
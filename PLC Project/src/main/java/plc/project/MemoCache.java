@@ -0,0 +1,85 @@
+package plc.project;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the results of a pure function, keyed by the values of its
+ * arguments. Entries are evicted in least-recently-used order.
+ */
+public final class MemoCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Object, Environment.PlcObject> entries;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public MemoCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Object, Environment.PlcObject>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Environment.PlcObject> eldest) {
+                if (size() > MemoCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the cached result for the key, or null on a miss.
+     */
+    public Environment.PlcObject get(Object key) {
+        Environment.PlcObject result = entries.get(key);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    public void put(Object key, Environment.PlcObject result) {
+        entries.put(key, result);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoCache{" +
+                "size=" + entries.size() +
+                ", capacity=" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+
+}
@@ -0,0 +1,283 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds Java methods as PLC functions through {@link MethodHandle}s.
+ *
+ * Each argument of the bound handle is adapted from the PLC representation
+ * ({@link BigInteger}, {@link BigDecimal}, {@link String}, {@link Character}
+ * and {@link Boolean}) to the Java parameter type, including primitives, and
+ * the result is adapted back. The adapted handle is called with
+ * {@link MethodHandle#invokeExact}, so the JIT can inline through it. Handles
+ * for instance methods (e.g. from {@link MethodHandles.Lookup#findVirtual})
+ * take the receiver as their first PLC argument.
+ */
+public final class Natives {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Natives() {}
+
+    /**
+     * Defines a function with the given name whose PLC types are derived from
+     * the Java types of the handle.
+     */
+    public static Environment.Function define(Scope scope, String name, MethodHandle handle) {
+        List<Environment.Type> parameterTypes = new ArrayList<>();
+        for (Class<?> type : handle.type().parameterList()) {
+            parameterTypes.add(plcType(type));
+        }
+        return define(scope, name, name, parameterTypes, plcType(handle.type().returnType()), handle);
+    }
+
+    public static Environment.Function define(Scope scope, String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, MethodHandle handle) {
+        if (parameterTypes.size() != handle.type().parameterCount()) {
+            throw new IllegalArgumentException("The function " + name + "/" + parameterTypes.size() + " does not match the arity of " + handle + ".");
+        }
+        return scope.defineFunction(name, jvmName, parameterTypes, returnType, invoker(handle));
+    }
+
+    /**
+     * Returns an invoker calling the given handle with adapted arguments.
+     */
+    public static Environment.Invoker invoker(MethodHandle handle) {
+        return new HandleInvoker(adapt(handle));
+    }
+
+    public static MethodHandle findStatic(Class<?> owner, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to bind " + owner.getName() + "." + name + ".", e);
+        }
+    }
+
+    public static MethodHandle findVirtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            return LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to bind " + owner.getName() + "." + name + ".", e);
+        }
+    }
+
+    /**
+     * Returns the PLC type used for values of the given Java type.
+     */
+    public static Environment.Type plcType(Class<?> type) {
+        if (type == void.class) {
+            return Environment.Type.NIL;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Environment.Type.BOOLEAN;
+        } else if (type == int.class || type == long.class || type == BigInteger.class) {
+            return Environment.Type.INTEGER;
+        } else if (type == double.class || type == BigDecimal.class) {
+            return Environment.Type.DECIMAL;
+        } else if (type == char.class || type == Character.class) {
+            return Environment.Type.CHARACTER;
+        } else if (type == String.class) {
+            return Environment.Type.STRING;
+        } else if (type == Comparable.class) {
+            return Environment.Type.COMPARABLE;
+        } else {
+            return Environment.Type.ANY;
+        }
+    }
+
+    /**
+     * Adapts a handle to the type (PlcObject, ..., PlcObject)PlcObject.
+     */
+    private static MethodHandle adapt(MethodHandle handle) {
+        MethodType type = handle.type();
+        MethodHandle[] filters = new MethodHandle[type.parameterCount()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = argumentAdapter(type.parameterType(i));
+        }
+        MethodHandle adapted = MethodHandles.filterArguments(handle, 0, filters);
+        if (type.returnType() == void.class) {
+            adapted = MethodHandles.collectArguments(MethodHandles.constant(Environment.PlcObject.class, Environment.NIL), 0, adapted);
+        } else {
+            adapted = MethodHandles.filterReturnValue(adapted, resultAdapter(type.returnType()));
+        }
+        return adapted;
+    }
+
+    private static MethodHandle argumentAdapter(Class<?> type) {
+        if (type == Environment.PlcObject.class) {
+            return MethodHandles.identity(type);
+        } else if (type == int.class) {
+            return adapter("toInt", int.class, Environment.PlcObject.class);
+        } else if (type == long.class) {
+            return adapter("toLong", long.class, Environment.PlcObject.class);
+        } else if (type == double.class) {
+            return adapter("toDouble", double.class, Environment.PlcObject.class);
+        } else if (type == boolean.class) {
+            return adapter("toBoolean", boolean.class, Environment.PlcObject.class);
+        } else if (type == char.class) {
+            return adapter("toChar", char.class, Environment.PlcObject.class);
+        } else if (!type.isPrimitive()) {
+            return adapter("toObject", Object.class, Environment.PlcObject.class).asType(MethodType.methodType(type, Environment.PlcObject.class));
+        } else {
+            throw new IllegalArgumentException("Unsupported native parameter type " + type.getName() + ".");
+        }
+    }
+
+    private static MethodHandle resultAdapter(Class<?> type) {
+        if (type == Environment.PlcObject.class) {
+            return MethodHandles.identity(type);
+        } else if (type == int.class) {
+            return adapter("fromInt", Environment.PlcObject.class, int.class);
+        } else if (type == long.class) {
+            return adapter("fromLong", Environment.PlcObject.class, long.class);
+        } else if (type == double.class) {
+            return adapter("fromDouble", Environment.PlcObject.class, double.class);
+        } else if (type == boolean.class || type == char.class || !type.isPrimitive()) {
+            return adapter("fromObject", Environment.PlcObject.class, Object.class).asType(MethodType.methodType(Environment.PlcObject.class, type));
+        } else {
+            throw new IllegalArgumentException("Unsupported native return type " + type.getName() + ".");
+        }
+    }
+
+    private static MethodHandle adapter(String name, Class<?> returnType, Class<?> parameterType) {
+        return findStatic(Natives.class, name, returnType, parameterType);
+    }
+
+    private static int toInt(Environment.PlcObject object) {
+        return ((BigInteger) object.getValue()).intValueExact();
+    }
+
+    private static long toLong(Environment.PlcObject object) {
+        return ((BigInteger) object.getValue()).longValueExact();
+    }
+
+    private static double toDouble(Environment.PlcObject object) {
+        return ((BigDecimal) object.getValue()).doubleValue();
+    }
+
+    private static boolean toBoolean(Environment.PlcObject object) {
+        return (Boolean) object.getValue();
+    }
+
+    private static char toChar(Environment.PlcObject object) {
+        return (Character) object.getValue();
+    }
+
+    private static Object toObject(Environment.PlcObject object) {
+        return object.getValue();
+    }
+
+    private static Environment.PlcObject fromInt(int value) {
+        return Environment.create(BigInteger.valueOf(value));
+    }
+
+    private static Environment.PlcObject fromLong(long value) {
+        return Environment.create(BigInteger.valueOf(value));
+    }
+
+    private static Environment.PlcObject fromDouble(double value) {
+        return Environment.create(BigDecimal.valueOf(value));
+    }
+
+    private static Environment.PlcObject fromObject(Object value) {
+        if (value == null) {
+            return Environment.NIL;
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return Environment.create(BigInteger.valueOf(((Number) value).longValue()));
+        } else if (value instanceof Double || value instanceof Float) {
+            return Environment.create(BigDecimal.valueOf(((Number) value).doubleValue()));
+        } else {
+            return Environment.create(value);
+        }
+    }
+
+    /**
+     * Invoker over a handle of type (PlcObject, ..., PlcObject)PlcObject.
+     */
+    private static final class HandleInvoker extends Environment.Invoker {
+
+        private final MethodHandle handle;
+        private final MethodHandle spreader;
+
+        private HandleInvoker(MethodHandle handle) {
+            this.handle = handle;
+            this.spreader = handle.asSpreader(Environment.PlcObject[].class, handle.type().parameterCount());
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject... arguments) {
+            try {
+                return (Environment.PlcObject) spreader.invokeExact(arguments);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke0() {
+            try {
+                return (Environment.PlcObject) handle.invokeExact();
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke1(Environment.PlcObject argument0) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke2(Environment.PlcObject argument0, Environment.PlcObject argument1) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0, argument1);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke3(Environment.PlcObject argument0, Environment.PlcObject argument1, Environment.PlcObject argument2) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0, argument1, argument2);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke4(Environment.PlcObject argument0, Environment.PlcObject argument1, Environment.PlcObject argument2, Environment.PlcObject argument3) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0, argument1, argument2, argument3);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return handle.toString();
+        }
+
+        private static RuntimeException rethrow(Throwable t) {
+            if (t instanceof RuntimeException) {
+                return (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else {
+                return new RuntimeException(t);
+            }
+        }
+
+    }
+
+}
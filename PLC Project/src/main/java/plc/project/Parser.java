@@ -41,9 +41,11 @@ public final class Parser {
         int i = 0, j = 0;
 
         while (peek("LIST") || peek("VAR") || peek("VAL") || peek("FUN")) {
+            int start = tokens.get(0).getIndex();
             if (!match("FUN")) {
                 if (!parsedFunction) {
                     globals.add(i++, parseGlobal());
+                    globals.get(i - 1).setIndex(start);
                 }
                 else {
                     if (tokens.has(0)) {
@@ -56,6 +58,7 @@ public final class Parser {
             }
             else {
                 functions.add(j++, parseFunction());
+                functions.get(j - 1).setIndex(start);
                 parsedFunction = true;
             }
             if (peek("\n")) {
@@ -349,7 +352,9 @@ public final class Parser {
         int index = 0;
 
         while (tokens.has(0) && !peek("END") && !peek("ELSE") && !peek("CASE") && !peek("DEFAULT")) {
+            int start = tokens.get(0).getIndex();
             stmtList.add(index++, parseStatement());
+            stmtList.get(index - 1).setIndex(start);
         }
 
         return stmtList;
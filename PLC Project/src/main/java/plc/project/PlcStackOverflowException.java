@@ -0,0 +1,20 @@
+package plc.project;
+
+/**
+ * Thrown when a call would exceed the maximum depth of a heap-allocated call
+ * stack, see {@link Interpreter#setMaxDepth}.
+ */
+public final class PlcStackOverflowException extends RuntimeException {
+
+    private final int maxDepth;
+
+    public PlcStackOverflowException(String message, int maxDepth) {
+        super(message);
+        this.maxDepth = maxDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+}
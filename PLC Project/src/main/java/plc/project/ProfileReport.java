@@ -0,0 +1,170 @@
+package plc.project;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes the execution samples of a JFR recording of a
+ * {@link CompiledProgram} to the functions and lines of its PLC source, using
+ * a {@link SourceMap} of the code generated for it. Each sample counts for the
+ * innermost frame in the generated {@code Main} class.
+ *
+ * Run it via its main method with the PLC source file and the recording:
+ * {@code java plc.project.ProfileReport program.plc recording.jfr}.
+ */
+public final class ProfileReport {
+
+    private final String input;
+    private final SourceMap map = new SourceMap();
+
+    // The functions of the source (name/arity) and the indices they start at.
+    private final List<String> names = new ArrayList<>();
+    private final List<Integer> starts = new ArrayList<>();
+
+    // The index each line of the source starts at.
+    private final List<Integer> lines = new ArrayList<>();
+
+    private final Map<String, Long> functionSamples = new HashMap<>();
+    private final Map<Integer, Long> lineSamples = new HashMap<>();
+    private long samples = 0;
+    private long unattributed = 0;
+
+    /**
+     * Creates a report for the program compiled from the input, generating
+     * its code again to map it.
+     */
+    public ProfileReport(String input) {
+        this.input = input;
+        new Generator(new Emitter(), map).visit(Program.compile(input).getSource());
+        for (Ast.Function function : new Parser(new Lexer(input).lex()).parseSource().getFunctions()) {
+            names.add(function.getName() + "/" + function.getParameters().size());
+            starts.add(function.getIndex());
+        }
+        lines.add(0);
+        for (int i = 0; i < input.length(); i++) {
+            if (input.charAt(i) == '\n') {
+                lines.add(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Adds the execution samples of the recording that have a frame in the
+     * generated class.
+     */
+    public void read(Path recording) throws IOException {
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            if (!event.getEventType().getName().equals("jdk.ExecutionSample") || event.getStackTrace() == null) {
+                continue;
+            }
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                if (frame.isJavaFrame() && frame.getMethod().getType().getName().equals("Main")) {
+                    add(frame.getLineNumber());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a sample at the given line of the generated code.
+     */
+    public void add(int line) {
+        samples++;
+        int index = map.getIndex(line);
+        if (index < 0) {
+            unattributed++;
+            return;
+        }
+        int function = floor(starts, index);
+        functionSamples.merge(function < 0 ? "<globals>" : names.get(function), 1L, Long::sum);
+        lineSamples.merge(floor(lines, index) + 1, 1L, Long::sum);
+    }
+
+    /**
+     * Returns the number of samples of each function, by name and arity.
+     * Globals are counted as {@code <globals>}.
+     */
+    public Map<String, Long> getFunctions() {
+        return functionSamples;
+    }
+
+    /**
+     * Returns the number of samples of each line of the source, numbered
+     * from 1.
+     */
+    public Map<Integer, Long> getLines() {
+        return lineSamples;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the number of samples outside of the generated globals,
+     * functions and statements, such as in the class header.
+     */
+    public long getUnattributed() {
+        return unattributed;
+    }
+
+    /**
+     * Returns the position of the last start at or before the index, or -1.
+     */
+    private static int floor(List<Integer> starts, int index) {
+        int low = 0;
+        int high = starts.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts.get(middle) <= index) {
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d samples, %d unattributed%n", samples, unattributed));
+        builder.append(String.format("%nFunctions%n"));
+        functionSamples.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> builder.append(String.format("%8d %6.1f%%  %s%n", e.getValue(), 100.0 * e.getValue() / samples, e.getKey())));
+        builder.append(String.format("%nLines%n"));
+        lineSamples.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .forEach(e -> {
+                    int start = lines.get(e.getKey() - 1);
+                    int end = e.getKey() < lines.size() ? lines.get(e.getKey()) - 1 : input.length();
+                    builder.append(String.format("%8d %6.1f%%  %4d: %s%n", e.getValue(), 100.0 * e.getValue() / samples, e.getKey(), input.substring(start, end).trim()));
+                });
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ProfileReport <program.plc> <recording.jfr>");
+            System.exit(1);
+        }
+        ProfileReport report = new ProfileReport(new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8));
+        report.read(Paths.get(args[1]));
+        System.out.print(report);
+    }
+
+}
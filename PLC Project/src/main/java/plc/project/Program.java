@@ -0,0 +1,148 @@
+package plc.project;
+
+import java.util.Map;
+
+/**
+ * An analyzed PLC source that can be executed any number of times, including
+ * concurrently from many threads.
+ *
+ * A program never changes after it is compiled: the analyzed AST (frame sizes,
+ * jump tables, resolved variables) is only read during execution. All mutable
+ * state - globals, call frames and the pending return value - belongs to an
+ * {@link Execution}, which is confined to the thread running it.
+ */
+public final class Program {
+
+    private final Ast.Source source;
+    private final Scope parent;
+
+    private Program(Ast.Source source, Scope parent) {
+        this.source = source;
+        this.parent = parent;
+    }
+
+    /**
+     * Analyzes the source and returns it as a program.
+     */
+    public static Program compile(Ast.Source source) {
+        return compile(source, new Scope(null));
+    }
+
+    /**
+     * Analyzes the source against the given parent scope, which may hold
+     * additional functions (e.g. {@link Natives}). The parent scope is shared
+     * by all executions and must not be modified once the program is compiled.
+     * The analyzed source is then optimized by {@link Inliner},
+     * {@link ConstantFolder}, {@link DeadCodeEliminator} and
+     * {@link RedundancyEliminator}.
+     */
+    public static Program compile(Ast.Source source, Scope parent) {
+        new Analyzer(parent).visit(source);
+        Ast.Source optimized = new DeadCodeEliminator().visit(new ConstantFolder().visit(new Inliner().visit(source)));
+        optimized = new RedundancyEliminator().visit(optimized);
+        new PurityAnalyzer().visit(optimized);
+        return new Program(optimized, parent);
+    }
+
+    public static Program compile(String input) {
+        return compile(new Parser(new Lexer(input).lex()).parseSource());
+    }
+
+    public Ast.Source getSource() {
+        return source;
+    }
+
+    /**
+     * Creates a new execution with its own globals.
+     */
+    public Execution newExecution() {
+        return new Execution(new Interpreter(parent));
+    }
+
+    /**
+     * Creates a new execution whose print builtin is the given invoker.
+     */
+    public Execution newExecution(Environment.Invoker print) {
+        return new Execution(new Interpreter(parent, print));
+    }
+
+    /**
+     * Runs {@code main} in a new execution and returns its result.
+     */
+    public Environment.PlcObject execute() {
+        return newExecution().run();
+    }
+
+    /**
+     * A single run of a program. An execution is not thread-safe and is run at
+     * most once; concurrent runs each use their own execution.
+     */
+    public final class Execution {
+
+        private final Interpreter interpreter;
+        private boolean started = false;
+
+        private Execution(Interpreter interpreter) {
+            this.interpreter = interpreter;
+        }
+
+        public Environment.PlcObject run() {
+            if (started) {
+                throw new IllegalStateException("The execution has already been run.");
+            }
+            started = true;
+            return interpreter.visit(source);
+        }
+
+        /**
+         * Limits the steps of this execution, see {@link Interpreter#setBudget}.
+         */
+        public void setBudget(long steps) {
+            interpreter.setBudget(steps);
+        }
+
+        /**
+         * Returns the number of steps executed so far.
+         */
+        public long getSteps() {
+            return interpreter.getSteps();
+        }
+
+        /**
+         * Runs this execution on a heap-allocated call stack, see
+         * {@link Interpreter#setMaxDepth}.
+         */
+        public void setMaxDepth(int maxDepth) {
+            interpreter.setMaxDepth(maxDepth);
+        }
+
+        /**
+         * Memoizes calls of pure functions, see
+         * {@link Interpreter#setMemoization}.
+         */
+        public void setMemoization(int capacity) {
+            interpreter.setMemoization(capacity);
+        }
+
+        public Map<String, MemoCache> getMemoCaches() {
+            return interpreter.getMemoCaches();
+        }
+
+        /**
+         * Promotes hot functions to compiled code, see
+         * {@link Interpreter#setTiering}.
+         */
+        public void setTiering(Tiering tiering) {
+            interpreter.setTiering(tiering);
+        }
+
+        /**
+         * Returns the scope holding the globals of this execution.
+         */
+        public Scope getScope() {
+            return interpreter.getScope();
+        }
+
+    }
+
+}
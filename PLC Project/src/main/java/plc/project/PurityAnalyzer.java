@@ -0,0 +1,131 @@
+package plc.project;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marks the functions of an analyzed source as pure when they have no side
+ * effects and their result depends only on their arguments, so calls with
+ * equal arguments may be memoized (see {@link Interpreter#setMemoization}).
+ *
+ * A function is pure unless it assigns a global or a list element, reads a
+ * mutable global, or calls a function that is not pure; native functions,
+ * including print, are never pure. Recursive functions are resolved as a
+ * greatest fixpoint: all functions start out pure, and impure ones are
+ * removed until nothing changes.
+ */
+public final class PurityAnalyzer implements Ast.Visitor<Boolean> {
+
+    private final Map<Environment.Function, Ast.Function> functions = new IdentityHashMap<>();
+    private final Set<Ast.Function> pure = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public Boolean visit(Ast.Source ast) {
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.put(function.getFunction(), function);
+        }
+        pure.addAll(ast.getFunctions());
+        boolean changed = true;
+        while (changed) {
+            changed = pure.removeIf(function -> !visit(function));
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            function.setPure(pure.contains(function));
+        }
+        return pure.containsAll(ast.getFunctions());
+    }
+
+    @Override
+    public Boolean visit(Ast.Global ast) {
+        return !ast.getValue().isPresent() || visit(ast.getValue().get());
+    }
+
+    @Override
+    public Boolean visit(Ast.Function ast) {
+        return ast.getStatements().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.Expression ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.Declaration ast) {
+        return !ast.getValue().isPresent() || visit(ast.getValue().get());
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.Assignment ast) {
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        // Lists may be shared with the caller or a global, so element assignments are effects too.
+        return isLocal(receiver.getVariable()) && !receiver.getOffset().isPresent() && visit(ast.getValue());
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.If ast) {
+        return visit(ast.getCondition())
+                && ast.getThenStatements().stream().allMatch(this::visit)
+                && ast.getElseStatements().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.Switch ast) {
+        return visit(ast.getCondition()) && ast.getCases().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.Case ast) {
+        return (!ast.getValue().isPresent() || visit(ast.getValue().get()))
+                && ast.getStatements().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.While ast) {
+        return visit(ast.getCondition()) && ast.getStatements().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visit(Ast.Statement.Return ast) {
+        return visit(ast.getValue());
+    }
+
+    @Override
+    public Boolean visit(Ast.Expression.Literal ast) {
+        return true;
+    }
+
+    @Override
+    public Boolean visit(Ast.Expression.Group ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Boolean visit(Ast.Expression.Binary ast) {
+        return visit(ast.getLeft()) && visit(ast.getRight());
+    }
+
+    @Override
+    public Boolean visit(Ast.Expression.Access ast) {
+        return (isLocal(ast.getVariable()) || !ast.getVariable().getMutable())
+                && (!ast.getOffset().isPresent() || visit(ast.getOffset().get()));
+    }
+
+    @Override
+    public Boolean visit(Ast.Expression.Function ast) {
+        return pure.contains(functions.get(ast.getFunction()))
+                && ast.getArguments().stream().allMatch(this::visit);
+    }
+
+    @Override
+    public Boolean visit(Ast.Expression.PlcList ast) {
+        return ast.getValues().stream().allMatch(this::visit);
+    }
+
+    private static boolean isLocal(Environment.Variable variable) {
+        return variable.getSlot() >= 0;
+    }
+
+}
@@ -0,0 +1,657 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Stores expressions that would be computed repeatedly in new locals of an
+ * analyzed source, returning the resulting source; the input is not
+ * modified.
+ *
+ * Loop-invariant code motion: integer +, - and * of literals, parameters,
+ * initialized locals and immutable globals cannot fail, so those that a
+ * WHILE loop does not change are computed once before the loop.
+ *
+ * Common subexpression elimination: within a block, an expression computed
+ * by several statements is computed once before the first of them, as long
+ * as the statements in between leave it unchanged (local value numbering).
+ * Only calls can run code in between, so the first statement must have no
+ * calls, and an expression that reads list elements ends at a call or an
+ * element assignment. Expressions may read locals, immutable globals and
+ * list elements, but not mutable globals or calls.
+ *
+ * Neither rewrites equality operands, which the interpreter compares as
+ * trees, nor a binary expression that is the left operand of a comparison,
+ * which the interpreter requires to yield the same object twice.
+ */
+public final class RedundancyEliminator implements Ast.Visitor<Ast> {
+
+    private final Set<Environment.Variable> constants = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Variable> uninitialized = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Ast.Expression> targets = new ArrayList<>();
+    private final List<Ast.Expression.Access> temporaries = new ArrayList<>();
+    private Locals locals = null;
+    private int frameSize = 0;
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        locals = new Locals(ast);
+        for (Ast.Global global : ast.getGlobals()) {
+            if (!global.getMutable()) {
+                constants.add(global.getVariable());
+            }
+        }
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.add(visit(function));
+        }
+        return new Ast.Source(ast.getGlobals(), functions);
+    }
+
+    @Override
+    public Ast.Global visit(Ast.Global ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Function visit(Ast.Function ast) {
+        frameSize = ast.getFrameSize();
+        uninitialized.clear();
+        walk(ast.getStatements(), statement -> {
+            if (statement instanceof Ast.Statement.Declaration && !((Ast.Statement.Declaration) statement).getValue().isPresent()) {
+                uninitialized.add(((Ast.Statement.Declaration) statement).getVariable());
+            }
+        });
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), block(ast.getStatements()));
+        function.setFunction(ast.getFunction());
+        function.setIndex(ast.getIndex());
+        function.setFrameSize(frameSize);
+        return function;
+    }
+
+    @Override
+    public Ast.Statement.Expression visit(Ast.Statement.Expression ast) {
+        return new Ast.Statement.Expression(rewrite(ast.getExpression(), false));
+    }
+
+    @Override
+    public Ast.Statement.Declaration visit(Ast.Statement.Declaration ast) {
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), ast.getValue().map(value -> rewrite(value, false)));
+        declaration.setVariable(ast.getVariable());
+        return declaration;
+    }
+
+    @Override
+    public Ast.Statement.Assignment visit(Ast.Statement.Assignment ast) {
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        Ast.Expression.Access target = new Ast.Expression.Access(receiver.getOffset().map(offset -> rewrite(offset, false)), receiver.getName());
+        target.setVariable(receiver.getVariable());
+        return new Ast.Statement.Assignment(target, rewrite(ast.getValue(), false));
+    }
+
+    @Override
+    public Ast.Statement.If visit(Ast.Statement.If ast) {
+        return new Ast.Statement.If(rewrite(ast.getCondition(), false), block(ast.getThenStatements()), block(ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Switch visit(Ast.Statement.Switch ast) {
+        List<Ast.Statement.Case> cases = new ArrayList<>();
+        for (Ast.Statement.Case c : ast.getCases()) {
+            cases.add(visit(c));
+        }
+        Ast.Statement.Switch statement = new Ast.Statement.Switch(rewrite(ast.getCondition(), false), cases);
+        statement.setJumpTable(Analyzer.jumpTable(cases));
+        return statement;
+    }
+
+    @Override
+    public Ast.Statement.Case visit(Ast.Statement.Case ast) {
+        return new Ast.Statement.Case(ast.getValue(), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.While visit(Ast.Statement.While ast) {
+        return new Ast.Statement.While(rewrite(ast.getCondition(), false), block(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Return visit(Ast.Statement.Return ast) {
+        Ast.Statement.Return statement = new Ast.Statement.Return(rewrite(ast.getValue(), false));
+        statement.setTailCall(ast.isTailCall());
+        return statement;
+    }
+
+    @Override
+    public Ast.Expression.Literal visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression.Group visit(Ast.Expression.Group ast) {
+        Ast.Expression.Group group = new Ast.Expression.Group(rewrite(ast.getExpression(), false));
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast.Expression.Binary visit(Ast.Expression.Binary ast) {
+        if (isEquality(ast)) {
+            return ast;
+        }
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(ast.getOperator(), rewrite(ast.getLeft(), isComparison(ast)), rewrite(ast.getRight(), false));
+        binary.setType(ast.getType());
+        return binary;
+    }
+
+    @Override
+    public Ast.Expression.Access visit(Ast.Expression.Access ast) {
+        Ast.Expression.Access access = new Ast.Expression.Access(ast.getOffset().map(offset -> rewrite(offset, false)), ast.getName());
+        access.setVariable(ast.getVariable());
+        return access;
+    }
+
+    @Override
+    public Ast.Expression.Function visit(Ast.Expression.Function ast) {
+        List<Ast.Expression> arguments = new ArrayList<>();
+        for (Ast.Expression argument : ast.getArguments()) {
+            arguments.add(rewrite(argument, false));
+        }
+        Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    @Override
+    public Ast.Expression.PlcList visit(Ast.Expression.PlcList ast) {
+        List<Ast.Expression> values = new ArrayList<>();
+        for (Ast.Expression value : ast.getValues()) {
+            values.add(rewrite(value, false));
+        }
+        Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+        list.setType(ast.getType());
+        return list;
+    }
+
+    /**
+     * Rebuilds an expression, replacing the targets with their temporaries.
+     * A pinned expression (the left operand of a comparison, or the
+     * expression of a group that is) is not replaced itself.
+     */
+    private Ast.Expression rewrite(Ast.Expression ast, boolean pinned) {
+        if (!pinned) {
+            for (int i = targets.size() - 1; i >= 0; i--) {
+                if (same(targets.get(i), ast)) {
+                    return temporaries.get(i);
+                }
+            }
+        }
+        if (ast instanceof Ast.Expression.Group) {
+            Ast.Expression.Group group = new Ast.Expression.Group(rewrite(((Ast.Expression.Group) ast).getExpression(), pinned));
+            group.setType(ast.getType());
+            return group;
+        }
+        return (Ast.Expression) visit(ast);
+    }
+
+    /**
+     * Rebuilds a block, hoisting the invariants of its loops and then
+     * eliminating its common subexpressions.
+     */
+    private List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> block = new ArrayList<>();
+        for (Ast.Statement statement : statements) {
+            int size = block.size();
+            if (statement instanceof Ast.Statement.While) {
+                List<Ast.Expression> invariants = new ArrayList<>();
+                Set<Environment.Variable> assigned = assigned(Collections.singletonList(statement));
+                invariants((Ast.Statement.While) statement, assigned, invariants);
+                for (Ast.Expression invariant : invariants) {
+                    Environment.Variable temporary = locals.fresh("invariant", invariant.getType(), frameSize++);
+                    block.add(Locals.declaration(temporary, rewrite(invariant, false)));
+                    targets.add(invariant);
+                    temporaries.add(Locals.access(temporary));
+                }
+                block.add(visit((Ast.Statement.While) statement));
+                targets.subList(targets.size() - invariants.size(), targets.size()).clear();
+                temporaries.subList(temporaries.size() - invariants.size(), temporaries.size()).clear();
+            }
+            else {
+                block.add((Ast.Statement) visit(statement));
+            }
+            block.subList(size, block.size()).forEach(s -> s.inherit(statement));
+        }
+        // Each round stores the largest common subexpression; its uses
+        // within the other candidates are found in the next rounds.
+        for (Range range = range(block); range != null; range = range(block)) {
+            Environment.Variable temporary = locals.fresh("common", range.expression.getType(), frameSize++);
+            targets.add(range.expression);
+            temporaries.add(Locals.access(temporary));
+            try {
+                for (int i = range.start; i <= range.end; i++) {
+                    block.set(i, replace(block.get(i)));
+                }
+            } finally {
+                targets.remove(targets.size() - 1);
+                temporaries.remove(temporaries.size() - 1);
+            }
+            block.add(range.start, Locals.declaration(temporary, range.expression));
+        }
+        return block;
+    }
+
+    /**
+     * Collects the maximal invariants of a loop that cannot fail.
+     */
+    private void invariants(Ast.Statement.While ast, Set<Environment.Variable> assigned, List<Ast.Expression> invariants) {
+        List<Ast.Expression> expressions = new ArrayList<>();
+        expressions.add(ast.getCondition());
+        walk(ast.getStatements(), statement -> expressions.addAll(expressions(statement)));
+        for (Ast.Expression expression : expressions) {
+            forEach(expression, false, false, (candidate, conditional) -> {
+                if (candidate instanceof Ast.Expression.Binary && isInvariant(candidate, assigned)) {
+                    if (!contains(invariants, candidate)) {
+                        invariants.add(candidate);
+                    }
+                    return false;
+                }
+                return true;
+            });
+        }
+    }
+
+    private boolean isInvariant(Ast.Expression ast, Set<Environment.Variable> assigned) {
+        if (!ast.getType().equals(Environment.Type.INTEGER)) {
+            return false;
+        }
+        else if (ast instanceof Ast.Expression.Literal) {
+            return true;
+        }
+        else if (ast instanceof Ast.Expression.Group) {
+            return isInvariant(((Ast.Expression.Group) ast).getExpression(), assigned);
+        }
+        else if (ast instanceof Ast.Expression.Access) {
+            Environment.Variable variable = ((Ast.Expression.Access) ast).getVariable();
+            if (((Ast.Expression.Access) ast).getOffset().isPresent()) {
+                return false;
+            }
+            return variable.getSlot() >= 0 ? !assigned.contains(variable) && !uninitialized.contains(variable) : constants.contains(variable);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            String operator = ((Ast.Expression.Binary) ast).getOperator();
+            return (operator.equals("+") || operator.equals("-") || operator.equals("*"))
+                    && isInvariant(((Ast.Expression.Binary) ast).getLeft(), assigned)
+                    && isInvariant(((Ast.Expression.Binary) ast).getRight(), assigned);
+        }
+        return false;
+    }
+
+    /**
+     * Finds the largest expression computed by at least two statements of a
+     * block between which it does not change, or returns null.
+     */
+    private Range range(List<Ast.Statement> block) {
+        List<Ast.Expression> candidates = new ArrayList<>();
+        for (Ast.Statement statement : block) {
+            for (Ast.Expression expression : expressions(statement)) {
+                forEach(expression, false, false, (candidate, conditional) -> {
+                    if ((candidate instanceof Ast.Expression.Binary || candidate instanceof Ast.Expression.Access && ((Ast.Expression.Access) candidate).getOffset().isPresent())
+                            && isPure(candidate) && !contains(candidates, candidate)) {
+                        candidates.add(candidate);
+                    }
+                    return true;
+                });
+            }
+        }
+        Range best = null;
+        for (Ast.Expression candidate : candidates) {
+            Range range = range(block, candidate);
+            if (range != null && (best == null || size(candidate) > size(best.expression))) {
+                best = range;
+            }
+        }
+        return best;
+    }
+
+    private Range range(List<Ast.Statement> block, Ast.Expression candidate) {
+        boolean elements = reads(candidate, true, null);
+        Set<Environment.Variable> variables = Collections.newSetFromMap(new IdentityHashMap<>());
+        reads(candidate, false, variables);
+        int start = -1;
+        int uses = 0;
+        for (int i = 0; i < block.size(); i++) {
+            Ast.Statement statement = block.get(i);
+            boolean calls = !calls(Collections.singletonList(statement)).isEmpty();
+            if (start >= 0 && elements && calls) {
+                if (uses > 0) {
+                    return new Range(candidate, start, i - 1);
+                }
+                start = -1;
+            }
+            int[] occurrences = new int[2];
+            for (Ast.Expression expression : expressions(statement)) {
+                forEach(expression, false, false, (occurrence, conditional) -> {
+                    if (same(occurrence, candidate)) {
+                        occurrences[conditional ? 1 : 0]++;
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (start < 0) {
+                if (!calls && occurrences[0] > 0) {
+                    start = i;
+                    uses = occurrences[0] + occurrences[1] - 1;
+                }
+            }
+            else {
+                uses += occurrences[0] + occurrences[1];
+            }
+            if (start >= 0 && changes(statement, variables, elements)) {
+                if (uses > 0) {
+                    return new Range(candidate, start, i);
+                }
+                start = -1;
+            }
+        }
+        return start >= 0 && uses > 0 ? new Range(candidate, start, block.size() - 1) : null;
+    }
+
+    /**
+     * Returns whether a statement assigns one of the variables or, if
+     * elements are read, any list element.
+     */
+    private static boolean changes(Ast.Statement statement, Set<Environment.Variable> variables, boolean elements) {
+        List<Ast.Statement> statements = Collections.singletonList(statement);
+        if (!Collections.disjoint(assigned(statements), variables)) {
+            return true;
+        }
+        if (elements) {
+            boolean[] written = {false};
+            walk(statements, s -> written[0] |= s instanceof Ast.Statement.Assignment && ((Ast.Expression.Access) ((Ast.Statement.Assignment) s).getReceiver()).getOffset().isPresent());
+            return written[0] || !calls(statements).isEmpty();
+        }
+        return false;
+    }
+
+    /**
+     * Rebuilds the expressions a statement evaluates when it starts.
+     */
+    private Ast.Statement replace(Ast.Statement statement) {
+        if (statement instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            return new Ast.Statement.If(rewrite(ast.getCondition(), false), ast.getThenStatements(), ast.getElseStatements());
+        }
+        else if (statement instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch ast = (Ast.Statement.Switch) statement;
+            Ast.Statement.Switch rebuilt = new Ast.Statement.Switch(rewrite(ast.getCondition(), false), ast.getCases());
+            rebuilt.setJumpTable(ast.getJumpTable());
+            return rebuilt;
+        }
+        else if (statement instanceof Ast.Statement.While) {
+            return statement;
+        }
+        return (Ast.Statement) visit(statement);
+    }
+
+    /**
+     * Returns the expressions a statement evaluates when it starts, before
+     * any nested statements.
+     */
+    private static List<Ast.Expression> expressions(Ast.Statement statement) {
+        List<Ast.Expression> expressions = new ArrayList<>();
+        if (statement instanceof Ast.Statement.Expression) {
+            expressions.add(((Ast.Statement.Expression) statement).getExpression());
+        }
+        else if (statement instanceof Ast.Statement.Declaration) {
+            ((Ast.Statement.Declaration) statement).getValue().ifPresent(expressions::add);
+        }
+        else if (statement instanceof Ast.Statement.Assignment) {
+            expressions.add(((Ast.Statement.Assignment) statement).getValue());
+        }
+        else if (statement instanceof Ast.Statement.If) {
+            expressions.add(((Ast.Statement.If) statement).getCondition());
+        }
+        else if (statement instanceof Ast.Statement.Switch) {
+            expressions.add(((Ast.Statement.Switch) statement).getCondition());
+        }
+        else if (statement instanceof Ast.Statement.Return) {
+            expressions.add(((Ast.Statement.Return) statement).getValue());
+        }
+        return expressions;
+    }
+
+    /**
+     * Visits the replaceable subexpressions of an expression, outermost
+     * first, descending into an expression while the visitor returns true.
+     * Expressions are conditional if they may not be evaluated (the right
+     * operand of &&, || and comparisons).
+     */
+    private static void forEach(Ast.Expression ast, boolean pinned, boolean conditional, Candidates visitor) {
+        if (ast instanceof Ast.Expression.Binary && isEquality(ast)) {
+            return;
+        }
+        if (!pinned && !visitor.visit(ast, conditional)) {
+            return;
+        }
+        if (ast instanceof Ast.Expression.Group) {
+            forEach(((Ast.Expression.Group) ast).getExpression(), pinned, conditional, visitor);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            String operator = binary.getOperator();
+            forEach(binary.getLeft(), isComparison(binary), conditional, visitor);
+            forEach(binary.getRight(), false, conditional || isComparison(binary) || operator.equals("&&") || operator.equals("||"), visitor);
+        }
+        else if (ast instanceof Ast.Expression.Access && ((Ast.Expression.Access) ast).getOffset().isPresent()) {
+            forEach(((Ast.Expression.Access) ast).getOffset().get(), false, conditional, visitor);
+        }
+        else if (ast instanceof Ast.Expression.Function) {
+            for (Ast.Expression argument : ((Ast.Expression.Function) ast).getArguments()) {
+                forEach(argument, false, conditional, visitor);
+            }
+        }
+        else if (ast instanceof Ast.Expression.PlcList) {
+            for (Ast.Expression value : ((Ast.Expression.PlcList) ast).getValues()) {
+                forEach(value, false, conditional, visitor);
+            }
+        }
+    }
+
+    /**
+     * Returns whether an expression only reads literals, locals, immutable
+     * globals and list elements.
+     */
+    private boolean isPure(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Literal) {
+            return true;
+        }
+        else if (ast instanceof Ast.Expression.Group) {
+            return isPure(((Ast.Expression.Group) ast).getExpression());
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            return !isEquality(ast) && isPure(((Ast.Expression.Binary) ast).getLeft()) && isPure(((Ast.Expression.Binary) ast).getRight());
+        }
+        else if (ast instanceof Ast.Expression.Access) {
+            Environment.Variable variable = ((Ast.Expression.Access) ast).getVariable();
+            return (variable.getSlot() >= 0 || constants.contains(variable))
+                    && (!((Ast.Expression.Access) ast).getOffset().isPresent() || isPure(((Ast.Expression.Access) ast).getOffset().get()));
+        }
+        return false;
+    }
+
+    /**
+     * Collects the variables a pure expression reads into the set if given,
+     * and returns whether it reads a list element.
+     */
+    private static boolean reads(Ast.Expression ast, boolean elements, Set<Environment.Variable> variables) {
+        if (ast instanceof Ast.Expression.Group) {
+            return reads(((Ast.Expression.Group) ast).getExpression(), elements, variables);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            return reads(((Ast.Expression.Binary) ast).getLeft(), elements, variables) | reads(((Ast.Expression.Binary) ast).getRight(), elements, variables);
+        }
+        else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            if (variables != null) {
+                variables.add(access.getVariable());
+            }
+            return access.getOffset().isPresent() ? reads(access.getOffset().get(), elements, variables) | true : false;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the variables assigned or declared by the statements.
+     */
+    private static Set<Environment.Variable> assigned(List<Ast.Statement> statements) {
+        Set<Environment.Variable> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        walk(statements, statement -> {
+            if (statement instanceof Ast.Statement.Declaration) {
+                assigned.add(((Ast.Statement.Declaration) statement).getVariable());
+            }
+            else if (statement instanceof Ast.Statement.Assignment) {
+                assigned.add(((Ast.Expression.Access) ((Ast.Statement.Assignment) statement).getReceiver()).getVariable());
+            }
+        });
+        return assigned;
+    }
+
+    /**
+     * Returns the calls made by the statements.
+     */
+    private static List<Ast.Expression> calls(List<Ast.Statement> statements) {
+        List<Ast.Expression> calls = new ArrayList<>();
+        walk(statements, statement -> {
+            List<Ast.Expression> expressions = expressions(statement);
+            if (statement instanceof Ast.Statement.While) {
+                expressions.add(((Ast.Statement.While) statement).getCondition());
+            }
+            else if (statement instanceof Ast.Statement.Assignment) {
+                expressions.add(((Ast.Statement.Assignment) statement).getReceiver());
+            }
+            else if (statement instanceof Ast.Statement.Case) {
+                ((Ast.Statement.Case) statement).getValue().ifPresent(expressions::add);
+            }
+            for (Ast.Expression expression : expressions) {
+                // Calls in equality operands are not evaluated, but are
+                // counted all the same.
+                collect(expression, calls);
+            }
+        });
+        return calls;
+    }
+
+    private static void collect(Ast.Expression ast, List<Ast.Expression> calls) {
+        if (ast instanceof Ast.Expression.Function) {
+            calls.add(ast);
+            ((Ast.Expression.Function) ast).getArguments().forEach(argument -> collect(argument, calls));
+        }
+        else if (ast instanceof Ast.Expression.Group) {
+            collect(((Ast.Expression.Group) ast).getExpression(), calls);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            collect(((Ast.Expression.Binary) ast).getLeft(), calls);
+            collect(((Ast.Expression.Binary) ast).getRight(), calls);
+        }
+        else if (ast instanceof Ast.Expression.Access) {
+            ((Ast.Expression.Access) ast).getOffset().ifPresent(offset -> collect(offset, calls));
+        }
+        else if (ast instanceof Ast.Expression.PlcList) {
+            ((Ast.Expression.PlcList) ast).getValues().forEach(value -> collect(value, calls));
+        }
+    }
+
+    /**
+     * Passes each statement, including nested ones and cases, to the action.
+     */
+    private static void walk(List<? extends Ast.Statement> statements, Consumer<Ast.Statement> action) {
+        for (Ast.Statement statement : statements) {
+            action.accept(statement);
+            if (statement instanceof Ast.Statement.If) {
+                walk(((Ast.Statement.If) statement).getThenStatements(), action);
+                walk(((Ast.Statement.If) statement).getElseStatements(), action);
+            }
+            else if (statement instanceof Ast.Statement.Switch) {
+                walk(((Ast.Statement.Switch) statement).getCases(), action);
+            }
+            else if (statement instanceof Ast.Statement.Case) {
+                walk(((Ast.Statement.Case) statement).getStatements(), action);
+            }
+            else if (statement instanceof Ast.Statement.While) {
+                walk(((Ast.Statement.While) statement).getStatements(), action);
+            }
+        }
+    }
+
+    private static int size(Ast.Expression ast) {
+        int[] size = {0};
+        forEach(ast, false, false, (expression, conditional) -> {
+            size[0]++;
+            return true;
+        });
+        return size[0];
+    }
+
+    private static boolean contains(List<Ast.Expression> expressions, Ast.Expression ast) {
+        return expressions.stream().anyMatch(expression -> same(expression, ast));
+    }
+
+    /**
+     * Returns whether two expressions are equal and access the same
+     * variables, which {@link Ast.Expression.Access#equals} does not check
+     * for variables shadowing others of the same name and type.
+     */
+    private static boolean same(Ast.Expression left, Ast.Expression right) {
+        if (!left.equals(right)) {
+            return false;
+        }
+        else if (left instanceof Ast.Expression.Group) {
+            return same(((Ast.Expression.Group) left).getExpression(), ((Ast.Expression.Group) right).getExpression());
+        }
+        else if (left instanceof Ast.Expression.Binary) {
+            return same(((Ast.Expression.Binary) left).getLeft(), ((Ast.Expression.Binary) right).getLeft())
+                    && same(((Ast.Expression.Binary) left).getRight(), ((Ast.Expression.Binary) right).getRight());
+        }
+        else if (left instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) left;
+            return access.getVariable() == ((Ast.Expression.Access) right).getVariable()
+                    && (!access.getOffset().isPresent() || same(access.getOffset().get(), ((Ast.Expression.Access) right).getOffset().get()));
+        }
+        return true;
+    }
+
+    private static boolean isEquality(Ast.Expression ast) {
+        String operator = ((Ast.Expression.Binary) ast).getOperator();
+        return operator.equals("==") || operator.equals("!=");
+    }
+
+    private static boolean isComparison(Ast.Expression.Binary ast) {
+        return ast.getOperator().equals("<") || ast.getOperator().equals(">");
+    }
+
+    private interface Candidates {
+
+        boolean visit(Ast.Expression ast, boolean conditional);
+
+    }
+
+    private static final class Range {
+
+        private final Ast.Expression expression;
+        private final int start;
+        private final int end;
+
+        private Range(Ast.Expression expression, int start, int end) {
+            this.expression = expression;
+            this.start = start;
+            this.end = end;
+        }
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package plc.project;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,8 +10,10 @@ import java.util.function.Function;
 public final class Scope {
 
     private final Scope parent;
-    private final Map<String, Environment.Variable> variables = new HashMap<>();
-    private final Map<String, Environment.Function> functions = new HashMap<>();
+    // Allocated on first definition, since most scopes (e.g. those of runtime
+    // values) never define anything.
+    private Map<String, Environment.Variable> variables = Collections.emptyMap();
+    private Map<String, Environment.Function> functions = Collections.emptyMap();
 
     public Scope(Scope parent) {
         this.parent = parent;
@@ -29,6 +32,9 @@ public final class Scope {
             throw new RuntimeException("The variable " + name + " is already defined in this scope.");
         } else {
             Environment.Variable variable = new Environment.Variable(name, jvmName, type, mutable, value);
+            if (variables.isEmpty()) {
+                variables = new HashMap<>();
+            }
             variables.put(variable.getName(), variable);
             return variables.get(name);
         }
@@ -45,18 +51,29 @@ public final class Scope {
     }
 
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
+        defineFunction(name, arity, Environment.Invoker.of(function));
+    }
+
+    public void defineFunction(String name, int arity, Environment.Invoker invoker) {
         List<Environment.Type> parameterTypes = new ArrayList<>();
         for (int i = 0; i < arity; i++) {
             parameterTypes.add(Environment.Type.ANY);
         }
-        defineFunction(name, name, parameterTypes, Environment.Type.ANY, function);
+        defineFunction(name, name, parameterTypes, Environment.Type.ANY, invoker);
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
+        return defineFunction(name, jvmName, parameterTypes, returnType, Environment.Invoker.of(function));
+    }
+
+    public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, Environment.Invoker invoker) {
         if (functions.containsKey(name + "/" + parameterTypes.size())) {
             throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
         } else {
-            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
+            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, invoker);
+            if (functions.isEmpty()) {
+                functions = new HashMap<>();
+            }
             functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
             return func;
         }
@@ -0,0 +1,78 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * Maps positions in the Java code of a {@link Generator} to the index of the
+ * first token of the global, function or statement generated there, so that
+ * profiles of compiled programs can be attributed to the PLC source. Lines are
+ * numbered from 1, as in stack traces, and columns from 0.
+ */
+public final class SourceMap {
+
+    // Positions in the order they were generated, which is increasing.
+    private int[] lines = new int[64];
+    private int[] columns = new int[64];
+    private int[] indices = new int[64];
+    private int size = 0;
+
+    void add(int line, int column, int index) {
+        if (size == lines.length) {
+            lines = Arrays.copyOf(lines, 2 * size);
+            columns = Arrays.copyOf(columns, 2 * size);
+            indices = Arrays.copyOf(indices, 2 * size);
+        }
+        lines[size] = line;
+        columns[size] = column;
+        indices[size] = index;
+        size++;
+    }
+
+    /**
+     * Returns the index of the construct generated last at or before the
+     * position, or -1 if there is none.
+     */
+    public int getIndex(int line, int column) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (lines[middle] < line || lines[middle] == line && columns[middle] <= column) {
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return high < 0 ? -1 : indices[high];
+    }
+
+    /**
+     * Returns the index of the first construct generated on the line, or of
+     * the one the line belongs to if none starts on it. This suits stack
+     * traces, which only have lines.
+     */
+    public int getIndex(int line) {
+        // The first position on or after the line.
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lines[middle] < line) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        if (low < size && lines[low] == line) {
+            return indices[low];
+        }
+        return low == 0 ? -1 : indices[low - 1];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+}
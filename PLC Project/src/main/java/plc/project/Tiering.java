@@ -0,0 +1,482 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Promotes hot functions of interpreted executions to bytecode generated by
+ * {@link BytecodeGenerator}, see {@link Interpreter#setTiering}.
+ *
+ * Each function counts its invocations and loop back-edges; once they reach
+ * the threshold, the function and the functions it calls are compiled on the
+ * executor. Meanwhile the interpreter keeps running it, and once compiled
+ * its binding switches to the compiled code, in every execution sharing
+ * this instance (compiled functions keep no state of their own).
+ *
+ * Only functions that behave the same when compiled are promoted: those over
+ * Integer and Boolean values that use no globals, lists or builtins, and no
+ * operators whose interpreted results differ from Java's (==, !=, ^,
+ * division by a variable, or a comparison of a computed left operand). The
+ * others are rejected and stay interpreted.
+ */
+public final class Tiering {
+
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private static final MethodHandle TO_INT;
+    private static final MethodHandle TO_BOOLEAN;
+    private static final MethodHandle FROM_INT;
+    private static final MethodHandle FROM_BOOLEAN;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TO_INT = lookup.findStatic(Tiering.class, "toInt", MethodType.methodType(int.class, Environment.PlcObject.class));
+            TO_BOOLEAN = lookup.findStatic(Tiering.class, "toBoolean", MethodType.methodType(boolean.class, Environment.PlcObject.class));
+            FROM_INT = lookup.findStatic(Tiering.class, "fromInt", MethodType.methodType(Environment.PlcObject.class, int.class));
+            FROM_BOOLEAN = lookup.findStatic(Tiering.class, "fromBoolean", MethodType.methodType(Environment.PlcObject.class, boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * The tiers of a function. Promoted functions are compiling until they
+     * are compiled, rejected as not compilable, or failed to compile.
+     */
+    public enum Tier {
+        INTERPRETED, COMPILING, COMPILED, REJECTED, FAILED
+    }
+
+    private final int threshold;
+    private final Executor executor;
+    private final Map<Environment.Function, Ast.Function> definitions = new IdentityHashMap<>();
+    private final Map<Ast.Function, Tier> tiers = new IdentityHashMap<>();
+    private final Map<Ast.Function, Environment.Invoker> compiled = new IdentityHashMap<>();
+    private final Map<Ast.Function, List<Interpreter.FunctionInvoker>> waiting = new IdentityHashMap<>();
+    private long promotions = 0;
+    private long compilations = 0;
+    private long rejections = 0;
+    private long failures = 0;
+    private long compileNanos = 0;
+
+    public Tiering() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public Tiering(int threshold, Executor executor) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The threshold must be positive.");
+        }
+        this.threshold = threshold;
+        this.executor = executor;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Registers a function defined by an interpreter, binding it to its
+     * compiled code if there already is some.
+     */
+    synchronized void define(Interpreter.FunctionInvoker invoker) {
+        Ast.Function ast = invoker.getAst();
+        definitions.put(ast.getFunction(), ast);
+        if (compiled.containsKey(ast)) {
+            invoker.bind(compiled.get(ast));
+        }
+    }
+
+    /**
+     * Requests the compilation of a function that became hot.
+     */
+    synchronized void promote(Interpreter.FunctionInvoker invoker) {
+        Ast.Function ast = invoker.getAst();
+        Tier tier = tiers.getOrDefault(ast, Tier.INTERPRETED);
+        if (tier == Tier.INTERPRETED) {
+            tiers.put(ast, Tier.COMPILING);
+            waiting.put(ast, new ArrayList<>());
+            promotions++;
+            executor.execute(() -> compile(ast));
+        }
+        if (tiers.get(ast) == Tier.COMPILING) {
+            waiting.get(ast).add(invoker);
+        }
+        else if (tiers.get(ast) == Tier.COMPILED) {
+            invoker.bind(compiled.get(ast));
+        }
+    }
+
+    private void compile(Ast.Function ast) {
+        long start = System.nanoTime();
+        List<Ast.Function> functions = new ArrayList<>();
+        synchronized (this) {
+            if (!closure(ast, functions, Collections.newSetFromMap(new IdentityHashMap<>()))) {
+                tiers.put(ast, Tier.REJECTED);
+                waiting.remove(ast);
+                rejections++;
+                return;
+            }
+        }
+        Environment.Invoker invoker;
+        try {
+            byte[] bytes = BytecodeGenerator.generate(new Ast.Source(Collections.emptyList(), functions));
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            invoker = invoker(ast.getFunction(), lookup.findStatic(lookup.lookupClass(), ast.getFunction().getJvmName(), type(ast.getFunction())));
+        } catch (RuntimeException | LinkageError | ReflectiveOperationException e) {
+            synchronized (this) {
+                tiers.put(ast, Tier.FAILED);
+                waiting.remove(ast);
+                failures++;
+            }
+            return;
+        }
+        synchronized (this) {
+            compiled.put(ast, invoker);
+            tiers.put(ast, Tier.COMPILED);
+            for (Interpreter.FunctionInvoker function : waiting.remove(ast)) {
+                function.bind(invoker);
+            }
+            compilations++;
+            compileNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Returns the tier of each promoted function by name/arity.
+     */
+    public synchronized Map<String, Tier> getTiers() {
+        Map<String, Tier> result = new LinkedHashMap<>();
+        for (Map.Entry<Ast.Function, Tier> entry : tiers.entrySet()) {
+            result.put(entry.getKey().getName() + "/" + entry.getKey().getParameters().size(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of functions promoted for compilation.
+     */
+    public synchronized long getPromotions() {
+        return promotions;
+    }
+
+    public synchronized long getCompilations() {
+        return compilations;
+    }
+
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the total time spent compiling the compiled functions.
+     */
+    public synchronized long getCompileNanos() {
+        return compileNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Tiering{" +
+                "threshold=" + threshold +
+                ", promotions=" + promotions +
+                ", compilations=" + compilations +
+                ", rejections=" + rejections +
+                ", failures=" + failures +
+                ", compileNanos=" + compileNanos +
+                ", tiers=" + getTiers() +
+                '}';
+    }
+
+    /**
+     * Collects a function and the functions it calls, returning whether they
+     * are all compilable.
+     */
+    private boolean closure(Ast.Function ast, List<Ast.Function> functions, Set<Ast.Function> visited) {
+        if (!visited.add(ast)) {
+            return true;
+        }
+        functions.add(ast);
+        Environment.Function function = ast.getFunction();
+        for (Environment.Type type : function.getParameterTypes()) {
+            if (!isValue(type)) {
+                return false;
+            }
+        }
+        if (!isValue(function.getReturnType()) || !returns(ast.getStatements())) {
+            return false;
+        }
+        List<Ast.Function> callees = new ArrayList<>();
+        if (!statements(ast.getStatements(), function, callees)) {
+            return false;
+        }
+        for (Ast.Function callee : callees) {
+            if (!closure(callee, functions, visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean statements(List<Ast.Statement> statements, Environment.Function function, List<Ast.Function> callees) {
+        for (Ast.Statement statement : statements) {
+            if (!statement(statement, function, callees)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean statement(Ast.Statement ast, Environment.Function function, List<Ast.Function> callees) {
+        if (ast instanceof Ast.Statement.Expression) {
+            return expression(((Ast.Statement.Expression) ast).getExpression(), callees);
+        }
+        else if (ast instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+            // The interpreter initializes a declaration without a value to NIL.
+            return isValue(declaration.getVariable().getType()) && declaration.getValue().isPresent() && expression(declaration.getValue().get(), callees);
+        }
+        else if (ast instanceof Ast.Statement.Assignment) {
+            Ast.Expression.Access receiver = (Ast.Expression.Access) ((Ast.Statement.Assignment) ast).getReceiver();
+            return isLocal(receiver) && expression(((Ast.Statement.Assignment) ast).getValue(), callees);
+        }
+        else if (ast instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) ast;
+            return expression(statement.getCondition(), callees) && statements(statement.getThenStatements(), function, callees) && statements(statement.getElseStatements(), function, callees);
+        }
+        else if (ast instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+            if (!statement.getCondition().getType().equals(Environment.Type.INTEGER) || !expression(statement.getCondition(), callees)) {
+                return false;
+            }
+            for (Ast.Statement.Case c : statement.getCases()) {
+                if (c.getValue().isPresent() && !expression(c.getValue().get(), callees) || !statements(c.getStatements(), function, callees)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        else if (ast instanceof Ast.Statement.While) {
+            Ast.Statement.While statement = (Ast.Statement.While) ast;
+            return expression(statement.getCondition(), callees) && statements(statement.getStatements(), function, callees);
+        }
+        else if (ast instanceof Ast.Statement.Return) {
+            // Only self tail calls run in constant stack once compiled.
+            Ast.Statement.Return statement = (Ast.Statement.Return) ast;
+            if (statement.isTailCall() && ((Ast.Expression.Function) statement.getValue()).getFunction() != function) {
+                return false;
+            }
+            return expression(statement.getValue(), callees);
+        }
+        return false;
+    }
+
+    private boolean expression(Ast.Expression ast, List<Ast.Function> callees) {
+        if (ast instanceof Ast.Expression.Literal) {
+            Object literal = ((Ast.Expression.Literal) ast).getLiteral();
+            return literal instanceof BigInteger || literal instanceof Boolean;
+        }
+        else if (ast instanceof Ast.Expression.Group) {
+            return expression(((Ast.Expression.Group) ast).getExpression(), callees);
+        }
+        else if (ast instanceof Ast.Expression.Access) {
+            return isLocal((Ast.Expression.Access) ast);
+        }
+        else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            String operator = binary.getOperator();
+            if (!expression(binary.getLeft(), callees) || !expression(binary.getRight(), callees)) {
+                return false;
+            }
+            else if (operator.equals("&&") || operator.equals("||")) {
+                return true;
+            }
+            else if (!binary.getLeft().getType().equals(Environment.Type.INTEGER)) {
+                return false;
+            }
+            else if (operator.equals("<") || operator.equals(">")) {
+                // The interpreter requires the left operand to yield the same
+                // object when evaluated twice.
+                Ast.Expression left = binary.getLeft();
+                while (left instanceof Ast.Expression.Group) {
+                    left = ((Ast.Expression.Group) left).getExpression();
+                }
+                return left instanceof Ast.Expression.Literal || left instanceof Ast.Expression.Access;
+            }
+            else if (operator.equals("/")) {
+                // Division by zero fails differently.
+                return binary.getRight() instanceof Ast.Expression.Literal && ((BigInteger) ((Ast.Expression.Literal) binary.getRight()).getLiteral()).signum() != 0;
+            }
+            return operator.equals("+") || operator.equals("-") || operator.equals("*");
+        }
+        else if (ast instanceof Ast.Expression.Function) {
+            Ast.Function callee = definitions.get(((Ast.Expression.Function) ast).getFunction());
+            if (callee == null) {
+                return false;
+            }
+            callees.add(callee);
+            for (Ast.Expression argument : ((Ast.Expression.Function) ast).getArguments()) {
+                if (!expression(argument, callees)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a block never completes normally, in which case the
+     * interpreter would return NIL.
+     */
+    private static boolean returns(List<Ast.Statement> statements) {
+        if (statements.isEmpty()) {
+            return false;
+        }
+        Ast.Statement last = statements.get(statements.size() - 1);
+        if (last instanceof Ast.Statement.If) {
+            return returns(((Ast.Statement.If) last).getThenStatements()) && returns(((Ast.Statement.If) last).getElseStatements());
+        }
+        return last instanceof Ast.Statement.Return;
+    }
+
+    private static boolean isLocal(Ast.Expression.Access ast) {
+        return !ast.getOffset().isPresent() && ast.getVariable().getSlot() >= 0 && isValue(ast.getVariable().getType());
+    }
+
+    private static boolean isValue(Environment.Type type) {
+        return type.equals(Environment.Type.INTEGER) || type.equals(Environment.Type.BOOLEAN);
+    }
+
+    private static MethodType type(Environment.Function function) {
+        List<Class<?>> parameters = new ArrayList<>();
+        for (Environment.Type type : function.getParameterTypes()) {
+            parameters.add(type.equals(Environment.Type.INTEGER) ? int.class : boolean.class);
+        }
+        return MethodType.methodType(function.getReturnType().equals(Environment.Type.INTEGER) ? int.class : boolean.class, parameters);
+    }
+
+    /**
+     * Adapts a compiled function to take and return interpreter values.
+     */
+    private static Environment.Invoker invoker(Environment.Function function, MethodHandle handle) {
+        List<Environment.Type> types = function.getParameterTypes();
+        for (int i = 0; i < types.size(); i++) {
+            handle = MethodHandles.filterArguments(handle, i, types.get(i).equals(Environment.Type.INTEGER) ? TO_INT : TO_BOOLEAN);
+        }
+        handle = MethodHandles.filterReturnValue(handle, function.getReturnType().equals(Environment.Type.INTEGER) ? FROM_INT : FROM_BOOLEAN);
+        return new CompiledInvoker(handle);
+    }
+
+    private static int toInt(Environment.PlcObject object) {
+        return ((BigInteger) object.getValue()).intValue();
+    }
+
+    private static boolean toBoolean(Environment.PlcObject object) {
+        return (Boolean) object.getValue();
+    }
+
+    private static Environment.PlcObject fromInt(int value) {
+        return Environment.create(BigInteger.valueOf(value));
+    }
+
+    private static Environment.PlcObject fromBoolean(boolean value) {
+        return Environment.create(value);
+    }
+
+    /**
+     * Invoker of a compiled function over interpreter values.
+     */
+    private static final class CompiledInvoker extends Environment.Invoker {
+
+        private final MethodHandle handle;
+
+        private CompiledInvoker(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject... arguments) {
+            try {
+                return (Environment.PlcObject) handle.invokeWithArguments((Object[]) arguments);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke0() {
+            try {
+                return (Environment.PlcObject) handle.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke1(Environment.PlcObject argument0) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke2(Environment.PlcObject argument0, Environment.PlcObject argument1) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0, argument1);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke3(Environment.PlcObject argument0, Environment.PlcObject argument1, Environment.PlcObject argument2) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0, argument1, argument2);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Environment.PlcObject invoke4(Environment.PlcObject argument0, Environment.PlcObject argument1, Environment.PlcObject argument2, Environment.PlcObject argument3) {
+            try {
+                return (Environment.PlcObject) handle.invokeExact(argument0, argument1, argument2, argument3);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+}
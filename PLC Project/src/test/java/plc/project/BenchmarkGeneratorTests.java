@@ -0,0 +1,141 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class BenchmarkGeneratorTests {
+
+    private static final String SOURCE = String.join("\n",
+            "VAR count: Integer = 0;",
+            "FUN square(x: Integer): Integer DO",
+            "    count = count + 1;",
+            "    RETURN x * x;",
+            "END",
+            "FUN greet(name: String, times: Integer): Integer DO",
+            "    WHILE times > 0 DO",
+            "        print(name);",
+            "        times = times - 1;",
+            "    END",
+            "    RETURN times;",
+            "END",
+            "FUN main(): Integer DO",
+            "    greet(\"PLC\", square(2));",
+            "    RETURN square(3) + count;",
+            "END"
+    );
+
+    @Test
+    void testGenerate() {
+        BenchmarkGenerator generator = new BenchmarkGenerator(BenchmarkGenerator.analyze(SOURCE));
+        generator.addFixture("greet", "\"name\", 3");
+        Emitter emitter = new Emitter();
+        generator.generate(emitter);
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "package plc.benchmark;",
+                "",
+                "import java.util.concurrent.TimeUnit;",
+                "import org.openjdk.jmh.annotations.*;",
+                "import org.openjdk.jmh.infra.Blackhole;",
+                "",
+                "@State(Scope.Thread)",
+                "@BenchmarkMode(Mode.AverageTime)",
+                "@OutputTimeUnit(TimeUnit.NANOSECONDS)",
+                "@Warmup(iterations = 5, time = 1)",
+                "@Measurement(iterations = 5, time = 1)",
+                "@Fork(2)",
+                "public class MainBenchmark {",
+                "",
+                "    private Main main;",
+                "",
+                "    @Setup(Level.Iteration)",
+                "    public void setup() {",
+                "        main = new Main();",
+                "    }",
+                "",
+                "    @Benchmark",
+                "    public void main$0(Blackhole blackhole) {",
+                "        blackhole.consume(main.main());",
+                "    }",
+                "",
+                "    @Benchmark",
+                "    public void greet$1(Blackhole blackhole) {",
+                "        blackhole.consume(main.greet(\"name\", 3));",
+                "    }",
+                "",
+                "}",
+                ""
+        ), emitter.toString());
+    }
+
+    @Test
+    void testUnoptimized() {
+        // Optimized, sq is inlined into main and work is removed.
+        BenchmarkGenerator generator = new BenchmarkGenerator(BenchmarkGenerator.analyze(String.join("\n",
+                "FUN sq(x: Integer): Integer DO",
+                "    RETURN x * x;",
+                "END",
+                "FUN work(): Integer DO",
+                "    RETURN sq(4);",
+                "END",
+                "FUN main(): Integer DO",
+                "    RETURN sq(3);",
+                "END"
+        )));
+        generator.addFixture("sq", "5");
+        Emitter emitter = new Emitter();
+        generator.generate(emitter);
+        Assertions.assertTrue(emitter.toString().contains("public void work$0(Blackhole blackhole) {"), emitter.toString());
+        Assertions.assertTrue(emitter.toString().contains("blackhole.consume(main.sq(5));"), emitter.toString());
+    }
+
+    @Test
+    void testFixture() {
+        BenchmarkGenerator generator = new BenchmarkGenerator(BenchmarkGenerator.analyze(SOURCE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> generator.addFixture("greet", "\"name\", 1 + 2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> generator.addFixture("greet", "\"name\""));
+        Assertions.assertThrows(RuntimeException.class, () -> generator.addFixture("greet", "3, \"name\""));
+    }
+
+    /**
+     * Compiles the generated classes with the JMH annotation processor, which
+     * generates the harness of each benchmark.
+     */
+    @Test
+    void testProcessor(@TempDir Path directory) throws Exception {
+        Path program = directory.resolve("program.plc");
+        Files.write(program, SOURCE.getBytes(StandardCharsets.UTF_8));
+        Path sources = directory.resolve("src");
+        Path classes = Files.createDirectory(directory.resolve("classes"));
+        BenchmarkGenerator.main(new String[] {program.toString(), sources.toString(), "greet:\"name\", 3"});
+        String core = location("org.openjdk.jmh.annotations.Benchmark");
+        String processor = location("org.openjdk.jmh.generators.BenchmarkProcessor");
+        List<String> args = new ArrayList<>(Arrays.asList("-classpath", core, "-processorpath", processor + File.pathSeparator + core, "-d", classes.toString()));
+        args.add(sources.resolve("plc/benchmark/Main.java").toString());
+        args.add(sources.resolve("plc/benchmark/MainBenchmark.java").toString());
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int status = ToolProvider.getSystemJavaCompiler().run(null, null, errors, args.toArray(new String[0]));
+        Assertions.assertEquals(0, status, errors.toString());
+        Assertions.assertTrue(Files.exists(classes.resolve("plc/benchmark/jmh_generated/MainBenchmark_main$0_jmhTest.class")));
+        Assertions.assertTrue(Files.exists(classes.resolve("plc/benchmark/jmh_generated/MainBenchmark_greet$1_jmhTest.class")));
+    }
+
+    /**
+     * Returns the jar or directory a class of the test classpath is in.
+     */
+    private static String location(String name) throws Exception {
+        return Paths.get(Class.forName(name).getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+}
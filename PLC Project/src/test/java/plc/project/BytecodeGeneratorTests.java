@@ -0,0 +1,100 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class BytecodeGeneratorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testExecute(String test, String input, int result, String output) {
+        BytecodeProgram program = BytecodeProgram.compile(Program.compile(input));
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            Assertions.assertEquals(BigInteger.valueOf(result), program.execute().getValue());
+        } finally {
+            System.setOut(sysout);
+        }
+        Assertions.assertEquals(output.replace("\n", System.lineSeparator()), out.toString());
+    }
+
+    private static Stream<Arguments> testExecute() {
+        return Stream.of(
+                Arguments.of("Recursion",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(10); END",
+                        55, ""
+                ),
+                Arguments.of("Tail Call",
+                        "FUN count(n: Integer, acc: Integer): Integer DO IF n < 1 DO RETURN acc; END RETURN count(n - 1, acc + n); END FUN main(): Integer DO RETURN count(100000, 0); END",
+                        705082704, ""
+                ),
+                Arguments.of("Loop",
+                        "FUN main(): Integer DO LET i = 0; LET s = 0; WHILE i < 10 && s < 100 DO s = s + i * i; i = i + 1; END RETURN s; END",
+                        140, ""
+                ),
+                Arguments.of("Globals",
+                        "VAR count: Integer = 1; LIST xs: Integer = [1, 2, 3]; FUN main(): Integer DO count = count + 1; xs[1] = count * 10; RETURN xs[0] + xs[1]; END",
+                        21, ""
+                ),
+                Arguments.of("Decimal",
+                        "FUN half(d: Decimal): Decimal DO RETURN d / 2.0; END FUN main(): Integer DO print(half(3.0)); print(half(1.0) > 0.4); RETURN 0; END",
+                        0, "1.5\ntrue\n"
+                ),
+                Arguments.of("String",
+                        "FUN main(): Integer DO LET s = \"a\"; print(s + 1 + 'c' + TRUE + 1.5); print(s < \"b\"); print(s == \"a\"); RETURN 0; END",
+                        0, "a1ctrue1.5\ntrue\ntrue\n"
+                ),
+                Arguments.of("Switch",
+                        "FUN name(x: Integer): String DO SWITCH x CASE 1: RETURN \"one\"; CASE 2: print(\"two\"); DEFAULT RETURN \"many\"; END RETURN \"fell\"; END FUN main(): Integer DO print(name(1)); print(name(2)); print(name(3)); RETURN 0; END",
+                        0, "one\ntwo\nfell\nmany\n"
+                ),
+                Arguments.of("String Switch",
+                        "FUN main(): Integer DO LET s = \"b\"; SWITCH s CASE \"a\": RETURN 1; CASE \"b\": RETURN 2; DEFAULT RETURN 3; END END",
+                        2, ""
+                ),
+                Arguments.of("Power",
+                        "FUN main(): Integer DO print(2.0 ^ 3); RETURN 3 ^ 4; END",
+                        81, "8.0\n"
+                ),
+                Arguments.of("Any",
+                        "FUN show(x: Any): Any DO print(x); RETURN x; END FUN main(): Integer DO show(1); show(\"s\"); RETURN 0; END",
+                        0, "1\ns\n"
+                )
+        );
+    }
+
+    @Test
+    void testGlobalsReset() {
+        BytecodeProgram program = BytecodeProgram.compile(Program.compile(
+                "VAR count: Integer = 0; FUN main(): Integer DO count = count + 1; RETURN count; END"
+        ));
+        Assertions.assertEquals(BigInteger.ONE, program.execute().getValue());
+        Assertions.assertEquals(BigInteger.ONE, program.execute().getValue());
+    }
+
+    @Test
+    void testException() {
+        BytecodeProgram program = BytecodeProgram.compile(Program.compile(
+                "FUN main(): Integer DO LET x = 0; RETURN 1 / x; END"
+        ));
+        Assertions.assertThrows(ArithmeticException.class, program::execute);
+    }
+
+    @Test
+    void testImmutable() {
+        Assertions.assertThrows(RuntimeException.class, () -> BytecodeProgram.compile(Program.compile(
+                "VAL x: Integer = 1; FUN main(): Integer DO x = 2; RETURN x; END"
+        )));
+    }
+
+}
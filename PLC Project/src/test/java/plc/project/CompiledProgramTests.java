@@ -0,0 +1,144 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+final class CompiledProgramTests {
+
+    private static final String FACTORIAL = String.join("\n",
+            "VAR calls: Integer = 0;",
+            "FUN fact(n: Integer): Integer DO",
+            "    calls = calls + 1;",
+            "    IF n < 2 DO",
+            "        RETURN 1;",
+            "    END",
+            "    RETURN n * fact(n - 1);",
+            "END",
+            "FUN main(): Integer DO",
+            "    print(fact(5));",
+            "    RETURN calls;",
+            "END"
+    );
+
+    @Test
+    void testExecute() {
+        CompiledProgram program = CompiledProgram.compile(Program.compile(FACTORIAL), new ClassCache());
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            // Each run has its own globals.
+            Assertions.assertEquals(BigInteger.valueOf(5), program.execute().getValue());
+            Assertions.assertEquals(BigInteger.valueOf(5), program.execute().getValue());
+        } finally {
+            System.setOut(sysout);
+        }
+        Assertions.assertEquals("120" + System.lineSeparator() + "120" + System.lineSeparator(), out.toString());
+    }
+
+    @Test
+    void testConcatenation() {
+        // Integer ^ and a string built in a loop, which javac would reject or run slowly before.
+        CompiledProgram program = CompiledProgram.compile(Program.compile(String.join("\n",
+                "FUN main(): Integer DO",
+                "    LET s = \"\";",
+                "    LET i = 0;",
+                "    WHILE i < 4 DO",
+                "        s = s + i + ',';",
+                "        i = i + 1;",
+                "    END",
+                "    i = 0;",
+                "    WHILE i < 2 DO",
+                "        s = s + 'x';",
+                "        i = i + 1;",
+                "    END",
+                "    print(s);",
+                "    RETURN 2 ^ 10;",
+                "END"
+        )), new ClassCache());
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            Assertions.assertEquals(BigInteger.valueOf(1024), program.execute().getValue());
+        } finally {
+            System.setOut(sysout);
+        }
+        Assertions.assertEquals("0,1,2,3,xx" + System.lineSeparator(), out.toString());
+        Assertions.assertTrue(program.getJava().contains("s$builder0.append(i).append(',');"), program.getJava());
+        Assertions.assertTrue(program.getJava().contains("s$builder1.append('x');"), program.getJava());
+    }
+
+    @Test
+    void testException() {
+        CompiledProgram program = CompiledProgram.compile(Program.compile(String.join("\n",
+                "FUN div(x: Integer, y: Integer): Integer DO",
+                "    RETURN x / y;",
+                "END",
+                "FUN main(): Integer DO",
+                "    RETURN div(1, 0);",
+                "END"
+        )), new ClassCache());
+        Assertions.assertThrows(ArithmeticException.class, program::execute);
+    }
+
+    @Test
+    void testMemoryCache() {
+        ClassCache cache = new ClassCache();
+        CompiledProgram first = CompiledProgram.compile(Program.compile(FACTORIAL), cache);
+        CompiledProgram second = CompiledProgram.compile(Program.compile(FACTORIAL), cache);
+        Assertions.assertEquals(1, cache.getSize());
+        Assertions.assertSame(cache.load(first.getJava(), "Main"), cache.load(second.getJava(), "Main"));
+    }
+
+    @Test
+    void testEviction() {
+        ClassCache cache = new ClassCache(null, 2);
+        String first = CompiledProgram.compile(Program.compile("FUN main(): Integer DO RETURN 1; END"), cache).getJava();
+        Class<?> type = cache.load(first, "Main");
+        for (int i = 2; i <= 3; i++) {
+            CompiledProgram.compile(Program.compile("FUN main(): Integer DO RETURN " + i + "; END"), cache);
+        }
+        Assertions.assertEquals(2, cache.getSize());
+        // The least recently used source was evicted and is compiled again.
+        Assertions.assertNotSame(type, cache.load(first, "Main"));
+    }
+
+    @Test
+    void testDiskCache(@TempDir Path directory) throws IOException {
+        Program program = Program.compile(FACTORIAL);
+        CompiledProgram.compile(program, new ClassCache(directory));
+        try (Stream<Path> entries = Files.list(directory)) {
+            Assertions.assertEquals(1, entries.count());
+        }
+        // A new cache loads the stored class file instead of compiling.
+        CompiledProgram cached = CompiledProgram.compile(program, new ClassCache(directory));
+        Assertions.assertEquals(BigInteger.valueOf(5), cached.execute().getValue());
+    }
+
+    @Test
+    void testSplit() {
+        // A single method for this function would exceed javac's 64KB limit.
+        StringBuilder source = new StringBuilder("FUN big(n: Integer): Integer DO\n    LET x = n;\n");
+        for (int i = 0; i < 50000; i++) {
+            if (i % 1000 == 500) {
+                source.append("    IF x < 0 DO\n        RETURN 0;\n    END\n");
+            }
+            source.append("    x = x + ").append(i % 10).append(";\n");
+        }
+        source.append("    RETURN x;\nEND\nFUN main(): Integer DO\n    RETURN big(1);\nEND");
+        CompiledProgram program = CompiledProgram.compile(Program.compile(source.toString()), new ClassCache());
+        Assertions.assertEquals(BigInteger.valueOf(225001), program.execute().getValue());
+        Assertions.assertTrue(program.getJava().contains("private static final class big$Context {"));
+    }
+
+}
@@ -0,0 +1,107 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class ConstantFolderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testExpression(String test, String expression, Object expected) {
+        Ast.Source ast = fold(String.join("\n",
+                "VAL day: Integer = 60 * 60 * 24;",
+                "VAR counter: Integer = 0;",
+                "FUN main(): Integer DO",
+                "    print(" + expression + ");",
+                "    RETURN 0;",
+                "END"
+        ));
+        Ast.Statement.Expression statement = (Ast.Statement.Expression) ast.getFunctions().get(0).getStatements().get(0);
+        Ast.Expression value = ((Ast.Expression.Function) statement.getExpression()).getArguments().get(0);
+        if (expected != null) {
+            Assertions.assertTrue(value instanceof Ast.Expression.Literal, value.toString());
+            Assertions.assertEquals(expected, ((Ast.Expression.Literal) value).getLiteral());
+        }
+        else {
+            Assertions.assertFalse(value instanceof Ast.Expression.Literal, value.toString());
+        }
+    }
+
+    private static Stream<Arguments> testExpression() {
+        return Stream.of(
+                Arguments.of("Multiplication", "60 * 60 * 24", BigInteger.valueOf(86400)),
+                Arguments.of("Integer Division", "-7 / 2", BigInteger.valueOf(-3)),
+                Arguments.of("Integer Overflow", "2147483647 + 1", BigInteger.valueOf(Integer.MIN_VALUE)),
+                Arguments.of("Decimal Addition", "0.1 + 0.2", new BigDecimal("0.30000000000000004")),
+                Arguments.of("Exact Decimal Division", "7.0 / 2.0", new BigDecimal("3.5")),
+                Arguments.of("Rounded Decimal Division", "1.0 / 3.0", null),
+                Arguments.of("Division By Zero", "1 / 0", null),
+                Arguments.of("Exponent", "2 ^ 10", null),
+                Arguments.of("Concatenation", "\"a\" + \"b\"", "ab"),
+                Arguments.of("Immutable Global", "day * 7", BigInteger.valueOf(604800)),
+                Arguments.of("Mutable Global", "counter + 1", null),
+                Arguments.of("Comparison", "day > 3600", true),
+                Arguments.of("Comparison Of Grouped Sum", "(1000 + 1) < 2000", null),
+                Arguments.of("Equality", "1 == 1", null),
+                Arguments.of("Short Circuit", "FALSE && counter < 1", false)
+        );
+    }
+
+    @Test
+    void testBranches() {
+        Ast.Source ast = fold(String.join("\n",
+                "VAL debug: Boolean = FALSE;",
+                "FUN main(): Integer DO",
+                "    WHILE debug DO",
+                "        print(1);",
+                "    END",
+                "    IF debug DO",
+                "        print(2);",
+                "    ELSE",
+                "        print(3);",
+                "    END",
+                "    IF 1 < 2 DO",
+                "        RETURN 4;",
+                "    END",
+                "    RETURN 5;",
+                "END"
+        ));
+        List<Ast.Statement> statements = ast.getFunctions().get(0).getStatements();
+        Assertions.assertEquals(2, statements.size());
+        Assertions.assertTrue(statements.get(0) instanceof Ast.Statement.Expression);
+        Ast.Expression value = ((Ast.Statement.Return) statements.get(1)).getValue();
+        Assertions.assertEquals(BigInteger.valueOf(4), ((Ast.Expression.Literal) value).getLiteral());
+    }
+
+    @Test
+    void testProgram() {
+        Program program = Program.compile(String.join("\n",
+                "VAL seconds: Integer = 60 * 60;",
+                "FUN main(): Integer DO",
+                "    LET total = 0;",
+                "    LET i = 0;",
+                "    WHILE i < 3 DO",
+                "        total = total + seconds * 2;",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN total;",
+                "END"
+        ));
+        Assertions.assertEquals(BigInteger.valueOf(21600), program.execute().getValue());
+    }
+
+    private static Ast.Source fold(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return new ConstantFolder().visit(ast);
+    }
+
+}
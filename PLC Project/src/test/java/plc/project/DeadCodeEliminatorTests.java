@@ -0,0 +1,80 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class DeadCodeEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testStatements(String test, String body, int expected) {
+        Ast.Source ast = eliminate(String.join("\n",
+                "FUN main(): Integer DO",
+                body,
+                "END"
+        ));
+        Assertions.assertEquals(expected, ast.getFunctions().get(0).getStatements().size());
+    }
+
+    private static Stream<Arguments> testStatements() {
+        return Stream.of(
+                Arguments.of("Return", "RETURN 1; print(2); RETURN 3;", 1),
+                Arguments.of("If Both Branches Return", "LET x = 1; IF x < 2 DO RETURN 1; ELSE RETURN 2; END RETURN 3;", 2),
+                Arguments.of("If One Branch Returns", "LET x = 1; IF x < 2 DO RETURN 1; END RETURN 3;", 3),
+                Arguments.of("While True", "WHILE TRUE DO RETURN 1; END RETURN 2;", 1),
+                Arguments.of("While", "LET x = 1; WHILE x < 2 DO RETURN 1; END RETURN 2;", 3),
+                Arguments.of("Switch All Cases Return", "LET x = 1; SWITCH x CASE 1: RETURN 1; DEFAULT RETURN 2; END RETURN 3;", 2),
+                Arguments.of("Switch Default Completes", "LET x = 1; SWITCH x CASE 1: RETURN 1; DEFAULT print(x); END RETURN 3;", 3)
+        );
+    }
+
+    @Test
+    void testCallGraph() {
+        Ast.Source ast = eliminate(String.join("\n",
+                "FUN helper(): Integer DO",
+                "    RETURN 1;",
+                "END",
+                "FUN unused(): Integer DO",
+                "    RETURN helper();",
+                "END",
+                "FUN used(): Integer DO",
+                "    RETURN helper();",
+                "END",
+                "FUN main(): Integer DO",
+                "    RETURN used();",
+                "END"
+        ));
+        List<String> names = ast.getFunctions().stream().map(Ast.Function::getName).collect(Collectors.toList());
+        Assertions.assertEquals(Arrays.asList("helper", "used", "main"), names);
+    }
+
+    @Test
+    void testGlobals() {
+        Ast.Source ast = eliminate(String.join("\n",
+                "VAR unused: Integer = 1;",
+                "VAR read: Integer = 2;",
+                "VAR failing: Integer = 1 / 0;",
+                "VAL alias: Integer = read;",
+                "FUN main(): Integer DO",
+                "    RETURN read;",
+                "END"
+        ));
+        List<String> names = ast.getGlobals().stream().map(Ast.Global::getName).collect(Collectors.toList());
+        Assertions.assertEquals(Arrays.asList("read", "failing"), names);
+    }
+
+    private static Ast.Source eliminate(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return new DeadCodeEliminator().visit(ast);
+    }
+
+}
@@ -0,0 +1,47 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+final class EmitterTests {
+
+    @Test
+    void testNewline() {
+        Emitter emitter = new Emitter(16);
+        emitter.append("a").newline(2).append('b').newline(40).append(1);
+        String separator = System.lineSeparator();
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            indent.append("    ");
+        }
+        Assertions.assertEquals("a" + separator + "        b" + separator + indent + "1", emitter.toString());
+    }
+
+    @Test
+    void testWrite() throws IOException {
+        // Large enough to span several encoding chunks, with multi-byte characters.
+        Emitter emitter = new Emitter();
+        for (int i = 0; i < 5000; i++) {
+            emitter.append("\"\u03c0 ").append(i).append("\";").newline(1);
+        }
+        String expected = emitter.toString();
+        StringWriter writer = new StringWriter();
+        emitter.writeTo(writer);
+        Assertions.assertEquals(expected, writer.toString());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        emitter.writeTo(stream);
+        Assertions.assertEquals(expected, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+        ByteArrayOutputStream channel = new ByteArrayOutputStream();
+        emitter.writeTo(Channels.newChannel(channel));
+        Assertions.assertEquals(expected, new String(channel.toByteArray(), StandardCharsets.UTF_8));
+        emitter.clear();
+        Assertions.assertEquals("x", emitter.append(new Emitter().append("x")).toString());
+    }
+
+}
@@ -0,0 +1,53 @@
+package plc.project;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Throughput benchmark for {@link ExecutionService}, run via its main method
+ * (it is not a JUnit test). Each round submits 100k executions of a script
+ * that blocks for 10 ms in a native call, standing in for I/O, and reports the
+ * executions completed per second at increasing concurrency limits. Run it on
+ * JDK 21+ to measure virtual threads.
+ */
+public final class ExecutionServiceBenchmark {
+
+    private static final int INVOCATIONS = 100_000;
+    private static final int[] CONCURRENCY = {1_000, 10_000, 100_000};
+
+    private static final String SCRIPT = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i = 0;",
+            "    WHILE i < 10 DO",
+            "        i = i + 1;",
+            "    END",
+            "    sleep(10);",
+            "    RETURN i;",
+            "END"
+    );
+
+    public static void main(String[] args) throws Exception {
+        Scope parent = new Scope(null);
+        Natives.define(parent, "sleep", Natives.findStatic(Thread.class, "sleep", void.class, long.class));
+        Program program = Program.compile(new Parser(new Lexer(SCRIPT).lex()).parseSource(), parent);
+        System.out.println("virtual threads: " + ExecutionService.isVirtual());
+        for (int concurrency : CONCURRENCY) {
+            try (ExecutionService service = new ExecutionService(concurrency, Duration.ofMinutes(1))) {
+                run(service, program);
+                long start = System.nanoTime();
+                run(service, program);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("concurrency=%-8d %10.0f executions/s %8.3f s%n", concurrency, INVOCATIONS / seconds, seconds);
+            }
+        }
+    }
+
+    private static void run(ExecutionService service, Program program) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[INVOCATIONS];
+        for (int i = 0; i < INVOCATIONS; i++) {
+            futures[i] = service.submit(program);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+}
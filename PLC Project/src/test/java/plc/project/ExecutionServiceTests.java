@@ -0,0 +1,113 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class ExecutionServiceTests {
+
+    @Test
+    void testSubmit() throws Exception {
+        Program program = Program.compile(String.join("\n",
+                "FUN main(): Integer DO",
+                "    print(\"Hello, World!\");",
+                "    RETURN 1;",
+                "END"
+        ));
+        try (ExecutionService service = new ExecutionService(4, Duration.ofSeconds(10))) {
+            ExecutionService.Result result = service.submit(program).get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(BigInteger.ONE, result.getValue().getValue());
+            Assertions.assertEquals("Hello, World!" + System.lineSeparator(), result.getOutput());
+        }
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        Program loop = Program.compile(String.join("\n",
+                "FUN main(): Integer DO",
+                "    WHILE TRUE DO",
+                "    END",
+                "    RETURN 0;",
+                "END"
+        ));
+        Program program = Program.compile("FUN main(): Integer DO RETURN 1; END");
+        try (ExecutionService service = new ExecutionService(1, Duration.ofMillis(100))) {
+            CompletableFuture<ExecutionService.Result> future = service.submit(loop);
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof TimeoutException);
+            // The interrupted loop releases the only permit.
+            Assertions.assertEquals(BigInteger.ONE, service.submit(program).get(10, TimeUnit.SECONDS).getValue().getValue());
+        }
+    }
+
+    @Test
+    void testBoundedConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        Scope parent = new Scope(null);
+        parent.defineFunction("work", "work", Arrays.asList(), Environment.Type.NIL, args -> {
+            maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+            return Environment.NIL;
+        });
+        Program program = Program.compile(new Parser(new Lexer("FUN main(): Integer DO work(); RETURN 1; END").lex()).parseSource(), parent);
+        try (ExecutionService service = new ExecutionService(4, Duration.ofSeconds(10))) {
+            List<CompletableFuture<ExecutionService.Result>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(service.submit(program));
+            }
+            for (CompletableFuture<ExecutionService.Result> future : futures) {
+                Assertions.assertEquals(BigInteger.ONE, future.get(10, TimeUnit.SECONDS).getValue().getValue());
+            }
+        }
+        Assertions.assertTrue(maximum.get() <= 4);
+    }
+
+    @Test
+    void testClose() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Scope parent = new Scope(null);
+        parent.defineFunction("started", "started", Arrays.asList(), Environment.Type.NIL, args -> {
+            started.countDown();
+            return Environment.NIL;
+        });
+        Program loop = Program.compile(new Parser(new Lexer(String.join("\n",
+                "FUN main(): Integer DO",
+                "    started();",
+                "    WHILE TRUE DO",
+                "    END",
+                "    RETURN 0;",
+                "END"
+        )).lex()).parseSource(), parent);
+        Program program = Program.compile("FUN main(): Integer DO RETURN 1; END");
+        ExecutionService service = new ExecutionService(1, Duration.ofMillis(200));
+        CompletableFuture<ExecutionService.Result> running = service.submit(loop);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<ExecutionService.Result> waiting = service.submit(program);
+        service.close();
+        // The running loop still times out, and the waiting execution never starts.
+        ExecutionException timeout = Assertions.assertThrows(ExecutionException.class, () -> running.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(timeout.getCause() instanceof TimeoutException);
+        ExecutionException rejected = Assertions.assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+    }
+
+}
@@ -0,0 +1,142 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Simple wall-clock benchmark for the generator, run via its main method (it
+ * is not a JUnit test). A 400-function source is analyzed once and generated
+ * repeatedly until 100 MB of Java has been written to each kind of sink,
+ * discarding the output, after a warmup phase; the throughput is reported.
+ */
+public final class GeneratorBenchmark {
+
+    private static final long WARMUP_BYTES = 200_000_000;
+    private static final long MEASURE_BYTES = 100_000_000;
+
+    public static void main(String[] args) {
+        Ast.Source ast = source(400);
+        benchmark("writer", emitter -> {
+            NullWriter writer = new NullWriter();
+            new Generator(new PrintWriter(writer)).visit(ast);
+            return writer.length;
+        });
+        benchmark("emitter", emitter -> {
+            emitter.clear();
+            new Generator(emitter).visit(ast);
+            return emitter.length();
+        });
+        benchmark("stream", emitter -> {
+            emitter.clear();
+            new Generator(emitter).visit(ast);
+            emitter.writeTo(new NullOutputStream());
+            return emitter.length();
+        });
+        benchmark("channel", emitter -> {
+            emitter.clear();
+            new Generator(emitter).visit(ast);
+            emitter.writeTo(new NullChannel());
+            return emitter.length();
+        });
+    }
+
+    private static Ast.Source source(int functions) {
+        StringBuilder builder = new StringBuilder("VAR total: Integer = 0;\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("FUN f").append(i).append("(x: Integer, s: String): Integer DO\n");
+            builder.append("    LET i = 0;\n");
+            builder.append("    WHILE i < x DO\n");
+            for (int j = 0; j < 10; j++) {
+                builder.append("        IF i > ").append(j).append(" && x < 100 DO total = total + i * ").append(j).append(" - x / 2; print(s + \"value\" + i); END\n");
+            }
+            builder.append("        i = i + 1;\n");
+            builder.append("    END\n");
+            builder.append("    SWITCH x CASE 1: RETURN 1; CASE 2: RETURN 2; DEFAULT RETURN total; END\n");
+            builder.append("END\n");
+        }
+        builder.append("FUN main(): Integer DO RETURN f0(1, \"a\"); END");
+        Ast.Source ast = new Parser(new Lexer(builder.toString()).lex()).parseSource();
+        Scope scope = new Scope(null);
+        scope.defineFunction("print", "System.out.println", java.util.Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, arguments -> Environment.NIL);
+        new Analyzer(scope).visit(ast);
+        return ast;
+    }
+
+    private static void benchmark(String name, Run run) {
+        Emitter emitter = new Emitter();
+        measure(run, emitter, WARMUP_BYTES);
+        long start = System.nanoTime();
+        long bytes = measure(run, emitter, MEASURE_BYTES);
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-12s %5d MB %10.0f ms %8.1f MB/s%n", name, bytes / 1_000_000, millis, bytes / 1e3 / millis);
+    }
+
+    private static long measure(Run run, Emitter emitter, long bytes) {
+        long total = 0;
+        try {
+            while (total < bytes) {
+                total += run.run(emitter);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return total;
+    }
+
+    private interface Run {
+
+        int run(Emitter emitter) throws IOException;
+
+    }
+
+    private static final class NullWriter extends Writer {
+
+        private int length = 0;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            this.length += length;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {}
+
+    }
+
+    private static final class NullChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer bytes) {
+            int length = bytes.remaining();
+            bytes.position(bytes.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+
+    }
+
+}
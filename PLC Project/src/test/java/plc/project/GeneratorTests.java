@@ -14,6 +14,7 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -59,6 +60,63 @@ public class GeneratorTests {
         );
     }
 
+    @Test
+    void testParallel() {
+        StringBuilder source = new StringBuilder("VAR total: Integer = 0;\nLIST xs: Integer = [1, 2];\n");
+        for (int i = 0; i < 200; i++) {
+            source.append("FUN f").append(i).append("(x: Integer): Integer DO\n");
+            source.append("    LET d = 1.5;\n    SWITCH d CASE 1.5: total = total + x ^ 2; DEFAULT total = total + 1; END\n");
+            // Every 50th function is large enough to be split.
+            for (int j = 0; j < (i % 50 == 0 ? 300 : 1); j++) {
+                source.append("    total = total + x * ").append(j).append(";\n");
+            }
+            source.append("    RETURN total;\nEND\n");
+        }
+        source.append("FUN main(): Integer DO\n    RETURN f199(1);\nEND");
+        // Analyzed only, as the optimizations would remove the unused functions.
+        Ast.Source ast = new Parser(new Lexer(source.toString()).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter sequential = new StringWriter();
+        new Generator(new PrintWriter(sequential)).visit(ast);
+        StringWriter parallel = new StringWriter();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Generator.generate(ast, new PrintWriter(parallel), pool);
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    void testSourceMap() {
+        String input = String.join("\n",
+                "VAR total: Integer = 0;",
+                "FUN main(): Integer DO",
+                "    LET i = 0;",
+                "    WHILE i < 3 DO",
+                "        total = total + i;",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN total;",
+                "END"
+        );
+        Emitter emitter = new Emitter();
+        SourceMap map = new SourceMap();
+        new Generator(emitter, map).visit(Program.compile(input).getSource());
+        List<String> lines = Arrays.asList(emitter.toString().split(System.lineSeparator()));
+        Assertions.assertEquals(input.indexOf("VAR"), map.getIndex(lines.indexOf("    int total = 0;") + 1));
+        Assertions.assertEquals(input.indexOf("FUN"), map.getIndex(lines.indexOf("    int main() {") + 1));
+        int loop = lines.indexOf("        while (i < 3) {") + 1;
+        Assertions.assertEquals(input.indexOf("WHILE"), map.getIndex(loop));
+        Assertions.assertEquals(input.indexOf("total = total"), map.getIndex(loop + 1));
+        // The closing brace belongs to the statement before it.
+        Assertions.assertEquals(input.indexOf("i = i + 1"), map.getIndex(loop + 3));
+        Assertions.assertEquals(input.indexOf("WHILE"), map.getIndex(loop, 8));
+        Assertions.assertEquals(input.indexOf("LET"), map.getIndex(loop, 7));
+        Assertions.assertEquals(-1, map.getIndex(1));
+    }
+
     @Test
     void testList() {
         // LIST list: Decimal = [1.0, 1.5, 2.0];
@@ -198,6 +256,44 @@ public class GeneratorTests {
                                 "        System.out.println(\"no\");",
                                 "}"
                         )
+                ),
+                Arguments.of("Decimal Switch",
+                        // SWITCH rate
+                        //     CASE 1.5:
+                        //         rate = 2.0;
+                        //     DEFAULT
+                        //         rate = 1.0;
+                        // END
+                        new Ast.Statement.Switch(
+                                init(new Ast.Expression.Access(Optional.empty(), "rate"), ast -> ast.setVariable(new Environment.Variable("rate", "rate", Environment.Type.DECIMAL, true, Environment.NIL))),
+                                Arrays.asList(
+                                        new Ast.Statement.Case(
+                                                Optional.of(init(new Ast.Expression.Literal(new BigDecimal("1.5")), ast -> ast.setType(Environment.Type.DECIMAL))),
+                                                Arrays.asList(
+                                                        new Ast.Statement.Assignment(
+                                                                init(new Ast.Expression.Access(Optional.empty(), "rate"), ast -> ast.setVariable(new Environment.Variable("rate", "rate", Environment.Type.DECIMAL, true, Environment.NIL))),
+                                                                init(new Ast.Expression.Literal(new BigDecimal("2.0")), ast -> ast.setType(Environment.Type.DECIMAL))
+                                                        )
+                                                )
+                                        ),
+                                        new Ast.Statement.Case(
+                                                Optional.empty(),
+                                                Arrays.asList(
+                                                        new Ast.Statement.Assignment(
+                                                                init(new Ast.Expression.Access(Optional.empty(), "rate"), ast -> ast.setVariable(new Environment.Variable("rate", "rate", Environment.Type.DECIMAL, true, Environment.NIL))),
+                                                                init(new Ast.Expression.Literal(new BigDecimal("1.0")), ast -> ast.setType(Environment.Type.DECIMAL))
+                                                        )
+                                                )
+                                        )
+                                )
+                        ),
+                        String.join(System.lineSeparator(),
+                                "if (rate == 1.5) {",
+                                "    rate = 2.0;",
+                                "} else {",
+                                "    rate = 1.0;",
+                                "}"
+                        )
                 )
         );
     }
@@ -241,6 +337,14 @@ public class GeneratorTests {
                                 init(new Ast.Expression.Literal(BigInteger.TEN), ast -> ast.setType(Environment.Type.INTEGER))
                         ), ast -> ast.setType(Environment.Type.INTEGER)),
                         "1 + 10"
+                ),
+                Arguments.of("Integer Power",
+                        // 2 ^ 10
+                        init(new Ast.Expression.Binary("^",
+                                init(new Ast.Expression.Literal(BigInteger.valueOf(2)), ast -> ast.setType(Environment.Type.INTEGER)),
+                                init(new Ast.Expression.Literal(BigInteger.TEN), ast -> ast.setType(Environment.Type.INTEGER))
+                        ), ast -> ast.setType(Environment.Type.INTEGER)),
+                        "$power(2, 10)"
                 )
         );
     }
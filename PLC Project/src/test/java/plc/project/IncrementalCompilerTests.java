@@ -0,0 +1,75 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+final class IncrementalCompilerTests {
+
+    // Recursive, so that the functions are not inlined into main.
+    private static final String SOURCE = String.join("\n",
+            "VAL limit: Integer = 10;",
+            "VAR calls: Integer = 0;",
+            "FUN fact(n: Integer): Integer DO",
+            "    calls = calls + 1;",
+            "    IF n < 2 DO",
+            "        RETURN 1;",
+            "    END",
+            "    RETURN n * fact(n - 1);",
+            "END",
+            "FUN fib(n: Integer): Integer DO",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN fact(5) + fib(limit) + calls;",
+            "END"
+    );
+
+    @Test
+    void testEdit() {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        CompiledProgram first = CompiledProgram.compile(Program.compile(SOURCE), compiler);
+        Assertions.assertEquals(BigInteger.valueOf(180), first.execute().getValue());
+        Assertions.assertEquals(3, compiler.getMisses());
+        Assertions.assertTrue(first.getJava().contains("static int fact(Main$Globals $globals, int n) {"));
+        // Only the edited function is compiled again.
+        String edited = SOURCE.replace("RETURN n * fact(n - 1);", "RETURN 2 * n * fact(n - 1);");
+        CompiledProgram second = CompiledProgram.compile(Program.compile(edited), compiler);
+        Assertions.assertEquals(BigInteger.valueOf(1980), second.execute().getValue());
+        Assertions.assertEquals(2, compiler.getHits());
+        Assertions.assertEquals(4, compiler.getMisses());
+        Assertions.assertEquals(3, compiler.getSize());
+        // Programs keep their own classes.
+        Assertions.assertEquals(BigInteger.valueOf(180), first.execute().getValue());
+    }
+
+    @Test
+    void testGlobals() {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        CompiledProgram.compile(Program.compile(SOURCE), compiler);
+        CompiledProgram program = CompiledProgram.compile(Program.compile(SOURCE.replace("VAL limit: Integer = 10;", "VAL limit: Integer = 12;")), compiler);
+        Assertions.assertEquals(BigInteger.valueOf(269), program.execute().getValue());
+    }
+
+    @Test
+    void testInsert() {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        CompiledProgram.compile(Program.compile(SOURCE), compiler);
+        String edited = SOURCE.replace("FUN fib(", String.join("\n",
+                "FUN count(n: Integer): Integer DO",
+                "    IF n < 1 DO",
+                "        RETURN 0;",
+                "    END",
+                "    RETURN 1 + count(n - 1);",
+                "END",
+                "FUN fib(")).replace("+ calls;", "+ calls + count(3);");
+        CompiledProgram program = CompiledProgram.compile(Program.compile(edited), compiler);
+        Assertions.assertEquals(BigInteger.valueOf(183), program.execute().getValue());
+        Assertions.assertEquals(2, compiler.getHits());
+    }
+
+}
@@ -0,0 +1,74 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+final class IncrementalGeneratorTests {
+
+    private static final String SOURCE = String.join("\n",
+            "VAR total: Integer = 0;",
+            "FUN add(x: Integer): Integer DO",
+            "    total = total + x;",
+            "    RETURN total;",
+            "END",
+            "FUN twice(x: Integer): Integer DO",
+            "    RETURN add(x) + add(x);",
+            "END",
+            "FUN power(x: Integer): Integer DO",
+            "    RETURN x ^ 2;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN twice(power(3));",
+            "END"
+    );
+
+    @Test
+    void testEdit() {
+        IncrementalGenerator generator = new IncrementalGenerator();
+        Assertions.assertEquals(generate(SOURCE), generate(generator, SOURCE));
+        Assertions.assertEquals(5, generator.getMisses());
+        // Only the edited function is generated again.
+        String edited = SOURCE.replace("RETURN twice(power(3));", "RETURN twice(4);");
+        Assertions.assertEquals(generate(edited), generate(generator, edited));
+        Assertions.assertEquals(4, generator.getHits());
+        Assertions.assertEquals(6, generator.getMisses());
+        Assertions.assertEquals(5, generator.getSize());
+    }
+
+    @Test
+    void testResolvedTypes() {
+        // Changing the type of a global or the signature of a callee changes
+        // the code of the members using it, though their syntax is the same.
+        IncrementalGenerator generator = new IncrementalGenerator();
+        generate(generator, SOURCE);
+        String edited = SOURCE.replace("VAR total: Integer = 0;", "VAR total: Decimal = 0.0;")
+                .replace("FUN add(x: Integer): Integer", "FUN add(x: Decimal): Decimal")
+                .replace("FUN twice(x: Integer): Integer", "FUN twice(x: Decimal): Decimal")
+                .replace("RETURN twice(power(3));", "twice(1.5);\n    RETURN power(3);");
+        Assertions.assertEquals(generate(edited), generate(generator, edited));
+        Assertions.assertEquals(1, generator.getHits());
+    }
+
+    private static Ast.Source analyze(String input) {
+        // Analyzed only, as the optimizations would inline the functions.
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    private static String generate(String input) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(analyze(input));
+        return writer.toString();
+    }
+
+    private static String generate(IncrementalGenerator generator, String input) {
+        Emitter emitter = new Emitter();
+        generator.generate(analyze(input), emitter);
+        return emitter.toString();
+    }
+
+}
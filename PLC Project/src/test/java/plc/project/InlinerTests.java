@@ -0,0 +1,163 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class InlinerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInline(String test, String function, String main, boolean expected) {
+        String generated = generate(new Inliner(), function + "\nFUN main(): Integer DO\n" + main + "\nEND");
+        String body = generated.substring(generated.indexOf("int main()"));
+        Assertions.assertEquals(expected, !body.contains("f("), body);
+    }
+
+    private static Stream<Arguments> testInline() {
+        return Stream.of(
+                Arguments.of("Formula",
+                        "FUN f(x: Integer): Integer DO RETURN x * x; END",
+                        "LET a = 3; RETURN f(a) + 1;",
+                        true
+                ),
+                Arguments.of("Unstable Argument",
+                        "FUN f(x: Integer): Integer DO RETURN x * x; END",
+                        "LET a = 3; RETURN f(a + 1) + 1;",
+                        false
+                ),
+                Arguments.of("Statement",
+                        "FUN f(x: Integer): Integer DO LET y = x * 2; RETURN y + 1; END",
+                        "LET a = f(3); RETURN a;",
+                        true
+                ),
+                Arguments.of("Equality Operand",
+                        "FUN f(x: Integer): Integer DO RETURN x * x; END",
+                        "print(f(2) == 4); RETURN 0;",
+                        false
+                ),
+                Arguments.of("Recursive",
+                        "FUN f(x: Integer): Integer DO IF x < 1 DO RETURN 0; END RETURN f(x - 1); END",
+                        "RETURN f(3);",
+                        false
+                ),
+                Arguments.of("Loop",
+                        "FUN f(x: Integer): Integer DO WHILE x < 10 DO x = x + 1; END RETURN x; END",
+                        "RETURN f(3);",
+                        false
+                )
+        );
+    }
+
+    @Test
+    void testRenaming() {
+        String generated = generate(new Inliner(), String.join("\n",
+                "FUN f(x: Integer): Integer DO",
+                "    LET y = x * 2;",
+                "    x = x + y;",
+                "    RETURN x;",
+                "END",
+                "FUN main(): Integer DO",
+                "    LET x = 1;",
+                "    LET y = f(x);",
+                "    RETURN f(y);",
+                "END"
+        ));
+        String body = generated.substring(generated.indexOf("int main()"));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "int main() {",
+                "        int x = 1;",
+                "        int x_1 = x;",
+                "        int y_1 = x_1 * 2;",
+                "        x_1 = x_1 + y_1;",
+                "        int y = x_1;",
+                "        int x_2 = y;",
+                "        int y_2 = x_2 * 2;",
+                "        x_2 = x_2 + y_2;",
+                "        return x_2;",
+                "    }",
+                "",
+                "}"
+        ), body);
+    }
+
+    @Test
+    void testThreshold() {
+        String generated = generate(new Inliner(2), String.join("\n",
+                "FUN f(x: Integer): Integer DO RETURN x * x; END",
+                "FUN main(): Integer DO RETURN f(2); END"
+        ));
+        Assertions.assertTrue(generated.contains("return f(2);"), generated);
+    }
+
+    @Test
+    void testProgram() {
+        Program program = Program.compile(String.join("\n",
+                "VAR calls: Integer = 0;",
+                "FUN count(): Integer DO",
+                "    calls = calls + 1;",
+                "    RETURN calls;",
+                "END",
+                "FUN add(x: Integer, y: Integer): Integer DO",
+                "    RETURN x + y * 10;",
+                "END",
+                "FUN main(): Integer DO",
+                "    LET a = add(count(), calls);",
+                "    RETURN add(a, count());",
+                "END"
+        ));
+        // Arguments are still evaluated once and in order: a = 1 + 10, 11 + 20.
+        Assertions.assertEquals(BigInteger.valueOf(31), program.execute().getValue());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testShadowing(String test, String input, int expected) {
+        // The caller's total would shadow the global in the generated Java.
+        String generated = generate(new Inliner(), input);
+        Assertions.assertTrue(generated.contains("addTotal(total)"), generated);
+        Assertions.assertEquals(BigInteger.valueOf(expected), Program.compile(input).execute().getValue());
+        Assertions.assertEquals(BigInteger.valueOf(expected), CompiledProgram.compile(Program.compile(input), new ClassCache()).execute().getValue());
+    }
+
+    private static Stream<Arguments> testShadowing() {
+        return Stream.of(
+                Arguments.of("Expression", String.join("\n",
+                        "VAR total: Integer = 10;",
+                        "FUN addTotal(x: Integer): Integer DO RETURN x + total; END",
+                        "FUN main(): Integer DO",
+                        "    LET total: Integer = 1;",
+                        "    RETURN addTotal(total);",
+                        "END"
+                ), 11),
+                Arguments.of("Statements", String.join("\n",
+                        "VAR total: Integer = 10;",
+                        "FUN addTotal(x: Integer): Integer DO",
+                        "    total = total + x;",
+                        "    RETURN total;",
+                        "END",
+                        "FUN main(): Integer DO",
+                        "    LET total: Integer = 3;",
+                        "    LET sum = addTotal(total);",
+                        "    RETURN sum + total;",
+                        "END"
+                ), 16)
+        );
+    }
+
+    private static String generate(Inliner inliner, String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(inliner.visit(ast));
+        return writer.toString();
+    }
+
+}
@@ -0,0 +1,124 @@
+package plc.project;
+
+import java.util.function.Supplier;
+
+/**
+ * Simple wall-clock benchmark for the interpreter, run via its main method
+ * (it is not a JUnit test). Each program is parsed once and then interpreted
+ * repeatedly for a fixed time after a warmup phase; the mean time per run is
+ * reported.
+ */
+public final class InterpreterBenchmark {
+
+    private static final long WARMUP_MILLIS = 2000;
+    private static final long MEASURE_MILLIS = 3000;
+
+    // fib(8), with the recursive calls nested in RETURN expressions.
+    private static final String FIB = String.join("\n",
+            "FUN fib(n: Integer): Integer DO",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN fib(8);",
+            "END"
+    );
+
+    // ack(2, 8), recursing up to the depth of the result.
+    private static final String ACKERMANN = String.join("\n",
+            "FUN ack(m: Integer, n: Integer): Integer DO",
+            "    IF m < 1 DO",
+            "        RETURN n + 1;",
+            "    END",
+            "    IF n < 1 DO",
+            "        RETURN ack(m - 1, 1);",
+            "    END",
+            "    RETURN ack(m - 1, ack(m, n - 1));",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN ack(2, 8);",
+            "END"
+    );
+
+    // depth(400), a single chain of nested calls each returning once.
+    private static final String DEPTH = String.join("\n",
+            "FUN depth(n: Integer): Integer DO",
+            "    IF n < 1 DO",
+            "        RETURN 0;",
+            "    END",
+            "    RETURN depth(n - 1);",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN depth(400);",
+            "END"
+    );
+
+    // A tight WHILE loop with a block-local declaration.
+    private static final String LOOP = String.join("\n",
+            "FUN main(): Integer DO",
+            "    LET i = 0;",
+            "    LET sum = 0;",
+            "    WHILE i < 10000 DO",
+            "        LET x = i * 2;",
+            "        sum = sum + x;",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN sum;",
+            "END"
+    );
+
+    // A 200-state machine driven by a SWITCH over constant cases.
+    private static final String SWITCH = stateMachine(200);
+
+    public static void main(String[] args) {
+        benchmark("fib", FIB);
+        benchmark("ackermann", ACKERMANN);
+        benchmark("depth", DEPTH);
+        benchmark("loop", LOOP);
+        benchmark("switch", SWITCH);
+    }
+
+    private static String stateMachine(int states) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("FUN main(): Integer DO\n");
+        builder.append("    LET state = 0;\n");
+        builder.append("    LET steps = 0;\n");
+        builder.append("    WHILE steps < 999 DO\n");
+        builder.append("        SWITCH state\n");
+        for (int i = 0; i < states; i++) {
+            builder.append("            CASE ").append(i).append(": state = ").append((i + 7) % states).append(";\n");
+        }
+        builder.append("            DEFAULT state = 0;\n");
+        builder.append("        END\n");
+        builder.append("        steps = steps + 1;\n");
+        builder.append("    END\n");
+        builder.append("    RETURN state;\n");
+        builder.append("END");
+        return builder.toString();
+    }
+
+    private static void benchmark(String name, String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Supplier<Object> run = () -> new Interpreter(new Scope(null)).visit(ast).getValue();
+        measure(run, WARMUP_MILLIS);
+        long start = System.nanoTime();
+        long runs = measure(run, MEASURE_MILLIS);
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        Object result = run.get();
+        System.out.printf("%-12s result=%-8s %10.3f ms/op%n", name, result, millis);
+    }
+
+    private static long measure(Supplier<Object> run, long millis) {
+        long end = System.nanoTime() + millis * 1_000_000;
+        long runs = 0;
+        do {
+            run.get();
+            runs++;
+        } while (System.nanoTime() < end);
+        return runs;
+    }
+
+}
@@ -109,6 +109,19 @@ final class InterpreterTests {
                         )),
                         Arrays.asList(Environment.create(BigInteger.TEN)),
                         BigInteger.valueOf(100)
+                ),
+                // FUN main() DO WHILE TRUE DO IF TRUE DO RETURN 1; END END RETURN 0; END
+                Arguments.of("Early Return",
+                        new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                                new Ast.Statement.While(new Ast.Expression.Literal(true), Arrays.asList(
+                                        new Ast.Statement.If(new Ast.Expression.Literal(true), Arrays.asList(
+                                                new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ONE))
+                                        ), Arrays.asList())
+                                )),
+                                new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ZERO))
+                        )),
+                        Arrays.asList(),
+                        BigInteger.ONE
                 )
         );
     }
@@ -245,6 +258,43 @@ final class InterpreterTests {
         Assertions.assertEquals(new Character('n'), scope.lookupVariable("letter").getValue().getValue());
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testSwitchJumpTable(String test, Character letter, BigInteger expected) {
+        // SWITCH letter CASE 'a': num = 1; CASE 'b': num = 2; CASE 'b': num = 3; DEFAULT: num = 0; END
+        List<Ast.Statement.Case> cases = Arrays.asList(
+                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal('a')), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "num"), new Ast.Expression.Literal(BigInteger.ONE)))),
+                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal('b')), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "num"), new Ast.Expression.Literal(BigInteger.valueOf(2))))),
+                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal('b')), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "num"), new Ast.Expression.Literal(BigInteger.valueOf(3))))),
+                new Ast.Statement.Case(Optional.empty(), Arrays.asList(
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "num"), new Ast.Expression.Literal(BigInteger.ZERO))))
+        );
+        Ast.Statement.Switch ast = new Ast.Statement.Switch(new Ast.Expression.Access(Optional.empty(), "letter"), cases);
+
+        Scope types = new Scope(null);
+        types.defineVariable("letter", "letter", Environment.Type.CHARACTER, true, Environment.NIL);
+        types.defineVariable("num", "num", Environment.Type.INTEGER, true, Environment.NIL);
+        new Analyzer(types).visit(ast);
+        Assertions.assertEquals(2, ast.getJumpTable().size());
+
+        Scope scope = new Scope(null);
+        scope.defineVariable("letter", true, Environment.create(letter));
+        scope.defineVariable("num", true, Environment.NIL);
+        test(ast, Environment.NIL.getValue(), scope);
+        Assertions.assertEquals(expected, scope.lookupVariable("num").getValue().getValue());
+    }
+
+    private static Stream<Arguments> testSwitchJumpTable() {
+        return Stream.of(
+                Arguments.of("First Case", 'a', BigInteger.ONE),
+                Arguments.of("Duplicate Case", 'b', BigInteger.valueOf(2)),
+                Arguments.of("Default", 'z', BigInteger.ZERO)
+        );
+    }
+
     @Test
     void testWhileStatement() {
         // WHILE num < 10 DO num = num + 1; END
@@ -266,6 +316,55 @@ final class InterpreterTests {
         Assertions.assertEquals(BigInteger.TEN, scope.lookupVariable("num").getValue().getValue());
     }
 
+    @Test
+    void testFrameLocals() {
+        // FUN main(): Integer DO
+        //     LET sum: Integer = 0;
+        //     LET i: Integer = 0;
+        //     WHILE i < 3 DO LET x: Integer = i * 2; sum = sum + x; i = i + 1; END
+        //     IF sum < 10 DO LET y: Integer = sum; sum = y + 1; END
+        //     RETURN sum;
+        // END
+        Ast.Function main = new Ast.Function("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                new Ast.Statement.Declaration("sum", Optional.of("Integer"), Optional.of(new Ast.Expression.Literal(BigInteger.ZERO))),
+                new Ast.Statement.Declaration("i", Optional.of("Integer"), Optional.of(new Ast.Expression.Literal(BigInteger.ZERO))),
+                new Ast.Statement.While(
+                        new Ast.Expression.Binary("<", new Ast.Expression.Access(Optional.empty(), "i"), new Ast.Expression.Literal(BigInteger.valueOf(3))),
+                        Arrays.asList(
+                                new Ast.Statement.Declaration("x", Optional.of("Integer"), Optional.of(new Ast.Expression.Binary("*",
+                                        new Ast.Expression.Access(Optional.empty(), "i"),
+                                        new Ast.Expression.Literal(BigInteger.valueOf(2))
+                                ))),
+                                new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "sum"), new Ast.Expression.Binary("+",
+                                        new Ast.Expression.Access(Optional.empty(), "sum"),
+                                        new Ast.Expression.Access(Optional.empty(), "x")
+                                )),
+                                new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "i"), new Ast.Expression.Binary("+",
+                                        new Ast.Expression.Access(Optional.empty(), "i"),
+                                        new Ast.Expression.Literal(BigInteger.ONE)
+                                ))
+                        )
+                ),
+                new Ast.Statement.If(
+                        new Ast.Expression.Binary("<", new Ast.Expression.Access(Optional.empty(), "sum"), new Ast.Expression.Literal(BigInteger.TEN)),
+                        Arrays.asList(
+                                new Ast.Statement.Declaration("y", Optional.of("Integer"), Optional.of(new Ast.Expression.Access(Optional.empty(), "sum"))),
+                                new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "sum"), new Ast.Expression.Binary("+",
+                                        new Ast.Expression.Access(Optional.empty(), "y"),
+                                        new Ast.Expression.Literal(BigInteger.ONE)
+                                ))
+                        ),
+                        Arrays.asList()
+                ),
+                new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "sum"))
+        ));
+        Ast.Source ast = new Ast.Source(Arrays.asList(), Arrays.asList(main));
+        new Analyzer(new Scope(null)).visit(ast);
+        // x and y live in sibling blocks and share a slot.
+        Assertions.assertEquals(3, main.getFrameSize());
+        test(ast, BigInteger.valueOf(7), new Scope(null));
+    }
+
     @ParameterizedTest
     @MethodSource
     void testLiteralExpression(String test, Ast ast, Object expected) {
@@ -429,6 +528,38 @@ final class InterpreterTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testFunctionArity(String test, int arity) {
+        // FUN last(p0, ..., pN) DO RETURN pN; END
+        // last(0, ..., N)
+        List<String> parameters = IntStream.range(0, arity).mapToObj(i -> "p" + i).collect(Collectors.toList());
+        Ast.Function function = new Ast.Function("last", parameters, Arrays.asList(
+                new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "p" + (arity - 1)))
+        ));
+        List<Ast.Expression> arguments = IntStream.range(0, arity).mapToObj(i -> new Ast.Expression.Literal(BigInteger.valueOf(i))).collect(Collectors.toList());
+
+        Scope scope = test(function, Environment.NIL.getValue(), new Scope(null));
+        test(new Ast.Expression.Function("last", arguments), BigInteger.valueOf(arity - 1), scope);
+    }
+
+    private static Stream<Arguments> testFunctionArity() {
+        return Stream.of(
+                Arguments.of("One", 1),
+                Arguments.of("Four", 4),
+                Arguments.of("Variadic", 6)
+        );
+    }
+
+    @Test
+    void testListFunctionAdapter() {
+        // Builtins defined over an argument list are reachable through every entry point.
+        Environment.Function function = new Environment.Function("size", 2, args -> Environment.create(args.size()));
+        Assertions.assertEquals(2, function.invoke2(Environment.NIL, Environment.NIL).getValue());
+        Assertions.assertEquals(2, function.invoke(Environment.NIL, Environment.NIL).getValue());
+        Assertions.assertEquals(2, function.invoke(Arrays.asList(Environment.NIL, Environment.NIL)).getValue());
+    }
+
     @Test
     void testPlcList() {
         // [1, 5, 10]
@@ -0,0 +1,88 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class NativesTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInvoke(String test, MethodHandle handle, List<Environment.PlcObject> args, Object expected) {
+        Scope scope = new Scope(null);
+        Environment.Function function = Natives.define(scope, "native", handle);
+        Assertions.assertEquals(expected, function.invoke(args).getValue());
+        Assertions.assertEquals(expected, function.invoke(args.toArray(new Environment.PlcObject[0])).getValue());
+    }
+
+    private static Stream<Arguments> testInvoke() {
+        return Stream.of(
+                Arguments.of("Integer",
+                        Natives.findStatic(Math.class, "max", int.class, int.class, int.class),
+                        Arrays.asList(Environment.create(BigInteger.ONE), Environment.create(BigInteger.TEN)),
+                        BigInteger.TEN
+                ),
+                Arguments.of("Decimal",
+                        Natives.findStatic(Math.class, "sqrt", double.class, double.class),
+                        Arrays.asList(Environment.create(new BigDecimal("2.25"))),
+                        new BigDecimal("1.5")
+                ),
+                Arguments.of("Boolean",
+                        Natives.findStatic(Boolean.class, "logicalXor", boolean.class, boolean.class, boolean.class),
+                        Arrays.asList(Environment.create(true), Environment.create(false)),
+                        true
+                ),
+                Arguments.of("Character",
+                        Natives.findStatic(Character.class, "toUpperCase", char.class, char.class),
+                        Arrays.asList(Environment.create('a')),
+                        'A'
+                ),
+                Arguments.of("Instance Method",
+                        Natives.findVirtual(String.class, "concat", String.class, String.class),
+                        Arrays.asList(Environment.create("a"), Environment.create("b")),
+                        "ab"
+                ),
+                Arguments.of("Boxed Result",
+                        Natives.findStatic(Integer.class, "valueOf", Integer.class, int.class),
+                        Arrays.asList(Environment.create(BigInteger.ONE)),
+                        BigInteger.ONE
+                ),
+                Arguments.of("Void",
+                        Natives.findStatic(Thread.class, "yield", void.class),
+                        Arrays.asList(),
+                        Environment.NIL.getValue()
+                )
+        );
+    }
+
+    @Test
+    void testDefineTypes() {
+        Environment.Function function = Natives.define(new Scope(null), "max", Natives.findStatic(Math.class, "max", double.class, double.class, double.class));
+        Assertions.assertEquals(Arrays.asList(Environment.Type.DECIMAL, Environment.Type.DECIMAL), function.getParameterTypes());
+        Assertions.assertEquals(Environment.Type.DECIMAL, function.getReturnType());
+    }
+
+    @Test
+    void testTypeMembers() {
+        Environment.PlcObject string = Environment.create("Hello");
+        Assertions.assertEquals("ell", Environment.Type.STRING.getFunction("slice", 2).invoke(string, Environment.create(BigInteger.ONE), Environment.create(BigInteger.valueOf(4))).getValue());
+        Assertions.assertEquals(BigInteger.valueOf(-1), Environment.Type.INTEGER.getFunction("compare", 1).invoke(Environment.create(BigInteger.ONE), Environment.create(BigInteger.TEN)).getValue());
+        Assertions.assertEquals("Hello", Environment.Type.ANY.getFunction("stringify", 0).invoke(string).getValue());
+    }
+
+    @Test
+    void testArgumentTypeMismatch() {
+        Environment.Function function = Natives.define(new Scope(null), "abs", Natives.findStatic(Math.class, "abs", int.class, int.class));
+        Assertions.assertThrows(RuntimeException.class, () -> function.invoke1(Environment.create("one")));
+    }
+
+}
@@ -0,0 +1,52 @@
+package plc.project;
+
+import jdk.jfr.Recording;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Records a compiled program under JFR and prints its {@link ProfileReport},
+ * run via its main method (it is not a JUnit test, as the samples depend on
+ * timing). Nearly all samples should be in {@code count/1}, though compiled
+ * code only has approximate lines.
+ */
+public final class ProfileReportBenchmark {
+
+    private static final String INPUT = String.join("\n",
+            "FUN count(n: Integer): Integer DO",
+            "    LET i = 0;",
+            "    LET sum = 0;",
+            "    WHILE i < n DO",
+            "        sum = (sum + i * i) / 3;",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN sum;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN count(10000000) + count(10000000);",
+            "END"
+    );
+
+    public static void main(String[] args) throws Exception {
+        CompiledProgram program = CompiledProgram.compile(Program.compile(INPUT), new ClassCache());
+        Path path = Files.createTempFile("profile", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(1));
+            recording.start();
+            long end = System.nanoTime() + 5_000_000_000L;
+            while (System.nanoTime() < end) {
+                program.execute();
+            }
+            recording.stop();
+            recording.dump(path);
+            ProfileReport report = new ProfileReport(INPUT);
+            report.read(path);
+            System.out.print(report);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+final class ProfileReportTests {
+
+    private static final String INPUT = String.join("\n",
+            "FUN count(n: Integer): Integer DO",
+            "    LET i = 0;",
+            "    LET sum = 0;",
+            "    WHILE i < n DO",
+            "        sum = (sum + i * i) / 3;",
+            "        i = i + 1;",
+            "    END",
+            "    RETURN sum;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN count(10000000) + count(10000000);",
+            "END"
+    );
+
+    @Test
+    void testAdd() {
+        ProfileReport report = new ProfileReport(INPUT);
+        report.add(line("sum = (sum + i * i) / 3;"));
+        report.add(line("sum = (sum + i * i) / 3;"));
+        report.add(line("i = i + 1;"));
+        report.add(line("return count(10000000) + count(10000000);"));
+        report.add(line("public class Main {"));
+        Assertions.assertEquals(5, report.getSamples());
+        Assertions.assertEquals(1, report.getUnattributed());
+        Assertions.assertEquals(3, (long) report.getFunctions().get("count/1"));
+        Assertions.assertEquals(1, (long) report.getFunctions().get("main/0"));
+        Assertions.assertEquals(2, (long) report.getLines().get(5));
+        Assertions.assertEquals(1, (long) report.getLines().get(6));
+        Assertions.assertEquals(1, (long) report.getLines().get(11));
+    }
+
+    /**
+     * Returns the line of the generated code containing the text.
+     */
+    private static int line(String text) {
+        Emitter emitter = new Emitter();
+        new Generator(emitter).visit(Program.compile(INPUT).getSource());
+        List<String> lines = Arrays.asList(emitter.toString().split("\\R"));
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains(text)) {
+                return i + 1;
+            }
+        }
+        throw new AssertionError("No line contains " + text + ".");
+    }
+
+}
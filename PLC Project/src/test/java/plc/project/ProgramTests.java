@@ -0,0 +1,176 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+final class ProgramTests {
+
+    // Every call of fib increments the global calls, so executions sharing
+    // globals, frames or return values would produce a different result.
+    private static final String FIB = String.join("\n",
+            "VAR calls: Integer = 0;",
+            "FUN fib(n: Integer): Integer DO",
+            "    calls = calls + 1;",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    LET a = fib(n - 1);",
+            "    LET b = fib(n - 2);",
+            "    RETURN a + b;",
+            "END",
+            "FUN main(): Integer DO",
+            "    LET result = fib(10);",
+            "    RETURN result * 1000 + calls;",
+            "END"
+    );
+
+    @Test
+    void testExecute() {
+        Program program = Program.compile(FIB);
+        Assertions.assertEquals(BigInteger.valueOf(55177), program.execute().getValue());
+        Assertions.assertEquals(BigInteger.valueOf(55177), program.execute().getValue());
+    }
+
+    @Test
+    void testExecutionGlobals() {
+        Program.Execution execution = Program.compile(FIB).newExecution();
+        execution.run();
+        Assertions.assertEquals(BigInteger.valueOf(177), execution.getScope().lookupVariable("calls").getValue().getValue());
+        Assertions.assertThrows(IllegalStateException.class, execution::run);
+    }
+
+    @Test
+    void testSteps() {
+        Program.Execution execution = Program.compile(FIB).newExecution();
+        execution.run();
+        // main and the 177 calls of fib.
+        Assertions.assertEquals(178, execution.getSteps());
+    }
+
+    @Test
+    void testBudget() {
+        Program.Execution execution = Program.compile(String.join("\n",
+                "FUN main(): Integer DO",
+                "    WHILE TRUE DO",
+                "    END",
+                "    RETURN 0;",
+                "END"
+        )).newExecution();
+        execution.setBudget(10000);
+        BudgetExceededException exception = Assertions.assertThrows(BudgetExceededException.class, execution::run);
+        Assertions.assertEquals(10000, exception.getSteps());
+        Assertions.assertEquals(10000, execution.getSteps());
+    }
+
+    @Test
+    void testTailCalls() {
+        // The recursion is far deeper than the Java stack allows without tail
+        // call elimination; start tail-calls count from a nested block.
+        Program program = Program.compile(String.join("\n",
+                "FUN count(n: Integer, total: Integer): Integer DO",
+                "    IF n < 1 DO",
+                "        RETURN total;",
+                "    END",
+                "    RETURN count(n - 1, total + 2);",
+                "END",
+                "FUN start(n: Integer): Integer DO",
+                "    WHILE TRUE DO",
+                "        RETURN count(n, 0);",
+                "    END",
+                "    RETURN 0;",
+                "END",
+                "FUN main(): Integer DO",
+                "    RETURN start(1000000);",
+                "END"
+        ));
+        Assertions.assertEquals(BigInteger.valueOf(2000000), program.execute().getValue());
+    }
+
+    @Test
+    void testHeapCallStack() throws Exception {
+        // Deeper than a 256k thread stack allows when recursing in Java.
+        Program program = Program.compile(String.join("\n",
+                "FUN depth(n: Integer): Integer DO",
+                "    IF n < 1 DO",
+                "        RETURN 0;",
+                "    END",
+                "    LET result = depth(n - 1);",
+                "    RETURN result + 1;",
+                "END",
+                "FUN main(): Integer DO",
+                "    RETURN depth(100000);",
+                "END"
+        ));
+        Object[] result = new Object[1];
+        Thread thread = new Thread(null, () -> {
+            Program.Execution execution = program.newExecution();
+            execution.setMaxDepth(200000);
+            result[0] = execution.run().getValue();
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+        Assertions.assertEquals(BigInteger.valueOf(100000), result[0]);
+
+        Program.Execution execution = program.newExecution();
+        execution.setMaxDepth(1000);
+        PlcStackOverflowException exception = Assertions.assertThrows(PlcStackOverflowException.class, execution::run);
+        Assertions.assertEquals(1000, exception.getMaxDepth());
+    }
+
+    @Test
+    void testMemoization() {
+        // Naive fib; its operands are visited several times, so without
+        // memoization fib(30) would take billions of calls.
+        Program program = Program.compile(String.join("\n",
+                "FUN fib(n: Integer): Integer DO",
+                "    IF n < 2 DO",
+                "        RETURN n;",
+                "    END",
+                "    RETURN fib(n - 1) + fib(n - 2);",
+                "END",
+                "FUN main(): Integer DO",
+                "    RETURN fib(30);",
+                "END"
+        ));
+        Program.Execution execution = program.newExecution();
+        execution.setMemoization(64);
+        Assertions.assertEquals(BigInteger.valueOf(832040), execution.run().getValue());
+        MemoCache cache = execution.getMemoCaches().get("fib/1");
+        Assertions.assertEquals(31, cache.getMisses());
+        Assertions.assertEquals(31, cache.getSize());
+        Assertions.assertTrue(cache.getHits() > 0);
+    }
+
+    @Test
+    void testConcurrentExecutions() throws Exception {
+        Program program = Program.compile(FIB);
+        int threads = 16;
+        int executions = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads * executions; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return program.execute().getValue();
+                }));
+            }
+            start.countDown();
+            for (Future<Object> result : results) {
+                Assertions.assertEquals(BigInteger.valueOf(55177), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
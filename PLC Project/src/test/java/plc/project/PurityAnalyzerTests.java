@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class PurityAnalyzerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testPurity(String test, String function, boolean expected) {
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "VAL limit: Integer = 10;",
+                "VAR counter: Integer = 0;",
+                function,
+                "FUN main(): Integer DO",
+                "    RETURN 0;",
+                "END"
+        )).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        new PurityAnalyzer().visit(ast);
+        Assertions.assertEquals(expected, ast.getFunctions().get(0).isPure());
+    }
+
+    private static Stream<Arguments> testPurity() {
+        return Stream.of(
+                Arguments.of("Arithmetic",
+                        "FUN f(x: Integer): Integer DO LET y = x * 2; y = y + 1; RETURN y; END",
+                        true
+                ),
+                Arguments.of("Immutable Global",
+                        "FUN f(x: Integer): Integer DO RETURN x + limit; END",
+                        true
+                ),
+                Arguments.of("Recursion",
+                        "FUN f(x: Integer): Integer DO IF x < 1 DO RETURN 0; END RETURN f(x - 1); END",
+                        true
+                ),
+                Arguments.of("Print",
+                        "FUN f(x: Integer): Integer DO print(x); RETURN x; END",
+                        false
+                ),
+                Arguments.of("Global Read",
+                        "FUN f(x: Integer): Integer DO RETURN x + counter; END",
+                        false
+                ),
+                Arguments.of("Global Mutation",
+                        "FUN f(x: Integer): Integer DO counter = x; RETURN x; END",
+                        false
+                ),
+                Arguments.of("Impure Callee",
+                        "FUN f(x: Integer): Integer DO IF x < 1 DO print(x); RETURN 0; END RETURN f(x - 1); END",
+                        false
+                )
+        );
+    }
+
+}
@@ -0,0 +1,142 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class RedundancyEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEliminate(String test, String main, boolean expected) {
+        String generated = generate("FUN main(): Integer DO\n" + main + "\nEND");
+        Assertions.assertEquals(expected, generated.contains("common_1"), generated);
+    }
+
+    private static Stream<Arguments> testEliminate() {
+        return Stream.of(
+                Arguments.of("Repeated",
+                        "LET x = 3; LET a = x * 2; RETURN a + x * 2;",
+                        true
+                ),
+                Arguments.of("Assigned",
+                        "LET x = 3; LET a = x * 2; x = 4; RETURN a + x * 2;",
+                        false
+                ),
+                Arguments.of("Conditional First",
+                        "LET x = 3; LET a = TRUE && x * 2 > 1; RETURN x * 2;",
+                        false
+                ),
+                Arguments.of("Equality Operand",
+                        "LET x = 3; print(x * 2 == 6); RETURN x * 2;",
+                        false
+                ),
+                Arguments.of("Comparison Operand",
+                        "LET x = 3; print(x * 2 < 7); RETURN x * 2;",
+                        false
+                ),
+                Arguments.of("Mutable Global",
+                        "print(g * 2); RETURN g * 2;",
+                        false
+                )
+        );
+    }
+
+    @Test
+    void testElements() {
+        String generated = generate(String.join("\n",
+                "FUN main(): Integer DO",
+                "    LET a = xs[1] + 1;",
+                "    xs[0] = 9;",
+                "    RETURN a + xs[1] + 1;",
+                "END"
+        ));
+        Assertions.assertFalse(generated.contains("common_1"), generated);
+    }
+
+    @Test
+    void testHoist() {
+        String generated = generate(String.join("\n",
+                "FUN main(): Integer DO",
+                "    LET n = 5;",
+                "    LET i = 0;",
+                "    LET s = 0;",
+                "    WHILE i < 3 DO",
+                "        s = s + i * (n + 1);",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN s;",
+                "END"
+        ));
+        String body = generated.substring(generated.indexOf("int main()"));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "int main() {",
+                "        int n = 5;",
+                "        int i = 0;",
+                "        int s = 0;",
+                "        int invariant_1 = n + 1;",
+                "        while (i < 3) {",
+                "            s = s + i * (invariant_1);",
+                "            i = i + 1;",
+                "        }",
+                "        return s;",
+                "    }",
+                "",
+                "}"
+        ), body);
+    }
+
+    @Test
+    void testShadowed() {
+        String generated = generate(String.join("\n",
+                "FUN main(): Integer DO",
+                "    LET x = 3;",
+                "    LET i = 0;",
+                "    WHILE i < 3 DO",
+                "        print(x + 1);",
+                "        LET x = i;",
+                "        print(x + 1);",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN 0;",
+                "END"
+        ));
+        // Only the first x + 1 reads the outer x.
+        Assertions.assertTrue(generated.contains("System.out.println(invariant_1);"), generated);
+        Assertions.assertTrue(generated.contains("System.out.println(x + 1);"), generated);
+    }
+
+    @Test
+    void testProgram() {
+        Program program = Program.compile(String.join("\n",
+                "LIST xs: Integer = [4, 5, 6];",
+                "FUN bump(): Integer DO",
+                "    xs[0] = 7;",
+                "    RETURN 0;",
+                "END",
+                "FUN main(): Integer DO",
+                "    LET a = xs[0] * 2;",
+                "    bump();",
+                "    RETURN a + xs[0] * 2;",
+                "END"
+        ));
+        // The call changes xs[0] between the two products: 8 + 14.
+        Assertions.assertEquals(BigInteger.valueOf(22), program.execute().getValue());
+    }
+
+    private static String generate(String input) {
+        Ast.Source ast = new Parser(new Lexer("VAR g: Integer = 1;\nLIST xs: Integer = [1, 2, 3];\n" + input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(new RedundancyEliminator().visit(ast));
+        return writer.toString();
+    }
+
+}
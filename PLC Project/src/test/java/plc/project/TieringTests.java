@@ -0,0 +1,64 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+final class TieringTests {
+
+    private static final String FIB = "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END FUN main(): Integer DO RETURN fib(20); END";
+
+    @Test
+    void testCompiled() {
+        Tiering tiering = new Tiering(100, Runnable::run);
+        Program.Execution execution = Program.compile(FIB).newExecution();
+        execution.setTiering(tiering);
+        Assertions.assertEquals(BigInteger.valueOf(6765), execution.run().getValue());
+        Assertions.assertEquals(Tiering.Tier.COMPILED, tiering.getTiers().get("fib/1"));
+        Assertions.assertEquals(1, tiering.getCompilations());
+    }
+
+    @Test
+    void testBinding() {
+        // Compilation completes while the interpreted function keeps running.
+        List<Runnable> pending = new ArrayList<>();
+        Executor executor = pending::add;
+        Tiering tiering = new Tiering(10, executor);
+        Program program = Program.compile("FUN loop(n: Integer): Integer DO LET i = 0; WHILE i < n DO i = i + 1; END RETURN i; END FUN main(): Integer DO RETURN loop(50) + loop(5); END");
+        Program.Execution first = program.newExecution();
+        first.setTiering(tiering);
+        Assertions.assertEquals(BigInteger.valueOf(55), first.run().getValue());
+        Assertions.assertEquals(Tiering.Tier.COMPILING, tiering.getTiers().get("loop/1"));
+        pending.forEach(Runnable::run);
+        Assertions.assertEquals(Tiering.Tier.COMPILED, tiering.getTiers().get("loop/1"));
+        Program.Execution second = program.newExecution();
+        second.setTiering(tiering);
+        Assertions.assertEquals(BigInteger.valueOf(55), second.run().getValue());
+        Assertions.assertEquals(1, tiering.getPromotions());
+    }
+
+    @Test
+    void testRejected() {
+        Tiering tiering = new Tiering(10, Runnable::run);
+        Program.Execution execution = Program.compile("VAR total: Integer = 0; FUN main(): Integer DO LET i = 0; WHILE i < 20 DO total = total + i; i = i + 1; END RETURN total; END").newExecution();
+        execution.setTiering(tiering);
+        Assertions.assertEquals(BigInteger.valueOf(190), execution.run().getValue());
+        Assertions.assertEquals(Tiering.Tier.REJECTED, tiering.getTiers().get("main/0"));
+        Assertions.assertEquals(0, tiering.getCompilations());
+    }
+
+    @Test
+    void testBudget() {
+        Tiering tiering = new Tiering(10, Runnable::run);
+        Program.Execution execution = Program.compile(FIB.replace("fib(20)", "fib(10)")).newExecution();
+        execution.setTiering(tiering);
+        execution.setBudget(1_000_000);
+        Assertions.assertEquals(BigInteger.valueOf(55), execution.run().getValue());
+        Assertions.assertEquals(0, tiering.getPromotions());
+    }
+
+}